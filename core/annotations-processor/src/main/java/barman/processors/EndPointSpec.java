@@ -84,6 +84,12 @@ class EndPointSpec
     return routes.stream().anyMatch(Route::hasRoleConstrains);
   }
 
+  /** @return {@literal true} if some route runs asynchronously, so the servlet must support asynchronous mode. */
+  boolean hasAsyncRoutes()
+  {
+    return routes.stream().anyMatch(Route::isAsync);
+  }
+
   ClassName routerClassName()
   {
     return ClassName.bestGuess(routerClass);
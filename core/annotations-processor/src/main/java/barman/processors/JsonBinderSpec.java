@@ -0,0 +1,139 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.processors;
+
+import com.squareup.javapoet.ClassName;
+
+import java.util.List;
+
+/** Describes the binder to generate for some class marked as {@code barman.web.Json}. */
+final class JsonBinderSpec
+{
+  /** suffix added to the name of the bound class to name its binder. */
+  static final String BINDER_SUFFIX = "__JsonBinder";
+
+  final ClassName boundClass;
+  final ClassName binderClass;
+  final String date;
+  final List<Field> fields;
+
+  JsonBinderSpec(
+      final ClassName boundClass,
+      final String date,
+      final List<Field> fields)
+  {
+    this.boundClass = boundClass;
+    this.binderClass = binderOf(boundClass);
+    this.date = date;
+    this.fields = fields;
+  }
+
+  /**
+   * @param boundClass class marked as {@code barman.web.Json}.
+   * @return the name of the binder generated for {@code boundClass}, at its same package.
+   */
+  static ClassName binderOf(final ClassName boundClass)
+  {
+    return ClassName.get(boundClass.packageName(), String.join("_", boundClass.simpleNames()) + BINDER_SUFFIX);
+  }
+
+  /** Kinds of values that can be bound. */
+  enum Kind
+  {
+    BOOLEAN("nextBoolean"),
+    INT("nextInt"),
+    LONG("nextLong"),
+    DOUBLE("nextDouble"),
+    STRING("nextString"),
+    OBJECT(null),
+    LIST(null);
+
+    /** {@code JsonReader} method used to read values of this kind. */
+    final String reader;
+
+    Kind(final String reader)
+    {
+      this.reader = reader;
+    }
+  }
+
+  /** Type of a bound value. */
+  static final class ValueType
+  {
+    final Kind kind;
+    /** can the value be {@code null}? */
+    final boolean nullable;
+    /** binder of {@link Kind#OBJECT} values, {@literal null} for other kinds. */
+    final ClassName binder;
+    /** type of the elements of {@link Kind#LIST} values, {@literal null} for other kinds. */
+    final ValueType element;
+
+    private ValueType(
+        final Kind kind,
+        final boolean nullable,
+        final ClassName binder,
+        final ValueType element)
+    {
+      this.kind = kind;
+      this.nullable = nullable;
+      this.binder = binder;
+      this.element = element;
+    }
+
+    static ValueType primitive(final Kind kind)
+    {
+      return new ValueType(kind, false, null, null);
+    }
+
+    static ValueType reference(final Kind kind)
+    {
+      return new ValueType(kind, true, null, null);
+    }
+
+    static ValueType object(final ClassName boundClass)
+    {
+      return new ValueType(Kind.OBJECT, true, binderOf(boundClass), null);
+    }
+
+    static ValueType list(final ValueType element)
+    {
+      return new ValueType(Kind.LIST, true, null, element);
+    }
+  }
+
+  /** A bound field, with the same name at the class and at JSON documents. */
+  static final class Field
+  {
+    final String name;
+    final ValueType type;
+
+    Field(
+        final String name,
+        final ValueType type)
+    {
+      this.name = name;
+      this.type = type;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.processors;
+
+import barman.web.JsonBinder;
+import barman.web.JsonReader;
+import barman.web.JsonWriter;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import javax.annotation.processing.Generated;
+import javax.lang.model.element.Modifier;
+import java.io.IOException;
+
+class JsonBindersCodeBuilder
+{
+  JavaFile buildJavaCode(final JsonBinderSpec spec)
+  {
+    final var binder = TypeSpec.classBuilder(spec.binderClass)
+                               .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                               .addSuperinterface(ParameterizedTypeName.get(ClassName.get(JsonBinder.class), spec.boundClass))
+                               .addAnnotation(AnnotationSpec.builder(Generated.class)
+                                                            .addMember("value", "$S", "barman/JsonBindersCompiler")
+                                                            .addMember("date", "$S", spec.date)
+                                                            .build())
+                               .addField(FieldSpec.builder(spec.binderClass, "INSTANCE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                                                  .initializer("new $T()", spec.binderClass)
+                                                  .build())
+                               .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+                               .addMethod(read(spec))
+                               .addMethod(write(spec));
+    return JavaFile.builder(spec.binderClass.packageName(), binder.build()).skipJavaLangImports(true).build();
+  }
+
+  MethodSpec read(final JsonBinderSpec spec)
+  {
+    final var read = MethodSpec.methodBuilder("read")
+                               .addAnnotation(Override.class)
+                               .addModifiers(Modifier.PUBLIC)
+                               .returns(spec.boundClass)
+                               .addParameter(JsonReader.class, "json", Modifier.FINAL)
+                               .addException(IOException.class);
+    read.beginControlFlow("if (json.nextIsNull())")
+        .addStatement("return null")
+        .endControlFlow();
+    read.addStatement("final $T value = new $T()", spec.boundClass, spec.boundClass);
+    read.addStatement("json.beginObject()");
+    read.beginControlFlow("while (json.hasNext())");
+    read.beginControlFlow("switch (json.nextName())");
+    for (final var field : spec.fields) {
+      read.addCode("case $S:\n", field.name)
+          .addStatement("value.$N = $L", field.name, readValue(field.type, "json"))
+          .addStatement("break");
+    }
+    read.addCode("default:\n")
+        .addStatement("json.skipValue()");
+    read.endControlFlow();
+    read.endControlFlow();
+    read.addStatement("json.endObject()");
+    read.addStatement("return value");
+    return read.build();
+  }
+
+  MethodSpec write(final JsonBinderSpec spec)
+  {
+    final var write = MethodSpec.methodBuilder("write")
+                                .addAnnotation(Override.class)
+                                .addModifiers(Modifier.PUBLIC)
+                                .addParameter(spec.boundClass, "value", Modifier.FINAL)
+                                .addParameter(JsonWriter.class, "json", Modifier.FINAL)
+                                .addException(IOException.class);
+    write.beginControlFlow("if (value == null)")
+         .addStatement("json.nullValue()")
+         .addStatement("return")
+         .endControlFlow();
+    write.addStatement("json.beginObject()");
+    for (final var field : spec.fields) {
+      final var type = field.type;
+      switch (type.kind) {
+      case OBJECT:
+        write.addStatement("$T.INSTANCE.write(value.$N, json.name($S))", type.binder, field.name, field.name);
+        break;
+      case LIST:
+        write.addStatement("json.name($S).writeList(value.$N, $L)", field.name, field.name, elementWriter(type.element));
+        break;
+      default:
+        write.addStatement("json.name($S).value(value.$N)", field.name, field.name);
+      }
+    }
+    write.addStatement("json.endObject()");
+    return write.build();
+  }
+
+  private static CodeBlock readValue(
+      final JsonBinderSpec.ValueType type,
+      final String json)
+  {
+    switch (type.kind) {
+    case OBJECT:
+      return CodeBlock.of("$T.INSTANCE.read($N)", type.binder, json);
+    case LIST:
+      return CodeBlock.of("$N.nextIsNull() ? null : $N.readList($L)", json, json, elementReader(type.element));
+    default:
+      if (type.nullable) {
+        return CodeBlock.of("$N.nextIsNull() ? null : $N.$N()", json, json, type.kind.reader);
+      }
+      return CodeBlock.of("$N.$N()", json, type.kind.reader);
+    }
+  }
+
+  private static CodeBlock elementReader(final JsonBinderSpec.ValueType element)
+  {
+    if (element.kind == JsonBinderSpec.Kind.OBJECT) {
+      return CodeBlock.of("$T.INSTANCE", element.binder);
+    }
+    return CodeBlock.of("in -> $L", readValue(element, "in"));
+  }
+
+  private static CodeBlock elementWriter(final JsonBinderSpec.ValueType element)
+  {
+    if (element.kind == JsonBinderSpec.Kind.OBJECT) {
+      return CodeBlock.of("$T.INSTANCE", element.binder);
+    }
+    return CodeBlock.of("(element, out) -> out.value(element)");
+  }
+}
@@ -0,0 +1,202 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.processors;
+
+import barman.web.Json;
+import com.google.auto.service.AutoService;
+import com.squareup.javapoet.ClassName;
+
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/** Generates reflection-free JSON binders for classes marked as {@link Json}. */
+@AutoService(Processor.class)
+@SupportedAnnotationTypes("barman.web.Json")
+@SupportedSourceVersion(SourceVersion.RELEASE_11)
+public final class JsonBindersCompiler
+    extends AnnotationProcessor
+{
+  private final JsonBindersCodeBuilder binderBuilder;
+
+  public JsonBindersCompiler()
+  {
+    this(LocalDate.now().toString(), new JsonBindersCodeBuilder());
+  }
+
+  JsonBindersCompiler(
+      final String today,
+      final JsonBindersCodeBuilder binderBuilder)
+  {
+    super(today);
+    this.binderBuilder = binderBuilder;
+  }
+
+  @Override public boolean process(
+      final Set<? extends TypeElement> annotations,
+      final RoundEnvironment roundEnvironment)
+  {
+    for (final Element element : roundEnvironment.getElementsAnnotatedWith(Json.class)) {
+      if (element.getKind() != ElementKind.CLASS) {
+        error(element, "only classes can be marked as @barman.web.Json");
+        continue;
+      }
+      final var spec = readBinderSpec((TypeElement) element);
+      if (spec != null) {
+        generateJavaCode(spec);
+      }
+    }
+    return true;
+  }
+
+  /** @return the spec of the binder for {@code boundClass}; {@literal null} if it can't be bound. */
+  private JsonBinderSpec readBinderSpec(final TypeElement boundClass)
+  {
+    var valid = true;
+    if (boundClass.getModifiers().contains(Modifier.ABSTRACT)) {
+      error(boundClass, "@barman.web.Json classes can not be abstract");
+      valid = false;
+    }
+    if (boundClass.getNestingKind() == NestingKind.MEMBER && !boundClass.getModifiers().contains(Modifier.STATIC)) {
+      error(boundClass, "@barman.web.Json nested classes must be static");
+      valid = false;
+    }
+    if (!hasDefaultConstructor(boundClass)) {
+      error(boundClass, "@barman.web.Json classes must define a non private constructor without parameters");
+      valid = false;
+    }
+
+    final var fields = new ArrayList<JsonBinderSpec.Field>();
+    for (final VariableElement field : ElementFilter.fieldsIn(boundClass.getEnclosedElements())) {
+      final var modifiers = field.getModifiers();
+      if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+        continue;
+      }
+      if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+        error(field, "fields of @barman.web.Json classes can not be private nor final");
+        valid = false;
+        continue;
+      }
+      final var type = valueType(field.asType(), true);
+      if (type == null) {
+        error(field, "unsupported type for a field of a @barman.web.Json class: " + field.asType());
+        valid = false;
+      } else {
+        fields.add(new JsonBinderSpec.Field(field.getSimpleName().toString(), type));
+      }
+    }
+    if (!valid) {
+      return null;
+    }
+    return new JsonBinderSpec(ClassName.get(boundClass), this.today, List.copyOf(fields));
+  }
+
+  private static boolean hasDefaultConstructor(final TypeElement aClass)
+  {
+    for (final var constructor : ElementFilter.constructorsIn(aClass.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the type of the values of {@code type}; {@literal null} when they can't be bound. */
+  private JsonBinderSpec.ValueType valueType(
+      final TypeMirror type,
+      final boolean listAllowed)
+  {
+    switch (type.getKind()) {
+    case BOOLEAN:
+      return JsonBinderSpec.ValueType.primitive(JsonBinderSpec.Kind.BOOLEAN);
+    case INT:
+      return JsonBinderSpec.ValueType.primitive(JsonBinderSpec.Kind.INT);
+    case LONG:
+      return JsonBinderSpec.ValueType.primitive(JsonBinderSpec.Kind.LONG);
+    case DOUBLE:
+      return JsonBinderSpec.ValueType.primitive(JsonBinderSpec.Kind.DOUBLE);
+    case DECLARED:
+      break;
+    default:
+      return null;
+    }
+
+    final var declaredType = (DeclaredType) type;
+    final var typeElement = (TypeElement) declaredType.asElement();
+    switch (typeElement.getQualifiedName().toString()) {
+    case "java.lang.Boolean":
+      return JsonBinderSpec.ValueType.reference(JsonBinderSpec.Kind.BOOLEAN);
+    case "java.lang.Integer":
+      return JsonBinderSpec.ValueType.reference(JsonBinderSpec.Kind.INT);
+    case "java.lang.Long":
+      return JsonBinderSpec.ValueType.reference(JsonBinderSpec.Kind.LONG);
+    case "java.lang.Double":
+      return JsonBinderSpec.ValueType.reference(JsonBinderSpec.Kind.DOUBLE);
+    case "java.lang.String":
+      return JsonBinderSpec.ValueType.reference(JsonBinderSpec.Kind.STRING);
+    case "java.util.List":
+      if (!listAllowed || declaredType.getTypeArguments().size() != 1) {
+        return null;
+      }
+      final var elementType = declaredType.getTypeArguments().get(0);
+      if (elementType.getKind() != TypeKind.DECLARED) {
+        return null;
+      }
+      final var element = valueType(elementType, false);
+      return element == null ? null : JsonBinderSpec.ValueType.list(element);
+    default:
+      if (typeElement.getAnnotation(Json.class) == null) {
+        return null;
+      }
+      return JsonBinderSpec.ValueType.object(ClassName.get(typeElement));
+    }
+  }
+
+  private void generateJavaCode(final JsonBinderSpec spec)
+  {
+    final var binderCode = this.binderBuilder.buildJavaCode(spec);
+    try {
+      binderCode.writeTo(filer());
+    } catch (final IOException e) {
+      error("could not write JSON binder code, reason: " + e.getMessage());
+    }
+  }
+}
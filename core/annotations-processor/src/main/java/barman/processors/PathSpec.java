@@ -23,13 +23,17 @@ THE SOFTWARE.
 */
 package barman.processors;
 
+import barman.web.Async;
+import barman.web.Cached;
 import barman.web.LoggedUser;
+import barman.web.MaxConcurrent;
 
 import javax.lang.model.element.ExecutableElement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 final class PathSpec
 {
@@ -38,6 +42,9 @@ final class PathSpec
   // group(3) extracts the regex if defined
   private static final Pattern PATTERN_FOR_VARIABLE_PARTS_OF_ROUTE = Pattern.compile("\\{(.*?)(:\\s(.*?))?\\}");
 
+  /** regex constructs which could match a {@code /}, so variables using them could match many segments. */
+  private static final String[] MANY_SEGMENTS_WILDCARDS = {".", "/", "\\S", "\\W", "\\D", "[^", "\\p", "\\P"};
+
   // This regex matches everything in between path slashes.
   private static final String VARIABLE_ROUTES_DEFAULT_REGEX = "(?<%s>[^/]+)";
 
@@ -161,6 +168,166 @@ final class PathSpec
     return List.copyOf(parameters);
   }
 
+  /**
+   * Splits an url pattern into its segments, so it can be dispatched by a {@link RouteTrie}.
+   * <p/>
+   * "/{team}/players" would return a List with "{team}" and "players".
+   * <p/>
+   * Only patterns which segments are static text or a whole default variable can be dispatched that way, so "/users/{name: [a-z]+}" or
+   * "/assets/{file}.css" have no segments.
+   *
+   * @param urlPattern path to work with.
+   * @return the segments of the url pattern; {@literal null} when some of them must be matched by a regex.
+   */
+  static List<String> findSegments(final String urlPattern)
+  {
+    if (urlPattern == null || "".equals(urlPattern) || "/".equals(urlPattern)) {
+      return List.of();
+    }
+    final var segments = (urlPattern.startsWith("/") ? urlPattern.substring(1) : urlPattern).split("/", -1);
+    for (final var segment : segments) {
+      if (hasBraces(segment)) {
+        final var matcher = PATTERN_FOR_VARIABLE_PARTS_OF_ROUTE.matcher(segment);
+        if (!matcher.matches() || matcher.group(3) != null || hasBraces(matcher.group(1))) {
+          return null;
+        }
+      }
+    }
+    return List.of(segments);
+  }
+
+  /**
+   * Checks if an url pattern can be matched segment by segment, without regexes.
+   * <p/>
+   * That's possible when none of its variables declares its own regex, and each segment holds at most one variable, like "/assets/{file}.css".
+   *
+   * @param urlPattern path to work with.
+   * @return {@literal true} if the url pattern only uses the default regex for its variables.
+   */
+  static boolean isMatchableBySegments(final String urlPattern)
+  {
+    for (final var segment : urlPattern.split("/", -1)) {
+      final var matcher = PATTERN_FOR_VARIABLE_PARTS_OF_ROUTE.matcher(segment);
+      if (matcher.find()) {
+        final var parameter = matcher.group(1);
+        if (matcher.group(3) != null || hasBraces(parameter)) {
+          return false;
+        }
+        if (hasBraces(segment.substring(0, matcher.start())) || hasBraces(segment.substring(matcher.end()))) {
+          return false;
+        }
+      } else if (hasBraces(segment)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if some request could be matched by a route matched sequentially and also by a route dispatched by segments, so the later can't be
+   * tried before the former.
+   * <p>
+   * The check is conservative: static segments are compared with the regexes of the variables, but parts that can't be compared segment by
+   * segment (like variables which regex could match a {@code /}) are assumed to match.
+   *
+   * @param pattern  url pattern of the route matched sequentially.
+   * @param segments segments of the route dispatched by segments, as returned by {@link #findSegments(String)}.
+   * @return {@literal true} if both routes could match the same request.
+   */
+  static boolean mayOverlap(
+      final String pattern,
+      final List<String> segments)
+  {
+    final var parts = splitOutsideBraces(pattern.startsWith("/") ? pattern.substring(1) : pattern);
+    for (int i = 0; i < parts.size(); i++) {
+      final var part = parts.get(i);
+      if (mayMatchManySegments(part)) {
+        return true;
+      }
+      if (i >= segments.size()) {
+        return false;
+      }
+      final var segment = segments.get(i);
+      if (!isVariableSegment(segment) && !mayMatchSegment(part, segment)) {
+        return false;
+      }
+    }
+    return parts.size() == segments.size();
+  }
+
+  private static List<String> splitOutsideBraces(final String pattern)
+  {
+    if (pattern.isEmpty()) {
+      return List.of();
+    }
+    final var parts = new ArrayList<String>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      final var c = pattern.charAt(i);
+      if (c == '{') {
+        depth++;
+      } else if (c == '}') {
+        depth--;
+      } else if (c == '/' && depth == 0) {
+        parts.add(pattern.substring(start, i));
+        start = i + 1;
+      }
+    }
+    parts.add(pattern.substring(start));
+    return parts;
+  }
+
+  /** @return {@literal true} if some variable of {@code part} declares a regex that could match a {@code /}. */
+  private static boolean mayMatchManySegments(final String part)
+  {
+    final var matcher = PATTERN_FOR_VARIABLE_PARTS_OF_ROUTE.matcher(part);
+    while (matcher.find()) {
+      final var regex = matcher.group(3);
+      if (regex != null) {
+        for (final var wildcard : MANY_SEGMENTS_WILDCARDS) {
+          if (regex.contains(wildcard)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /** @return {@literal false} only when {@code part} can't match the static {@code segment}. */
+  private static boolean mayMatchSegment(
+      final String part,
+      final String segment)
+  {
+    if (!hasBraces(part)) {
+      return part.equals(segment);
+    }
+    final var matcher = PATTERN_FOR_VARIABLE_PARTS_OF_ROUTE.matcher(part);
+    if (!matcher.matches() || matcher.group(3) == null) {
+      return true;
+    }
+    try {
+      return Pattern.matches(matcher.group(3), segment);
+    } catch (final PatternSyntaxException e) {
+      return true;
+    }
+  }
+
+  private static boolean hasBraces(final String text)
+  {
+    return text.indexOf('{') >= 0 || text.indexOf('}') >= 0;
+  }
+
+  /**
+   * @param segment one of the segments returned by {@link #findSegments(String)}.
+   * @return {@literal true} if the segment represents a path variable; {@literal false} if it is static text.
+   */
+  static boolean isVariableSegment(final String segment)
+  {
+    return segment.startsWith("{");
+  }
+
   @Override public int hashCode()
   {
     return this.pattern.hashCode();
@@ -213,10 +380,21 @@ final class PathSpec
       }
     }
 
+    // only GET responses can be cached
+    final var cached = verb == HttpVerb.GET ? method.getAnnotation(Cached.class) : null;
+    final var async = method.getAnnotation(Async.class);
+    var maxConcurrent = method.getAnnotation(MaxConcurrent.class);
+    final var endpointLimited = maxConcurrent == null;
+    if (endpointLimited) {
+      maxConcurrent = method.getEnclosingElement().getAnnotation(MaxConcurrent.class);
+    }
+
     if (isStatic()) {
-      return new Route(path, verb, pattern, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler);
+      return new Route(path, verb, pattern, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler, cached, async,
+                       maxConcurrent, endpointLimited);
     } else {
-      return new Route(path, verb, pattern, regex, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler, parameters);
+      return new Route(path, verb, pattern, regex, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler, parameters,
+                       cached, async, maxConcurrent, endpointLimited);
     }
   }
 }
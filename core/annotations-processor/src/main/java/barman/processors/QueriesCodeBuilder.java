@@ -0,0 +1,238 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.processors;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import javax.annotation.processing.Generated;
+import javax.lang.model.element.Modifier;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+class QueriesCodeBuilder
+{
+  private static final String SQL_PACKAGE = "barman.sql";
+  private static final ClassName ROW_MAPPER = ClassName.get(SQL_PACKAGE, "RowMapper");
+  private static final ClassName COLUMNS = ClassName.get(SQL_PACKAGE, "Columns");
+  private static final ClassName CONFIGURATION = ClassName.get(SQL_PACKAGE, "SqlStatement", "Configuration");
+
+  JavaFile buildJavaCode(final QueriesSpec spec)
+  {
+    final var impl = TypeSpec.classBuilder(spec.implClass)
+                             .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                             .addSuperinterface(spec.queriesInterface)
+                             .addAnnotation(AnnotationSpec.builder(Generated.class)
+                                                          .addMember("value", "$S", "barman/QueriesCompiler")
+                                                          .addMember("date", "$S", spec.date)
+                                                          .build());
+    final var mappers = addRowMappers(impl, spec);
+    for (final var method : spec.methods) {
+      impl.addMethod(queryMethod(method, mappers));
+    }
+    for (final var method : spec.methods) {
+      impl.addType(statementClass(method));
+    }
+    return JavaFile.builder(spec.implClass.packageName(), impl.build()).skipJavaLangImports(true).build();
+  }
+
+  /** @return the name of the {@code RowMapper} constant defined for each type of row. */
+  private static Map<TypeName, String> addRowMappers(
+      final TypeSpec.Builder impl,
+      final QueriesSpec spec)
+  {
+    final var mappers = new LinkedHashMap<TypeName, String>();
+    final Set<String> names = new HashSet<>();
+    for (final var method : spec.methods) {
+      final var row = method.result.row;
+      if (row == null || mappers.containsKey(row.type)) {
+        continue;
+      }
+      final var baseName = constantNameOf(row.type);
+      var name = baseName;
+      for (int i = 2; !names.add(name); i++) {
+        name = baseName + '_' + i;
+      }
+      mappers.put(row.type, name);
+      impl.addField(FieldSpec.builder(ParameterizedTypeName.get(ROW_MAPPER, row.type), name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                             .initializer("rs -> $L", mapRow(row))
+                             .build());
+    }
+    return mappers;
+  }
+
+  private static String constantNameOf(final TypeName type)
+  {
+    final var simpleName = type instanceof ClassName ? ((ClassName) type).simpleName() : type.toString();
+    return simpleName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+  }
+
+  private static CodeBlock mapRow(final QueriesSpec.Row row)
+  {
+    if (!row.constructed) {
+      return readColumn(row.columns.get(0), 1);
+    }
+    final var arguments = new ArrayList<CodeBlock>(row.columns.size());
+    for (int i = 0; i < row.columns.size(); i++) {
+      arguments.add(readColumn(row.columns.get(i), i + 1));
+    }
+    return CodeBlock.of("new $T($L)", row.type, CodeBlock.join(arguments, ", "));
+  }
+
+  private static CodeBlock readColumn(
+      final QueriesSpec.ValueType type,
+      final int index)
+  {
+    if (type.boxed) {
+      return CodeBlock.of("$T.nullable$L(rs, $L)", COLUMNS, type.column.accessor, index);
+    }
+    return CodeBlock.of("rs.get$L($L)", type.column.accessor, index);
+  }
+
+  private static MethodSpec queryMethod(
+      final QueriesSpec.Method method,
+      final Map<TypeName, String> mappers)
+  {
+    final var query = MethodSpec.methodBuilder(method.name)
+                                .addAnnotation(Override.class)
+                                .addModifiers(Modifier.PUBLIC)
+                                .returns(method.result.type)
+                                .addParameter(Connection.class, method.connection, Modifier.FINAL)
+                                .addExceptions(method.exceptions);
+    final var arguments = new ArrayList<CodeBlock>(method.parameters.size());
+    for (final var parameter : method.parameters) {
+      query.addParameter(parameter.type.type, parameter.name, Modifier.FINAL);
+      arguments.add(CodeBlock.of("$N", parameter.name));
+    }
+    final var statement = CodeBlock.of("new $N($L)", method.statementClass, CodeBlock.join(arguments, ", "));
+    if (method.result.row == null) {
+      query.addStatement("return $L.query($N)", statement, method.connection);
+    } else {
+      query.addStatement("return $L.query($N, $N)", statement, method.connection, mappers.get(method.result.row.type));
+    }
+    return query.build();
+  }
+
+  private static TypeSpec statementClass(final QueriesSpec.Method method)
+  {
+    final var statement = TypeSpec.classBuilder(method.statementClass)
+                                  .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                  .superclass(superclassOf(method.result));
+    final var constructor = MethodSpec.constructorBuilder()
+                                      .addStatement("super($S, $T.none())", method.sql, CONFIGURATION);
+    for (final var parameter : method.parameters) {
+      statement.addField(FieldSpec.builder(parameter.type.type, parameter.name, Modifier.PRIVATE, Modifier.FINAL).build());
+      constructor.addParameter(parameter.type.type, parameter.name, Modifier.FINAL)
+                 .addStatement("this.$N = $N", parameter.name, parameter.name);
+    }
+    statement.addMethod(constructor.build());
+    if (!method.parameters.isEmpty()) {
+      statement.addMethod(setParametersTo(method.parameters))
+               .addMethod(MethodSpec.methodBuilder("hasParameters")
+                                    .addAnnotation(Override.class)
+                                    .addModifiers(Modifier.PROTECTED)
+                                    .returns(TypeName.BOOLEAN)
+                                    .addStatement("return true")
+                                    .build())
+               .addMethod(appendParametersDescriptionTo(method.parameters));
+    }
+    return statement.build();
+  }
+
+  private static ClassName superclassOf(final QueriesSpec.Result result)
+  {
+    switch (result.kind) {
+    case PRIMITIVE:
+      return ClassName.get(SQL_PACKAGE, "Select" + result.column.accessor);
+    case PRIMITIVE_LIST:
+      return ClassName.get(SQL_PACKAGE, "Select" + result.column.accessor + "List");
+    case ROW:
+      return ClassName.get(SQL_PACKAGE, "SelectObject");
+    case LIST:
+      return ClassName.get(SQL_PACKAGE, "SelectList");
+    case STREAM:
+      return ClassName.get(SQL_PACKAGE, "SelectStream");
+    default:
+      throw new IllegalArgumentException("unknown kind of result: " + result.kind);
+    }
+  }
+
+  private static MethodSpec setParametersTo(final List<QueriesSpec.Parameter> parameters)
+  {
+    final var set = MethodSpec.methodBuilder("setParametersTo")
+                              .addAnnotation(Override.class)
+                              .addModifiers(Modifier.PROTECTED)
+                              .addParameter(PreparedStatement.class, "ps", Modifier.FINAL)
+                              .addException(SQLException.class);
+    int index = 1;
+    for (final var parameter : parameters) {
+      final var type = parameter.type;
+      if (type.isColumnSetter()) {
+        set.addStatement("this.$N.set(ps, $L)", parameter.name, index);
+      } else if (type.boxed) {
+        set.beginControlFlow("if (this.$N == null)", parameter.name)
+           .addStatement("ps.setNull($L, $T.$N)", index, Types.class, type.column.sqlType)
+           .nextControlFlow("else")
+           .addStatement("ps.set$L($L, this.$N)", type.column.accessor, index, parameter.name)
+           .endControlFlow();
+      } else {
+        set.addStatement("ps.set$L($L, this.$N)", type.column.accessor, index, parameter.name);
+      }
+      index++;
+    }
+    return set.build();
+  }
+
+  private static MethodSpec appendParametersDescriptionTo(final List<QueriesSpec.Parameter> parameters)
+  {
+    final var description = CodeBlock.builder().add("msg");
+    var separator = "";
+    for (final var parameter : parameters) {
+      description.add(".append($S).append(this.$N)", separator + parameter.name + ": ", parameter.name);
+      separator = ", ";
+    }
+    return MethodSpec.methodBuilder("appendParametersDescriptionTo")
+                     .addAnnotation(Override.class)
+                     .addModifiers(Modifier.PROTECTED)
+                     .addParameter(StringBuilder.class, "msg", Modifier.FINAL)
+                     .addStatement(description.build())
+                     .build();
+  }
+}
@@ -0,0 +1,419 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.processors;
+
+import barman.sql.Query;
+import com.google.auto.service.AutoService;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Generates the implementation of interfaces with methods marked as {@link Query}, without using reflection. */
+@AutoService(Processor.class)
+@SupportedAnnotationTypes("barman.sql.Query")
+@SupportedSourceVersion(SourceVersion.RELEASE_11)
+public final class QueriesCompiler
+    extends AnnotationProcessor
+{
+  private final QueriesCodeBuilder implBuilder;
+
+  public QueriesCompiler()
+  {
+    this(LocalDate.now().toString(), new QueriesCodeBuilder());
+  }
+
+  QueriesCompiler(
+      final String today,
+      final QueriesCodeBuilder implBuilder)
+  {
+    super(today);
+    this.implBuilder = implBuilder;
+  }
+
+  @Override public boolean process(
+      final Set<? extends TypeElement> annotations,
+      final RoundEnvironment roundEnvironment)
+  {
+    final var interfaces = new LinkedHashSet<TypeElement>();
+    for (final Element element : roundEnvironment.getElementsAnnotatedWith(Query.class)) {
+      final var enclosing = element.getEnclosingElement();
+      if (enclosing.getKind() != ElementKind.INTERFACE) {
+        error(element, "only methods of interfaces can be marked as @barman.sql.Query");
+      } else if (!element.getModifiers().contains(Modifier.ABSTRACT)) {
+        error(element, "default and static methods can not be marked as @barman.sql.Query");
+      } else {
+        interfaces.add((TypeElement) enclosing);
+      }
+    }
+    for (final var queriesInterface : interfaces) {
+      final var spec = readQueriesSpec(queriesInterface);
+      if (spec != null) {
+        generateJavaCode(spec);
+      }
+    }
+    return true;
+  }
+
+  /** @return the spec of the implementation of {@code queriesInterface}; {@literal null} if it can't be implemented. */
+  private QueriesSpec readQueriesSpec(final TypeElement queriesInterface)
+  {
+    var valid = true;
+    final var methods = new ArrayList<QueriesSpec.Method>();
+    final var statementClasses = new HashSet<String>();
+    for (final ExecutableElement method : ElementFilter.methodsIn(queriesInterface.getEnclosedElements())) {
+      if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+        continue;
+      }
+      final var query = method.getAnnotation(Query.class);
+      if (query == null) {
+        error(method, "all the abstract methods of an interface with @barman.sql.Query methods must be marked as @barman.sql.Query");
+        valid = false;
+        continue;
+      }
+      final var spec = readMethodSpec(method, query.value(), statementClasses);
+      if (spec == null) {
+        valid = false;
+      } else {
+        methods.add(spec);
+      }
+    }
+    if (!valid) {
+      return null;
+    }
+    return new QueriesSpec(ClassName.get(queriesInterface), this.today, List.copyOf(methods));
+  }
+
+  private QueriesSpec.Method readMethodSpec(
+      final ExecutableElement method,
+      final String sql,
+      final Set<String> statementClasses)
+  {
+    var valid = true;
+    if (!method.getTypeParameters().isEmpty()) {
+      error(method, "@barman.sql.Query methods can not be generic");
+      valid = false;
+    }
+    if (!declaresSqlException(method)) {
+      error(method, "@barman.sql.Query methods must declare java.sql.SQLException");
+      valid = false;
+    }
+
+    final var parameters = method.getParameters();
+    if (parameters.isEmpty() || !isType(parameters.get(0).asType(), "java.sql.Connection")) {
+      error(method, "the first parameter of @barman.sql.Query methods must be a java.sql.Connection");
+      return null;
+    }
+    final var boundParameters = new ArrayList<QueriesSpec.Parameter>(parameters.size() - 1);
+    for (final var parameter : parameters.subList(1, parameters.size())) {
+      final var type = valueType(parameter.asType(), true);
+      if (type == null) {
+        error(parameter, "unsupported type for a parameter of a @barman.sql.Query method: " + parameter.asType());
+        valid = false;
+      } else {
+        boundParameters.add(new QueriesSpec.Parameter(parameter.getSimpleName().toString(), type));
+      }
+    }
+    final var placeholders = placeholdersIn(sql);
+    if (placeholders != boundParameters.size() && valid) {
+      error(method, "@barman.sql.Query defines " + placeholders + " parameters, but the method receives " + boundParameters.size());
+      valid = false;
+    }
+
+    final var innerClass = innerClassIn(method.getReturnType());
+    final var result = innerClass == null ? result(method.getReturnType()) : null;
+    if (innerClass != null) {
+      error(method, "rows of @barman.sql.Query methods can not be inner classes, " + innerClass + " must be static");
+      valid = false;
+    } else if (result == null) {
+      error(method, "unsupported result for a @barman.sql.Query method: " + method.getReturnType());
+      valid = false;
+    }
+    if (!valid) {
+      return null;
+    }
+
+    final var name = method.getSimpleName().toString();
+    final var baseClassName = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    var statementClass = baseClassName;
+    for (int i = 2; !statementClasses.add(statementClass); i++) {
+      statementClass = baseClassName + i;
+    }
+    final var exceptions = new ArrayList<TypeName>(method.getThrownTypes().size());
+    for (final var thrown : method.getThrownTypes()) {
+      exceptions.add(TypeName.get(thrown));
+    }
+    return new QueriesSpec.Method(name,
+                                  statementClass,
+                                  sql,
+                                  parameters.get(0).getSimpleName().toString(),
+                                  List.copyOf(boundParameters),
+                                  result,
+                                  List.copyOf(exceptions));
+  }
+
+  private boolean declaresSqlException(final ExecutableElement method)
+  {
+    final var sqlException = elements().getTypeElement("java.sql.SQLException").asType();
+    for (final var thrown : method.getThrownTypes()) {
+      if (types().isAssignable(sqlException, thrown)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the result of a method returning {@code type}; {@literal null} when it is not supported. */
+  private QueriesSpec.Result result(final TypeMirror type)
+  {
+    final var typeName = TypeName.get(type);
+    final var column = column(type.getKind());
+    if (column != null) {
+      return new QueriesSpec.Result(typeName, QueriesSpec.ResultKind.PRIMITIVE, column, null);
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    final var declaredType = (DeclaredType) type;
+    switch (((TypeElement) declaredType.asElement()).getQualifiedName().toString()) {
+    case "barman.sql.IntList":
+      return new QueriesSpec.Result(typeName, QueriesSpec.ResultKind.PRIMITIVE_LIST, QueriesSpec.Column.INT, null);
+    case "barman.sql.LongList":
+      return new QueriesSpec.Result(typeName, QueriesSpec.ResultKind.PRIMITIVE_LIST, QueriesSpec.Column.LONG, null);
+    case "barman.sql.DoubleList":
+      return new QueriesSpec.Result(typeName, QueriesSpec.ResultKind.PRIMITIVE_LIST, QueriesSpec.Column.DOUBLE, null);
+    case "java.util.List":
+      return rows(typeName, QueriesSpec.ResultKind.LIST, declaredType);
+    case "java.util.stream.Stream":
+      return rows(typeName, QueriesSpec.ResultKind.STREAM, declaredType);
+    default:
+      final var row = row(type);
+      return row == null ? null : new QueriesSpec.Result(typeName, QueriesSpec.ResultKind.ROW, null, row);
+    }
+  }
+
+  private QueriesSpec.Result rows(
+      final TypeName typeName,
+      final QueriesSpec.ResultKind kind,
+      final DeclaredType type)
+  {
+    if (type.getTypeArguments().size() != 1) {
+      return null;
+    }
+    final var row = row(type.getTypeArguments().get(0));
+    return row == null ? null : new QueriesSpec.Result(typeName, kind, null, row);
+  }
+
+  /** @return how to map rows to {@code type}; {@literal null} when they can't be mapped. */
+  private QueriesSpec.Row row(final TypeMirror type)
+  {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    final var column = valueType(type, false);
+    if (column != null) {
+      return QueriesSpec.Row.firstColumn(column);
+    }
+    final var declaredType = (DeclaredType) type;
+    final var rowClass = (TypeElement) declaredType.asElement();
+    if (rowClass.getKind() != ElementKind.CLASS
+        || rowClass.getModifiers().contains(Modifier.ABSTRACT)
+        || !declaredType.getTypeArguments().isEmpty()) {
+      return null;
+    }
+    ExecutableElement rowConstructor = null;
+    for (final var constructor : ElementFilter.constructorsIn(rowClass.getEnclosedElements())) {
+      if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        if (rowConstructor != null) {
+          return null;
+        }
+        rowConstructor = constructor;
+      }
+    }
+    if (rowConstructor == null || rowConstructor.getParameters().isEmpty()) {
+      return null;
+    }
+    final var columns = new ArrayList<QueriesSpec.ValueType>(rowConstructor.getParameters().size());
+    for (final var parameter : rowConstructor.getParameters()) {
+      final var columnType = valueType(parameter.asType(), false);
+      if (columnType == null) {
+        return null;
+      }
+      columns.add(columnType);
+    }
+    return QueriesSpec.Row.constructed(TypeName.get(type), List.copyOf(columns));
+  }
+
+  /** @return the type of the values of {@code type}; {@literal null} when they can't be read or bound. */
+  private QueriesSpec.ValueType valueType(
+      final TypeMirror type,
+      final boolean columnSetterAllowed)
+  {
+    final var column = column(type.getKind());
+    if (column != null) {
+      return QueriesSpec.ValueType.of(column);
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    switch (((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString()) {
+    case "java.lang.Boolean":
+      return QueriesSpec.ValueType.boxed(QueriesSpec.Column.BOOLEAN);
+    case "java.lang.Byte":
+      return QueriesSpec.ValueType.boxed(QueriesSpec.Column.BYTE);
+    case "java.lang.Short":
+      return QueriesSpec.ValueType.boxed(QueriesSpec.Column.SHORT);
+    case "java.lang.Integer":
+      return QueriesSpec.ValueType.boxed(QueriesSpec.Column.INT);
+    case "java.lang.Long":
+      return QueriesSpec.ValueType.boxed(QueriesSpec.Column.LONG);
+    case "java.lang.Float":
+      return QueriesSpec.ValueType.boxed(QueriesSpec.Column.FLOAT);
+    case "java.lang.Double":
+      return QueriesSpec.ValueType.boxed(QueriesSpec.Column.DOUBLE);
+    case "java.lang.String":
+      return QueriesSpec.ValueType.of(QueriesSpec.Column.STRING);
+    case "java.math.BigDecimal":
+      return QueriesSpec.ValueType.of(QueriesSpec.Column.BIG_DECIMAL);
+    default:
+      final var columnSetter = elements().getTypeElement("barman.sql.ColumnSetter").asType();
+      if (columnSetterAllowed && types().isAssignable(type, columnSetter)) {
+        return QueriesSpec.ValueType.columnSetter(TypeName.get(type));
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Counts the {@code ?} parameters of a query, skipping the ones in quoted text and comments, the {@code ??} escape and the {@code ?|} and
+   * {@code ?&} operators (of PostgreSQL's jsonb).
+   */
+  static int placeholdersIn(final String sql)
+  {
+    var placeholders = 0;
+    var i = 0;
+    while (i < sql.length()) {
+      final var c = sql.charAt(i);
+      final var next = i + 1 < sql.length() ? sql.charAt(i + 1) : 0;
+      if (c == '\'' || c == '"') {
+        // a doubled quote escapes it, and it is just a quoted text followed by another one
+        final var close = sql.indexOf(c, i + 1);
+        i = close < 0 ? sql.length() : close + 1;
+      } else if (c == '-' && next == '-') {
+        final var eol = sql.indexOf('\n', i);
+        i = eol < 0 ? sql.length() : eol + 1;
+      } else if (c == '/' && next == '*') {
+        final var close = sql.indexOf("*/", i + 2);
+        i = close < 0 ? sql.length() : close + 2;
+      } else if (c == '?' && next == '?') {
+        i += 2;
+      } else {
+        if (c == '?') {
+          placeholders++;
+        }
+        i++;
+      }
+    }
+    return placeholders;
+  }
+
+  /** @return an inner (non static nested) class at {@code type} or its type arguments; {@literal null} if there is none. */
+  private static TypeElement innerClassIn(final TypeMirror type)
+  {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    final var declaredType = (DeclaredType) type;
+    final var element = (TypeElement) declaredType.asElement();
+    if (element.getKind() == ElementKind.CLASS && element.getNestingKind().isNested() && !element.getModifiers().contains(Modifier.STATIC)) {
+      return element;
+    }
+    for (final var argument : declaredType.getTypeArguments()) {
+      final var innerClass = innerClassIn(argument);
+      if (innerClass != null) {
+        return innerClass;
+      }
+    }
+    return null;
+  }
+
+  private static QueriesSpec.Column column(final TypeKind kind)
+  {
+    switch (kind) {
+    case BOOLEAN:
+      return QueriesSpec.Column.BOOLEAN;
+    case BYTE:
+      return QueriesSpec.Column.BYTE;
+    case SHORT:
+      return QueriesSpec.Column.SHORT;
+    case INT:
+      return QueriesSpec.Column.INT;
+    case LONG:
+      return QueriesSpec.Column.LONG;
+    case FLOAT:
+      return QueriesSpec.Column.FLOAT;
+    case DOUBLE:
+      return QueriesSpec.Column.DOUBLE;
+    default:
+      return null;
+    }
+  }
+
+  private static boolean isType(
+      final TypeMirror type,
+      final String qualifiedName)
+  {
+    return type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+  }
+
+  private void generateJavaCode(final QueriesSpec spec)
+  {
+    final var implCode = this.implBuilder.buildJavaCode(spec);
+    try {
+      implCode.writeTo(filer());
+    } catch (final IOException e) {
+      error("could not write queries implementation code, reason: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,250 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.processors;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+
+import java.util.List;
+
+/** Describes the implementation to generate for some interface with methods marked as {@code barman.sql.Query}. */
+final class QueriesSpec
+{
+  /** suffix added to the name of the interface to name its implementation. */
+  static final String IMPL_SUFFIX = "__barmanImpl";
+
+  final ClassName queriesInterface;
+  final ClassName implClass;
+  final String date;
+  final List<Method> methods;
+
+  QueriesSpec(
+      final ClassName queriesInterface,
+      final String date,
+      final List<Method> methods)
+  {
+    this.queriesInterface = queriesInterface;
+    this.implClass = implOf(queriesInterface);
+    this.date = date;
+    this.methods = methods;
+  }
+
+  /**
+   * @param queriesInterface interface with methods marked as {@code barman.sql.Query}.
+   * @return the name of the implementation generated for {@code queriesInterface}, at its same package.
+   */
+  static ClassName implOf(final ClassName queriesInterface)
+  {
+    return ClassName.get(queriesInterface.packageName(), String.join("_", queriesInterface.simpleNames()) + IMPL_SUFFIX);
+  }
+
+  /** Types of the columns that can be read and the parameters that can be bound, with the JDBC methods used to do it. */
+  enum Column
+  {
+    BOOLEAN(TypeName.BOOLEAN, "Boolean", "BOOLEAN"),
+    BYTE(TypeName.BYTE, "Byte", "TINYINT"),
+    SHORT(TypeName.SHORT, "Short", "SMALLINT"),
+    INT(TypeName.INT, "Int", "INTEGER"),
+    LONG(TypeName.LONG, "Long", "BIGINT"),
+    FLOAT(TypeName.FLOAT, "Float", "REAL"),
+    DOUBLE(TypeName.DOUBLE, "Double", "DOUBLE"),
+    STRING(ClassName.get(String.class), "String", "VARCHAR"),
+    BIG_DECIMAL(ClassName.get(java.math.BigDecimal.class), "BigDecimal", "NUMERIC");
+
+    /** type of the values, primitive when there is one. */
+    final TypeName type;
+    /** suffix of the {@code ResultSet} getter and {@code PreparedStatement} setter for the values. */
+    final String accessor;
+    /** name of the {@code java.sql.Types} constant used to bind {@code NULL}s. */
+    final String sqlType;
+
+    Column(
+        final TypeName type,
+        final String accessor,
+        final String sqlType)
+    {
+      this.type = type;
+      this.accessor = accessor;
+      this.sqlType = sqlType;
+    }
+
+    boolean isPrimitive()
+    {
+      return type.isPrimitive();
+    }
+  }
+
+  /** Type of a parameter or a column: one of the {@link Column}s, maybe boxed; or a {@code barman.sql.ColumnSetter}. */
+  static final class ValueType
+  {
+    final TypeName type;
+    final Column column;
+    /** is it the wrapper of a primitive {@link #column}? */
+    final boolean boxed;
+
+    private ValueType(
+        final TypeName type,
+        final Column column,
+        final boolean boxed)
+    {
+      this.type = type;
+      this.column = column;
+      this.boxed = boxed;
+    }
+
+    static ValueType of(final Column column)
+    {
+      return new ValueType(column.type, column, false);
+    }
+
+    static ValueType boxed(final Column column)
+    {
+      return new ValueType(column.type.box(), column, true);
+    }
+
+    static ValueType columnSetter(final TypeName type)
+    {
+      return new ValueType(type, null, false);
+    }
+
+    boolean isColumnSetter()
+    {
+      return column == null;
+    }
+  }
+
+  /** Parameter of a query method, bound to the {@code ?} at its position. */
+  static final class Parameter
+  {
+    final String name;
+    final ValueType type;
+
+    Parameter(
+        final String name,
+        final ValueType type)
+    {
+      this.name = name;
+      this.type = type;
+    }
+  }
+
+  /** How the rows of a query are mapped: reading its first column, or constructing {@link #type} with the values of its columns. */
+  static final class Row
+  {
+    final TypeName type;
+    final List<ValueType> columns;
+    final boolean constructed;
+
+    private Row(
+        final TypeName type,
+        final List<ValueType> columns,
+        final boolean constructed)
+    {
+      this.type = type;
+      this.columns = columns;
+      this.constructed = constructed;
+    }
+
+    static Row firstColumn(final ValueType column)
+    {
+      return new Row(column.type, List.of(column), false);
+    }
+
+    static Row constructed(
+        final TypeName type,
+        final List<ValueType> columns)
+    {
+      return new Row(type, columns, true);
+    }
+  }
+
+  /** Kinds of results, each one obtained by a different {@code barman.sql.Select}. */
+  enum ResultKind
+  {
+    /** a NOT NULL primitive, read from the first column of the only row. */
+    PRIMITIVE,
+    /** primitives read from the first column of each row, without boxing them. */
+    PRIMITIVE_LIST,
+    /** ZERO or ONE row. */
+    ROW,
+    /** zero or more rows. */
+    LIST,
+    /** zero or more rows, read lazily. */
+    STREAM
+  }
+
+  /** Result of a query method. */
+  static final class Result
+  {
+    /** type returned by the method. */
+    final TypeName type;
+    final ResultKind kind;
+    /** column read for {@link ResultKind#PRIMITIVE} and {@link ResultKind#PRIMITIVE_LIST} results. */
+    final Column column;
+    /** how rows are mapped for the other kinds of results. */
+    final Row row;
+
+    Result(
+        final TypeName type,
+        final ResultKind kind,
+        final Column column,
+        final Row row)
+    {
+      this.type = type;
+      this.kind = kind;
+      this.column = column;
+      this.row = row;
+    }
+  }
+
+  /** A method marked as {@code barman.sql.Query}, implemented by a {@code barman.sql.Select} subclass nested at the implementation. */
+  static final class Method
+  {
+    final String name;
+    final String statementClass;
+    final String sql;
+    final String connection;
+    final List<Parameter> parameters;
+    final Result result;
+    final List<TypeName> exceptions;
+
+    Method(
+        final String name,
+        final String statementClass,
+        final String sql,
+        final String connection,
+        final List<Parameter> parameters,
+        final Result result,
+        final List<TypeName> exceptions)
+    {
+      this.name = name;
+      this.statementClass = statementClass;
+      this.sql = sql;
+      this.connection = connection;
+      this.parameters = parameters;
+      this.result = result;
+      this.exceptions = exceptions;
+    }
+  }
+}
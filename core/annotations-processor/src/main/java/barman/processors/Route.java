@@ -23,13 +23,20 @@ THE SOFTWARE.
 */
 package barman.processors;
 
+import barman.web.Async;
+import barman.web.Cached;
+import barman.web.MaxConcurrent;
 import barman.web.RouterServlet;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 
 import javax.lang.model.element.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 final class Route
@@ -37,6 +44,11 @@ final class Route
   public static final int BASIC_PARAMETERS_COUNT = 4;
   public static final int HASH_PRIME = 17;
   private static final ClassName PATTERN_CLASS_NAME = ClassName.get(Pattern.class);
+  private static final ClassName RESPONSE_CACHE_CLASS_NAME = ClassName.get(RouterServlet.class.getPackage().getName(), "ResponseCache");
+  private static final ClassName ASYNC_DISPATCH_CLASS_NAME = ClassName.get(RouterServlet.class.getPackage().getName(), "AsyncDispatch");
+  private static final ClassName CONCURRENCY_LIMIT_CLASS_NAME = ClassName.get(RouterServlet.class.getPackage().getName(), "ConcurrencyLimit");
+  /** name of the field holding the {@code ConcurrencyLimit} shared by all the routes of an endpoint. */
+  static final String ENDPOINT_LIMIT_FIELD = "ENDPOINT_LIMIT";
   private static final String NO_REGEX = "";
   private static final String[] NO_PARAMETERS = {};
   static final String[] NO_ROLES = NO_PARAMETERS;
@@ -51,6 +63,15 @@ final class Route
   final boolean requiresUserNotLogged;
   final String[] allowedRoles;
   final String[] rejectedRoles;
+  final List<String> segments;
+  /** how its responses are cached, {@literal null} when they aren't. */
+  final Cached cached;
+  /** how it runs asynchronously, {@literal null} when it runs at the container thread. */
+  final Async async;
+  /** how many requests it processes at once, {@literal null} when it isn't limited. */
+  final MaxConcurrent maxConcurrent;
+  /** is {@link #maxConcurrent} the limit of the whole endpoint, shared by all its routes? */
+  final boolean endpointLimited;
 
   @SuppressWarnings("checkstyle:parameterNumber") Route(
       final String path,
@@ -60,9 +81,14 @@ final class Route
       final boolean requiresUserNotLogged,
       final String[] allowedRoles,
       final String[] rejectedRoles,
-      final String handler)
+      final String handler,
+      final Cached cached,
+      final Async async,
+      final MaxConcurrent maxConcurrent,
+      final boolean endpointLimited)
   {
-    this(path, verb, uri, NO_REGEX, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler, NO_PARAMETERS);
+    this(path, verb, uri, NO_REGEX, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler, NO_PARAMETERS, cached,
+         async, maxConcurrent, endpointLimited);
   }
 
   @SuppressWarnings("checkstyle:parameterNumber") Route(
@@ -75,9 +101,14 @@ final class Route
       final String[] allowedRoles,
       final String[] rejectedRoles,
       final String handler,
-      final List<String> parameters)
+      final List<String> parameters,
+      final Cached cached,
+      final Async async,
+      final MaxConcurrent maxConcurrent,
+      final boolean endpointLimited)
   {
-    this(path, verb, pattern, regex, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler, parameters.toArray(OF_PARAMS));
+    this(path, verb, pattern, regex, requiresUserLogged, requiresUserNotLogged, allowedRoles, rejectedRoles, handler, parameters.toArray(OF_PARAMS),
+         cached, async, maxConcurrent, endpointLimited);
   }
 
   @SuppressWarnings("checkstyle:parameterNumber")
@@ -91,7 +122,11 @@ final class Route
       final String[] allowedRoles,
       final String[] rejectedRoles,
       final String handler,
-      final String[] parameters)
+      final String[] parameters,
+      final Cached cached,
+      final Async async,
+      final MaxConcurrent maxConcurrent,
+      final boolean endpointLimited)
   {
     this.path = path;
     this.verb = verb;
@@ -111,6 +146,11 @@ final class Route
     }
     this.parameters = parameters;
     this.handler = handler;
+    this.segments = PathSpec.findSegments(pattern);
+    this.cached = cached;
+    this.async = async;
+    this.maxConcurrent = maxConcurrent;
+    this.endpointLimited = endpointLimited;
   }
 
   @Override public int hashCode()
@@ -142,9 +182,15 @@ final class Route
     return this.allowedRoles.length > 0;
   }
 
-  String routeField()
+  /** @return the key used to share the {@code RouterServlet.Path} of this route with other routes matched the same way. */
+  String pathKey()
   {
-    return this.verb.name() + '_' + handler;
+    return isParameterized() ? regex : pattern;
+  }
+
+  boolean isRoutable()
+  {
+    return segments != null;
   }
 
   boolean isParameterized()
@@ -157,12 +203,14 @@ final class Route
     return parameters.length;
   }
 
-  MethodSpec.Builder makeMatcher(final MethodSpec.Builder httpVerbHandler)
+  MethodSpec.Builder makeMatcher(
+      final MethodSpec.Builder httpVerbHandler,
+      final String pathField)
   {
     if (isIndex()) {
       return httpVerbHandler.beginControlFlow("if (indexPath.matches(request))");
     } else {
-      return httpVerbHandler.beginControlFlow("if ($L.matches(request))", routeField());
+      return httpVerbHandler.beginControlFlow("if ($L.matches(request))", pathField);
     }
   }
 
@@ -173,7 +221,7 @@ final class Route
 
 
   @SuppressWarnings("checkstyle:magicNumber")
-  FieldSpec makeField()
+  FieldSpec makeField(final String name)
   {
     if (isIndex()) {
       return null;
@@ -183,9 +231,11 @@ final class Route
     final var servlet = RouterServlet.class.getSimpleName();
 
     final var pathClassName = ClassName.get(pkg, servlet, "Path");
-    final var property = FieldSpec.builder(pathClassName, routeField(), Modifier.PRIVATE, Modifier.FINAL);
+    final var property = FieldSpec.builder(pathClassName, name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
 
-    if (isParameterized()) {
+    if (isParameterized() && PathSpec.isMatchableBySegments(pattern)) {
+      property.initializer("variablePath($S, $S)", path, pattern);
+    } else if (isParameterized()) {
       final var extraArgs = ", $S".repeat(parametersCount() - 1);
       final var code = "path($S, $S, $T.compile($S), $S" + extraArgs + ')';
       final var args = new Object[BASIC_PARAMETERS_COUNT + parametersCount()];
@@ -207,6 +257,72 @@ final class Route
     return property.build();
   }
 
+  boolean isCached()
+  {
+    return cached != null;
+  }
+
+  /** @return the name of the field holding the {@code ResponseCache} of this route. */
+  String cacheField()
+  {
+    return constantName("_CACHE");
+  }
+
+  private String constantName(final String suffix)
+  {
+    return handler.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT) + suffix;
+  }
+
+  FieldSpec makeCacheField()
+  {
+    final var arguments = new ArrayList<CodeBlock>(2 + cached.varyBy().length);
+    arguments.add(CodeBlock.of("$L", cached.maximumSize()));
+    arguments.add(CodeBlock.of("$T.ofSeconds($L)", Duration.class, cached.ttl()));
+    for (final var parameter : cached.varyBy()) {
+      arguments.add(CodeBlock.of("$S", parameter));
+    }
+    return FieldSpec.builder(RESPONSE_CACHE_CLASS_NAME, cacheField(), Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T($L)", RESPONSE_CACHE_CLASS_NAME, CodeBlock.join(arguments, ", "))
+                    .build();
+  }
+
+  boolean isAsync()
+  {
+    return async != null;
+  }
+
+  /** @return the name of the field holding the {@code AsyncDispatch} of this route. */
+  String asyncField()
+  {
+    return constantName("_ASYNC");
+  }
+
+  FieldSpec makeAsyncField()
+  {
+    return FieldSpec.builder(ASYNC_DISPATCH_CLASS_NAME, asyncField(), Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T($T.ofSeconds($L), $L)", ASYNC_DISPATCH_CLASS_NAME, Duration.class, async.timeout(), async.maxPending())
+                    .build();
+  }
+
+  boolean isLimited()
+  {
+    return maxConcurrent != null;
+  }
+
+  /** @return the name of the field holding the {@code ConcurrencyLimit} of this route, shared with other routes when it limits its endpoint. */
+  String limitField()
+  {
+    return endpointLimited ? ENDPOINT_LIMIT_FIELD : constantName("_LIMIT");
+  }
+
+  FieldSpec makeLimitField()
+  {
+    return FieldSpec.builder(CONCURRENCY_LIMIT_CLASS_NAME, limitField(), Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T($L, $L, $T.ofMillis($L), $L)", CONCURRENCY_LIMIT_CLASS_NAME, maxConcurrent.value(), maxConcurrent.queue(),
+                                 Duration.class, maxConcurrent.queueTimeout(), maxConcurrent.adaptive())
+                    .build();
+  }
+
   boolean hasOneAllowedRole()
   {
     return allowedRoles.length == 1;
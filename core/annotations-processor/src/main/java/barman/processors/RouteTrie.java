@@ -0,0 +1,99 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.processors;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Segments trie of the routes of some HTTP verb, used to generate dispatchers which cost depends on the path depth and not on the number of
+ * routes.
+ * <p>
+ * Routes are first partitioned by their number of segments, so every leaf of the trie is at the same depth of its partition.
+ */
+final class RouteTrie
+{
+  final Map<Integer, Node> partitions;
+
+  private RouteTrie(final Map<Integer, Node> partitions)
+  {
+    this.partitions = partitions;
+  }
+
+  /**
+   * Builds the trie of the routes which can be dispatched by segments.
+   * <p>
+   * When many routes have the same segments shape, the first one declared wins (as it happens matching them sequentially).
+   *
+   * @param routes routes of some HTTP verb.
+   * @return the trie of the routable {@code routes}.
+   */
+  static RouteTrie of(final List<Route> routes)
+  {
+    final var partitions = new TreeMap<Integer, Node>();
+    for (final var route : routes) {
+      if (route.isRoutable()) {
+        var node = partitions.computeIfAbsent(route.segments.size(), depth -> new Node());
+        for (final var segment : route.segments) {
+          node = node.child(segment);
+        }
+        if (node.route == null) {
+          node.route = route;
+        }
+      }
+    }
+    return new RouteTrie(partitions);
+  }
+
+  boolean isEmpty()
+  {
+    return partitions.isEmpty();
+  }
+
+  static final class Node
+  {
+    final Map<String, Node> statics = new LinkedHashMap<>();
+    Node variable;
+    Route route;
+
+    private Node child(final String segment)
+    {
+      if (PathSpec.isVariableSegment(segment)) {
+        if (variable == null) {
+          variable = new Node();
+        }
+        return variable;
+      } else {
+        return statics.computeIfAbsent(segment, s -> new Node());
+      }
+    }
+
+    boolean isLeaf()
+    {
+      return route != null;
+    }
+  }
+}
@@ -25,6 +25,7 @@ package barman.processors;
 
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
@@ -39,8 +40,16 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 class RoutersCodeBuilder
 {
@@ -158,6 +167,10 @@ class RoutersCodeBuilder
       final boolean isDevelopmentEnvironment)
   {
     final var classname = declarations.routerClassName();
+    final var webServlet = AnnotationSpec.builder(WebServlet.class).addMember("value", "$S", declarations.path);
+    if (declarations.hasAsyncRoutes()) {
+      webServlet.addMember("asyncSupported", "true");
+    }
     final var router = TypeSpec.classBuilder(classname)
                                .superclass(declarations.superClass)
                                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
@@ -166,9 +179,7 @@ class RoutersCodeBuilder
                                                             .addMember("comments", "$S", declarations.paths)
                                                             .addMember("date", "$S", declarations.date)
                                                             .build())
-                               .addAnnotation(AnnotationSpec.builder(WebServlet.class)
-                                                            .addMember("value", "$S", declarations.path)
-                                                            .build());
+                               .addAnnotation(webServlet.build());
     if (declarations.noLoggerDefined) {
       router.addField(FieldSpec.builder(LOGGER_CLASS, "LOGGER", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
                                .initializer("$T.getLogger($S)", LOGGER_FACTORY_CLASS, declarations.superClass.toString())
@@ -180,37 +191,60 @@ class RoutersCodeBuilder
                                  .addStatement("return LOGGER")
                                  .build());
     }
-    addRouteFields(router, declarations);
-    addRouteHandlers(router, declarations, isDevelopmentEnvironment);
+    final var pathFields = addRouteFields(router, declarations);
+    addRouteHandlers(router, declarations, pathFields, isDevelopmentEnvironment);
     return JavaFile.builder(classname.packageName(), router.build()).skipJavaLangImports(true).build();
   }
 
-  void addRouteFields(
+  /**
+   * Declares the {@code RouterServlet.Path}s used to match the routes not dispatched by segments, the {@code ResponseCache}s of cached routes, the
+   * {@code AsyncDispatch}es of asynchronous routes and the {@code ConcurrencyLimit}s of limited routes (one for all the routes limited by their
+   * endpoint).
+   * <p>
+   * Paths are {@code static}, and routes matched the same way (even when they are declared for different HTTP verbs) share the same path, so each
+   * regex is compiled just once no matter how many instances of the servlet are created. Caches, dispatchers and limits are {@code static} too, so
+   * they are shared by all the instances of the servlet.
+   *
+   * @return the name of the field declared for each route path, by {@link Route#pathKey()}.
+   */
+  Map<String, String> addRouteFields(
       final TypeSpec.Builder router,
       final EndPointSpec declarations)
   {
+    final var pathFields = new HashMap<String, String>();
+    // a handler declared for many HTTP verbs has one route per verb, but they share the same fields
+    final var declaredFields = new HashSet<String>();
     for (final HttpVerb httpVerb : HttpVerb.values()) {
       final var routes = declarations.routesByVerb.get(httpVerb);
       if (no(routes)) {
         continue;
       }
 
-      String last = null;
+      final var sequential = sequentialRoutes(routes);
       for (final var route : routes) {
-        if (!route.pattern.equals(last)) {
-          final var routeField = route.makeField();
-          if (routeField != null) {
-            router.addField(routeField);
-            last = route.pattern;
-          }
+        if (sequential.contains(route) && !route.isIndex() && !pathFields.containsKey(route.pathKey())) {
+          final var pathField = "PATH_" + pathFields.size();
+          router.addField(route.makeField(pathField));
+          pathFields.put(route.pathKey(), pathField);
+        }
+        if (route.isCached()) {
+          router.addField(route.makeCacheField());
+        }
+        if (route.isAsync() && declaredFields.add(route.asyncField())) {
+          router.addField(route.makeAsyncField());
+        }
+        if (route.isLimited() && declaredFields.add(route.limitField())) {
+          router.addField(route.makeLimitField());
         }
       }
     }
+    return pathFields;
   }
 
   void addRouteHandlers(
       final TypeSpec.Builder router,
       final EndPointSpec declarations,
+      final Map<String, String> pathFields,
       final boolean isDevelopmentEnvironment)
   {
     for (final var httpVerb : HttpVerb.values()) {
@@ -221,7 +255,7 @@ class RoutersCodeBuilder
           overrideVerbHandlerOnDevelopmentEnvironment(httpVerb);
         }
       } else {
-        router.addMethod(overrideVerbHandler(httpVerb, routes, isDevelopmentEnvironment));
+        router.addMethod(overrideVerbHandler(httpVerb, routes, pathFields, isDevelopmentEnvironment));
       }
     }
   }
@@ -229,6 +263,7 @@ class RoutersCodeBuilder
   MethodSpec overrideVerbHandler(
       final HttpVerb httpVerb,
       final List<Route> routes,
+      final Map<String, String> pathFields,
       final boolean isDevelopmentEnvironment)
   {
     final var httpVerbHandler = MethodSpec.methodBuilder(httpVerb.handler)
@@ -255,10 +290,20 @@ class RoutersCodeBuilder
       addRejectedRolesValidation(httpVerbHandler, routes.get(0));
     }
 
+    final BiConsumer<MethodSpec.Builder, Route> handle =
+        (control, route) -> addHandle(control, route, userLoggedChecked, userNotLoggedChecked, allowedRolesChecked, rejectedRolesChecked);
+
+    final var sequential = sequentialRoutes(routes);
+    final var trie = RouteTrie.of(routes.stream().filter(route -> !sequential.contains(route)).collect(Collectors.toList()));
+    if (!trie.isEmpty()) {
+      addDispatcher(httpVerbHandler, trie, handle);
+    }
     for (final var route : routes) {
-      final var ifMatchesRoute = route.makeMatcher(httpVerbHandler);
-      addHandle(ifMatchesRoute, route, userLoggedChecked, userNotLoggedChecked, allowedRolesChecked, rejectedRolesChecked);
-      httpVerbHandler.endControlFlow();
+      if (sequential.contains(route)) {
+        final var ifMatchesRoute = route.makeMatcher(httpVerbHandler, pathFields.get(route.pathKey()));
+        handle.accept(ifMatchesRoute, route);
+        httpVerbHandler.endControlFlow();
+      }
     }
 
     if (isDevelopmentEnvironment) {
@@ -268,6 +313,100 @@ class RoutersCodeBuilder
     return httpVerbHandler.build();
   }
 
+  /**
+   * Finds the routes that must be matched sequentially, after the routes dispatched by segments and in declaration order.
+   * <p>
+   * Those are the routes which can't be dispatched by segments, and the routes which could match the same requests than some route matched
+   * sequentially declared before them: as routes dispatched by segments are tried first, dispatching them would shadow the routes declared
+   * before them.
+   *
+   * @param routes routes of some HTTP verb, in declaration order.
+   * @return the routes to match sequentially.
+   */
+  static Set<Route> sequentialRoutes(final List<Route> routes)
+  {
+    final var sequential = new LinkedHashSet<Route>();
+    for (final var route : routes) {
+      if (!route.isRoutable() || sequential.stream().anyMatch(previous -> PathSpec.mayOverlap(previous.pattern, route.segments))) {
+        sequential.add(route);
+      }
+    }
+    return sequential;
+  }
+
+  /**
+   * Generates a {@code switch} on the number of segments of the request path, and then nested {@code switch}es on each segment.
+   * <p>
+   * Static segments are tried before path variables, when some static segment doesn't lead to a route its {@code case} breaks and the path
+   * variable alternative is tried.
+   */
+  void addDispatcher(
+      final MethodSpec.Builder control,
+      final RouteTrie trie,
+      final BiConsumer<MethodSpec.Builder, Route> handle)
+  {
+    control.addStatement("final String[] segments = segmentsOf(request)");
+    control.beginControlFlow("switch (segments.length)");
+    for (final var partition : trie.partitions.entrySet()) {
+      control.addCode("case $L:\n", partition.getKey());
+      if (addDispatcher(control, partition.getValue(), 0, handle)) {
+        control.addStatement("break");
+      }
+    }
+    control.endControlFlow();
+  }
+
+  /** @return {@literal true} if the code generated to dispatch {@code node} can complete normally. */
+  private boolean addDispatcher(
+      final MethodSpec.Builder control,
+      final RouteTrie.Node node,
+      final int depth,
+      final BiConsumer<MethodSpec.Builder, Route> handle)
+  {
+    if (node.isLeaf()) {
+      addPathVariables(control, node.route);
+      handle.accept(control, node.route);
+      return false;
+    }
+    if (!node.statics.isEmpty()) {
+      control.beginControlFlow("switch (segments[$L])", depth);
+      for (final var child : node.statics.entrySet()) {
+        control.addCode("case $S:\n", child.getKey());
+        if (addDispatcher(control, child.getValue(), depth + 1, handle)) {
+          control.addStatement("break");
+        }
+      }
+      control.endControlFlow();
+    }
+    if (node.variable != null) {
+      control.beginControlFlow("if (!segments[$L].isEmpty())", depth);
+      addDispatcher(control, node.variable, depth + 1, handle);
+      control.endControlFlow();
+    }
+    return true;
+  }
+
+  private void addPathVariables(
+      final MethodSpec.Builder control,
+      final Route route)
+  {
+    final var values = new ArrayList<CodeBlock>(route.parameters.length);
+    for (int i = 0; i < route.segments.size(); i++) {
+      if (PathSpec.isVariableSegment(route.segments.get(i))) {
+        values.add(CodeBlock.of("segments[$L]", i));
+      }
+    }
+    if (values.size() == 1) {
+      control.addStatement("bind(request, $S, $L)", route.parameters[0], values.get(0));
+    } else if (!values.isEmpty()) {
+      final var names = new ArrayList<CodeBlock>(route.parameters.length);
+      for (final var name : route.parameters) {
+        names.add(CodeBlock.of("$S", name));
+      }
+      control.addStatement("bind(request, new String[] {$L}, $L)", CodeBlock.join(names, ", "), CodeBlock.join(values, ", "));
+    }
+  }
+
   void addHandle(
       final MethodSpec.Builder control,
       final Route route,
@@ -288,10 +427,61 @@ class RoutersCodeBuilder
     if (!rejectedRolesChecked) {
       addRejectedRolesValidation(control, route);
     }
-    control.addStatement("$L(request, response)", route.handler);
+    control.addStatement("$L", invocationOf(route));
     control.addStatement("return");
   }
 
+  /**
+   * Generates the invocation of the handler of a route, wrapped by its {@code AsyncDispatch}, {@code ResponseCache} and {@code ConcurrencyLimit}
+   * (in that order) when it has them.
+   * <p>
+   * The limit is the innermost wrapper so cached responses don't take permits, and asynchronous routes are limited at their executor threads.
+   */
+  static CodeBlock invocationOf(final Route route)
+  {
+    final var wrappers = new ArrayList<Wrapper>();
+    if (route.isAsync()) {
+      wrappers.add(new Wrapper(route.asyncField(), "dispatch", "async"));
+    }
+    if (route.isCached()) {
+      wrappers.add(new Wrapper(route.cacheField(), "serve", "cached"));
+    }
+    if (route.isLimited()) {
+      wrappers.add(new Wrapper(route.limitField(), "run", "limited"));
+    }
+    if (wrappers.isEmpty()) {
+      return CodeBlock.of("$L(request, response)", route.handler);
+    }
+    var action = CodeBlock.of("this::$L", route.handler);
+    for (int i = wrappers.size() - 1; i >= 0; i--) {
+      final var wrapper = wrappers.get(i);
+      final var request = i == 0 ? "request" : wrappers.get(i - 1).prefix + "Request";
+      final var response = i == 0 ? "response" : wrappers.get(i - 1).prefix + "Response";
+      final var invocation = CodeBlock.of("$L.$L($L, $L, $L)", wrapper.field, wrapper.method, request, response, action);
+      action = i == 0 ? invocation : CodeBlock.of("($L, $L) -> $L", request, response, invocation);
+    }
+    return action;
+  }
+
+  /** A field wrapping the invocation of a handler, as {@code ResponseCache.serve}. */
+  private static final class Wrapper
+  {
+    final String field;
+    final String method;
+    /** prefix of the names of the lambda parameters used to invoke the wrapped action. */
+    final String prefix;
+
+    Wrapper(
+        final String field,
+        final String method,
+        final String prefix)
+    {
+      this.field = field;
+      this.method = method;
+      this.prefix = prefix;
+    }
+  }
+
   private void addRejectedRolesValidation(
       final MethodSpec.Builder control,
       final Route route)
@@ -23,6 +23,7 @@ THE SOFTWARE.
 */
 package barman.processors;
 
+import barman.web.Cached;
 import barman.web.Endpoint;
 
 import javax.annotation.processing.Messager;
@@ -87,6 +88,9 @@ class RoutesReader
     final var baseUri = makeEndpointPath(getEndpointPathKind(endpoint), endpoint);
     routes.path(baseUri + "/*");
     for (final var method : methodsIn(endpoint.getEnclosedElements())) {
+      if (method.getAnnotation(Cached.class) != null && HttpVerb.GET.getPath(method) == null) {
+        error("only @GET actions can be marked as @Cached", method);
+      }
       for (final var httpVerb : HttpVerb.values()) {
         buildRoute(endpoint, baseUri, httpVerb, method);
       }
@@ -0,0 +1,49 @@
+/*
+ The MIT License
+
+ Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+package barman.processors;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.jupiter.api.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+class JsonBindersProcessingTest
+{
+  final Compiler compiler = javac().withProcessors(new JsonBindersCompiler(RoutesProcessingTest.GENERATION_DATE, new JsonBindersCodeBuilder()));
+
+  @Test void should_be_able_to_generate_JsonBinder_for_Json_classes()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forResource("json/Player.java"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.Player__JsonBinder")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/json/Player__JsonBinder.java"));
+    assertThat(compilation)
+        .generatedSourceFile("test.Player_Team__JsonBinder")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/json/Player_Team__JsonBinder.java"));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ The MIT License
+
+ Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+package barman.processors;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.jupiter.api.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+class QueriesProcessingTest
+{
+  final Compiler compiler = javac().withProcessors(new QueriesCompiler(RoutesProcessingTest.GENERATION_DATE, new QueriesCodeBuilder()));
+
+  @Test void should_be_able_to_generate_implementation_of_Query_interfaces()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forResource("queries/PlayersQueries.java"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.PlayersQueries__barmanImpl")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/queries/PlayersQueries__barmanImpl.java"));
+  }
+
+  @Test void should_reject_Query_methods_with_less_parameters_than_the_query()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forSourceLines(
+        "test.WrongQueries",
+        "package test;",
+        "interface WrongQueries {",
+        "  @barman.sql.Query(\"SELECT name FROM Players WHERE id = ?\")",
+        "  String playerName(java.sql.Connection connection) throws java.sql.SQLException;",
+        "}"));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("@barman.sql.Query defines 1 parameters, but the method receives 0");
+  }
+
+  @Test void should_not_count_question_marks_in_quoted_text_comments_nor_escapes_as_parameters()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forSourceLines(
+        "test.NotesQueries",
+        "package test;",
+        "interface NotesQueries {",
+        "  @barman.sql.Query(\"SELECT count(*) FROM \\\"Notes?\\\" -- which ones?\\n\"",
+        "                    + \"WHERE text <> 'why?' /* and ? */ AND tags ??| array['a'] AND tags ??& array['b'] AND tags ?? 'c' AND id = ?\")",
+        "  int countNotes(java.sql.Connection connection, long id) throws java.sql.SQLException;",
+        "}"));
+    assertThat(compilation).succeeded();
+  }
+
+  @Test void should_count_question_marks_followed_by_operators_as_parameters()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forSourceLines(
+        "test.PlayersQueries",
+        "package test;",
+        "interface PlayersQueries {",
+        "  @barman.sql.Query(\"SELECT count(*) FROM Players WHERE name LIKE ?||'%'\")",
+        "  int countPlayers(java.sql.Connection connection, String prefix) throws java.sql.SQLException;",
+        "}"));
+    assertThat(compilation).succeeded();
+  }
+
+  @Test void should_reject_Query_methods_returning_inner_classes()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forSourceLines(
+        "test.Outer",
+        "package test;",
+        "class Outer {",
+        "  class Player { Player(long id, String name) { } }",
+        "  interface WrongQueries {",
+        "    @barman.sql.Query(\"SELECT id, name FROM Players\")",
+        "    java.util.List<Player> players(java.sql.Connection connection) throws java.sql.SQLException;",
+        "  }",
+        "}"));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("rows of @barman.sql.Query methods can not be inner classes, test.Outer.Player must be static");
+  }
+}
@@ -65,4 +65,62 @@ class RoutesProcessingTest
         .generatedSourceFile("test.Tasks__barmanImpl")
         .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/endpoints/Roles__barmanImpl.java"));
   }
+
+  @Test void should_be_able_to_generate_barmanImpl_for_nested_and_constrained_routes()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forResource("endpoints/Players.java"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.Players__barmanImpl")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/endpoints/Players__barmanImpl.java"));
+  }
+
+  @Test void should_match_routes_shadowed_by_constrained_routes_in_declaration_order()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forResource("endpoints/Articles.java"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.Articles__barmanImpl")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/endpoints/Articles__barmanImpl.java"));
+  }
+
+  @Test void should_be_able_to_generate_barmanImpl_for_cached_routes()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forResource("endpoints/Teams.java"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.Teams__barmanImpl")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/endpoints/Teams__barmanImpl.java"));
+  }
+
+  @Test void should_reject_non_GET_actions_marked_as_Cached()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forSourceLines(
+        "test.WrongTeams",
+        "package test;",
+        "@barman.web.Endpoint class WrongTeams extends barman.processors.TestEndPoint {",
+        "  @barman.web.PUT(\"/{id: [0-9]+}\") @barman.web.Cached void update(",
+        "      javax.servlet.http.HttpServletRequest request, javax.servlet.http.HttpServletResponse response) { }",
+        "}"));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("only @GET actions can be marked as @Cached");
+  }
+
+  @Test void should_be_able_to_generate_barmanImpl_for_async_routes()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forResource("endpoints/Reports.java"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.Reports__barmanImpl")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/endpoints/Reports__barmanImpl.java"));
+  }
+
+  @Test void should_be_able_to_generate_barmanImpl_for_limited_routes()
+  {
+    final Compilation compilation = compiler.compile(JavaFileObjects.forResource("endpoints/Searches.java"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.Searches__barmanImpl")
+        .hasSourceEquivalentTo(JavaFileObjects.forResource("generated/endpoints/Searches__barmanImpl.java"));
+  }
 }
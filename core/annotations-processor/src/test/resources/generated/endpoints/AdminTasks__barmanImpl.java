@@ -23,9 +23,7 @@ THE SOFTWARE.
 */
 package test;
 
-import barman.web.RouterServlet;
 import java.io.IOException;
-import java.util.regex.Pattern;
 import javax.annotation.processing.Generated;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -39,28 +37,26 @@ import javax.servlet.http.HttpServletResponse;
 )
 @WebServlet("/admin/tasks/*")
 public final class Tasks__barmanImpl extends Tasks {
-  private final RouterServlet.Path GET_get = path("/admin/tasks/{id}", "/{id}", Pattern.compile("/(?<id>[^/]+)"), "id");
-
-  private final RouterServlet.Path GET_author = path("/admin/tasks/author", "/author");
-
-  private final RouterServlet.Path PUT_update = path("/admin/tasks/{id}", "/{id}", Pattern.compile("/(?<id>[^/]+)"), "id");
-
-  private final RouterServlet.Path DELETE_delete = path("/admin/tasks/{id}", "/{id}", Pattern.compile("/(?<id>[^/]+)"), "id");
-
   @Override
   public void doGet(final HttpServletRequest request, final HttpServletResponse response) throws
       ServletException, IOException {
-    if (indexPath.matches(request)) {
-      index(request, response);
-      return;
-    }
-    if (GET_get.matches(request)) {
-      get(request, response);
-      return;
-    }
-    if (GET_author.matches(request)) {
-      author(request, response);
-      return;
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 0:
+        index(request, response);
+        return;
+      case 1:
+        switch (segments[0]) {
+          case "author":
+            author(request, response);
+            return;
+        }
+        if (!segments[0].isEmpty()) {
+          bind(request, "id", segments[0]);
+          get(request, response);
+          return;
+        }
+        break;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledGet(request, response);
@@ -69,9 +65,11 @@ public final class Tasks__barmanImpl extends Tasks {
   @Override
   public void doPost(final HttpServletRequest request, final HttpServletResponse response) throws
       ServletException, IOException {
-    if (indexPath.matches(request)) {
-      save(request, response);
-      return;
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 0:
+        save(request, response);
+        return;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledPost(request, response);
@@ -80,9 +78,15 @@ public final class Tasks__barmanImpl extends Tasks {
   @Override
   public void doPut(final HttpServletRequest request, final HttpServletResponse response) throws
       ServletException, IOException {
-    if (PUT_update.matches(request)) {
-      update(request, response);
-      return;
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 1:
+        if (!segments[0].isEmpty()) {
+          bind(request, "id", segments[0]);
+          update(request, response);
+          return;
+        }
+        break;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledPut(request, response);
@@ -91,9 +95,15 @@ public final class Tasks__barmanImpl extends Tasks {
   @Override
   public void doDelete(final HttpServletRequest request, final HttpServletResponse response) throws
       ServletException, IOException {
-    if (DELETE_delete.matches(request)) {
-      delete(request, response);
-      return;
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 1:
+        if (!segments[0].isEmpty()) {
+          bind(request, "id", segments[0]);
+          delete(request, response);
+          return;
+        }
+        break;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledDelete(request, response);
@@ -0,0 +1,80 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package test;
+
+import barman.web.RouterServlet;
+import java.io.IOException;
+import java.util.regex.Pattern;
+import javax.annotation.processing.Generated;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Generated(
+    value = "barman/EndpointsCompiler",
+    comments = "",
+    date = "2017-02-23"
+)
+@WebServlet("/api/articles/*")
+public final class Articles__barmanImpl extends Articles {
+  private static final RouterServlet.Path PATH_0 = path("/api/articles/{id: [0-9]+}", "/{id: [0-9]+}", Pattern.compile("/(?<id>[0-9]+)"), "id");
+
+  private static final RouterServlet.Path PATH_1 = variablePath("/api/articles/{slug}", "/{slug}");
+
+  @Override
+  public void doGet(final HttpServletRequest request, final HttpServletResponse response) throws
+      ServletException, IOException {
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 1:
+        switch (segments[0]) {
+          case "latest":
+            latest(request, response);
+            return;
+        }
+        break;
+      case 2:
+        if (!segments[0].isEmpty()) {
+          switch (segments[1]) {
+            case "comments":
+              bind(request, "slug", segments[0]);
+              comments(request, response);
+              return;
+          }
+        }
+        break;
+    }
+    if (PATH_0.matches(request)) {
+      get(request, response);
+      return;
+    }
+    if (PATH_1.matches(request)) {
+      bySlug(request, response);
+      return;
+    }
+    response.setHeader("Access-Control-Allow-Origin", "*");
+    unhandledGet(request, response);
+  }
+}
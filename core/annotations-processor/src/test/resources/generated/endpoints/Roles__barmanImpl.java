@@ -23,9 +23,7 @@ THE SOFTWARE.
 */
 package test;
 
-import barman.web.RouterServlet;
 import java.io.IOException;
-import java.util.regex.Pattern;
 import javax.annotation.processing.Generated;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -39,18 +37,6 @@ import javax.servlet.http.HttpServletResponse;
 )
 @WebServlet("/api/tasks/*")
 public final class Tasks__barmanImpl extends Tasks {
-  private final RouterServlet.Path GET_get = path("/api/tasks/{id}", "/{id}", Pattern.compile("/(?<id>[^/]+)"), "id");
-
-  private final RouterServlet.Path GET_author = path("/api/tasks/author", "/author");
-
-  private final RouterServlet.Path POST_login = path("/api/tasks/login", "/login");
-
-  private final RouterServlet.Path POST_logout = path("/api/tasks/logout", "/logout");
-
-  private final RouterServlet.Path PUT_update = path("/api/tasks/{id}", "/{id}", Pattern.compile("/(?<id>[^/]+)"), "id");
-
-  private final RouterServlet.Path DELETE_delete = path("/api/tasks/{id}", "/{id}", Pattern.compile("/(?<id>[^/]+)"), "id");
-
   @Override
   public void doGet(final HttpServletRequest request, final HttpServletResponse response) throws
       ServletException, IOException {
@@ -66,17 +52,23 @@ public final class Tasks__barmanImpl extends Tasks {
       notAuthorized(response);
       return;
     }
-    if (indexPath.matches(request)) {
-      index(request, response);
-      return;
-    }
-    if (GET_get.matches(request)) {
-      get(request, response);
-      return;
-    }
-    if (GET_author.matches(request)) {
-      author(request, response);
-      return;
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 0:
+        index(request, response);
+        return;
+      case 1:
+        switch (segments[0]) {
+          case "author":
+            author(request, response);
+            return;
+        }
+        if (!segments[0].isEmpty()) {
+          bind(request, "id", segments[0]);
+          get(request, response);
+          return;
+        }
+        break;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledGet(request, response);
@@ -85,37 +77,41 @@ public final class Tasks__barmanImpl extends Tasks {
   @Override
   public void doPost(final HttpServletRequest request, final HttpServletResponse response) throws
       ServletException, IOException {
-    if (indexPath.matches(request)) {
-      if (!userLogged()) {
-        notAuthorized(response);
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 0:
+        if (!userLogged()) {
+          notAuthorized(response);
+          return;
+        }
+        switch (getCurrentUser().role()) {
+        case "user":
+        case "configurator":
+          break;
+        default:
+          notAuthorized(response);
+          return;
+        }
+        save(request, response);
         return;
-      }
-      switch (getCurrentUser().role()) {
-      case "user":
-      case "configurator":
+      case 1:
+        switch (segments[0]) {
+          case "login":
+            if (userLogged()) {
+              notAuthorized(response);
+              return;
+            }
+            login(request, response);
+            return;
+          case "logout":
+            if (!userLogged()) {
+              notAuthorized(response);
+              return;
+            }
+            logout(request, response);
+            return;
+        }
         break;
-      default:
-        notAuthorized(response);
-        return;
-      }
-      save(request, response);
-      return;
-    }
-    if (POST_login.matches(request)) {
-      if (userLogged()) {
-        notAuthorized(response);
-        return;
-      }
-      login(request, response);
-      return;
-    }
-    if (POST_logout.matches(request)) {
-      if (!userLogged()) {
-        notAuthorized(response);
-        return;
-      }
-      logout(request, response);
-      return;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledPost(request, response);
@@ -136,9 +132,15 @@ public final class Tasks__barmanImpl extends Tasks {
       notAuthorized(response);
       return;
     }
-    if (PUT_update.matches(request)) {
-      update(request, response);
-      return;
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 1:
+        if (!segments[0].isEmpty()) {
+          bind(request, "id", segments[0]);
+          update(request, response);
+          return;
+        }
+        break;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledPut(request, response);
@@ -159,9 +161,15 @@ public final class Tasks__barmanImpl extends Tasks {
       notAuthorized(response);
       return;
     }
-    if (DELETE_delete.matches(request)) {
-      delete(request, response);
-      return;
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 1:
+        if (!segments[0].isEmpty()) {
+          bind(request, "id", segments[0]);
+          delete(request, response);
+          return;
+        }
+        break;
     }
     response.setHeader("Access-Control-Allow-Origin", "*");
     unhandledDelete(request, response);
@@ -0,0 +1,120 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package test;
+
+import barman.web.AsyncDispatch;
+import barman.web.ConcurrencyLimit;
+import barman.web.ResponseCache;
+import java.io.IOException;
+import java.time.Duration;
+import javax.annotation.processing.Generated;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Generated(
+    value = "barman/EndpointsCompiler",
+    comments = "",
+    date = "2017-02-23"
+)
+@WebServlet(
+    value = "/api/searches/*",
+    asyncSupported = true
+)
+public final class Searches__barmanImpl extends Searches {
+  private static final ConcurrencyLimit ENDPOINT_LIMIT = new ConcurrencyLimit(64, 0, Duration.ofMillis(100), true);
+
+  private static final ResponseCache FIND_CACHE = new ResponseCache(1000, Duration.ofSeconds(60));
+
+  private static final ConcurrencyLimit FIND_LIMIT = new ConcurrencyLimit(8, 32, Duration.ofMillis(250), false);
+
+  private static final ConcurrencyLimit SUGGEST_LIMIT = new ConcurrencyLimit(4, 0, Duration.ofMillis(100), false);
+
+  private static final AsyncDispatch REINDEX_ASYNC = new AsyncDispatch(Duration.ofSeconds(30), 256);
+
+  private static final ConcurrencyLimit REINDEX_LIMIT = new ConcurrencyLimit(1, 0, Duration.ofMillis(100), false);
+
+  @Override
+  public void doGet(final HttpServletRequest request, final HttpServletResponse response) throws
+      ServletException, IOException {
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 0:
+        ENDPOINT_LIMIT.run(request, response, this::index);
+        return;
+      case 1:
+        switch (segments[0]) {
+          case "suggest":
+            SUGGEST_LIMIT.run(request, response, this::suggest);
+            return;
+        }
+        if (!segments[0].isEmpty()) {
+          bind(request, "term", segments[0]);
+          FIND_CACHE.serve(request, response, (cachedRequest, cachedResponse) -> FIND_LIMIT.run(cachedRequest, cachedResponse, this::find));
+          return;
+        }
+        break;
+    }
+    response.setHeader("Access-Control-Allow-Origin", "*");
+    unhandledGet(request, response);
+  }
+
+  @Override
+  public void doPost(final HttpServletRequest request, final HttpServletResponse response) throws
+      ServletException, IOException {
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 1:
+        switch (segments[0]) {
+          case "suggest":
+            SUGGEST_LIMIT.run(request, response, this::suggest);
+            return;
+          case "reindex":
+            REINDEX_ASYNC.dispatch(request, response, (asyncRequest, asyncResponse) -> REINDEX_LIMIT.run(asyncRequest, asyncResponse, this::reindex));
+            return;
+        }
+        break;
+    }
+    response.setHeader("Access-Control-Allow-Origin", "*");
+    unhandledPost(request, response);
+  }
+
+  @Override
+  public void doPut(final HttpServletRequest request, final HttpServletResponse response) throws
+      ServletException, IOException {
+    final String[] segments = segmentsOf(request);
+    switch (segments.length) {
+      case 1:
+        if (!segments[0].isEmpty()) {
+          bind(request, "term", segments[0]);
+          ENDPOINT_LIMIT.run(request, response, this::update);
+          return;
+        }
+        break;
+    }
+    response.setHeader("Access-Control-Allow-Origin", "*");
+    unhandledPut(request, response);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package test;
+
+import barman.web.JsonBinder;
+import barman.web.JsonReader;
+import barman.web.JsonWriter;
+import java.io.IOException;
+import javax.annotation.processing.Generated;
+
+@Generated(
+    value = "barman/JsonBindersCompiler",
+    date = "2017-02-23"
+)
+public final class Player_Team__JsonBinder implements JsonBinder<Player.Team> {
+  public static final Player_Team__JsonBinder INSTANCE = new Player_Team__JsonBinder();
+
+  private Player_Team__JsonBinder() {
+  }
+
+  @Override
+  public Player.Team read(final JsonReader json) throws IOException {
+    if (json.nextIsNull()) {
+      return null;
+    }
+    final Player.Team value = new Player.Team();
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case "name":
+          value.name = json.nextIsNull() ? null : json.nextString();
+          break;
+        case "founded":
+          value.founded = json.nextIsNull() ? null : json.nextLong();
+          break;
+        default:
+          json.skipValue();
+      }
+    }
+    json.endObject();
+    return value;
+  }
+
+  @Override
+  public void write(final Player.Team value, final JsonWriter json) throws IOException {
+    if (value == null) {
+      json.nullValue();
+      return;
+    }
+    json.beginObject();
+    json.name("name").value(value.name);
+    json.name("founded").value(value.founded);
+    json.endObject();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package test;
+
+import barman.web.JsonBinder;
+import barman.web.JsonReader;
+import barman.web.JsonWriter;
+import java.io.IOException;
+import javax.annotation.processing.Generated;
+
+@Generated(
+    value = "barman/JsonBindersCompiler",
+    date = "2017-02-23"
+)
+public final class Player__JsonBinder implements JsonBinder<Player> {
+  public static final Player__JsonBinder INSTANCE = new Player__JsonBinder();
+
+  private Player__JsonBinder() {
+  }
+
+  @Override
+  public Player read(final JsonReader json) throws IOException {
+    if (json.nextIsNull()) {
+      return null;
+    }
+    final Player value = new Player();
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case "id":
+          value.id = json.nextLong();
+          break;
+        case "name":
+          value.name = json.nextIsNull() ? null : json.nextString();
+          break;
+        case "number":
+          value.number = json.nextIsNull() ? null : json.nextInt();
+          break;
+        case "rating":
+          value.rating = json.nextDouble();
+          break;
+        case "active":
+          value.active = json.nextBoolean();
+          break;
+        case "team":
+          value.team = Player_Team__JsonBinder.INSTANCE.read(json);
+          break;
+        case "nicknames":
+          value.nicknames = json.nextIsNull() ? null : json.readList(in -> in.nextIsNull() ? null : in.nextString());
+          break;
+        case "formerTeams":
+          value.formerTeams = json.nextIsNull() ? null : json.readList(Player_Team__JsonBinder.INSTANCE);
+          break;
+        default:
+          json.skipValue();
+      }
+    }
+    json.endObject();
+    return value;
+  }
+
+  @Override
+  public void write(final Player value, final JsonWriter json) throws IOException {
+    if (value == null) {
+      json.nullValue();
+      return;
+    }
+    json.beginObject();
+    json.name("id").value(value.id);
+    json.name("name").value(value.name);
+    json.name("number").value(value.number);
+    json.name("rating").value(value.rating);
+    json.name("active").value(value.active);
+    Player_Team__JsonBinder.INSTANCE.write(value.team, json.name("team"));
+    json.name("nicknames").writeList(value.nicknames, (element, out) -> out.value(element));
+    json.name("formerTeams").writeList(value.formerTeams, Player_Team__JsonBinder.INSTANCE);
+    json.endObject();
+  }
+}
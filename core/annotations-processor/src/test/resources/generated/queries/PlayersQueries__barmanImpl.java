@@ -0,0 +1,197 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package test;
+
+import barman.sql.Columns;
+import barman.sql.LongList;
+import barman.sql.RowMapper;
+import barman.sql.SelectInt;
+import barman.sql.SelectList;
+import barman.sql.SelectLongList;
+import barman.sql.SelectObject;
+import barman.sql.SelectStream;
+import barman.sql.SqlStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.annotation.processing.Generated;
+
+@Generated(
+    value = "barman/QueriesCompiler",
+    date = "2017-02-23"
+)
+public final class PlayersQueries__barmanImpl implements PlayersQueries {
+  private static final RowMapper<String> STRING = rs -> rs.getString(1);
+
+  private static final RowMapper<PlayersQueries.Player> PLAYER = rs -> new PlayersQueries.Player(rs.getLong(1), rs.getString(2), Columns.nullableInt(rs, 3));
+
+  @Override
+  public int countPlayers(final Connection connection) throws SQLException {
+    return new CountPlayers().query(connection);
+  }
+
+  @Override
+  public String playerName(final Connection connection, final long id) throws SQLException {
+    return new PlayerName(id).query(connection, STRING);
+  }
+
+  @Override
+  public PlayersQueries.Player byNumber(final Connection connection, final Integer number) throws SQLException {
+    return new ByNumber(number).query(connection, PLAYER);
+  }
+
+  @Override
+  public List<PlayersQueries.Player> offensiveInners(final Connection connection, final int playmaking, final int passing) throws SQLException {
+    return new OffensiveInners(playmaking, passing).query(connection, PLAYER);
+  }
+
+  @Override
+  public LongList playerIds(final Connection connection, final String team) throws SQLException {
+    return new PlayerIds(team).query(connection);
+  }
+
+  @Override
+  public Stream<PlayersQueries.Player> allPlayers(final Connection connection) throws SQLException {
+    return new AllPlayers().query(connection, PLAYER);
+  }
+
+  private static final class CountPlayers extends SelectInt {
+    CountPlayers() {
+      super("SELECT count(*) FROM Players", SqlStatement.Configuration.none());
+    }
+  }
+
+  private static final class PlayerName extends SelectObject {
+    private final long id;
+
+    PlayerName(final long id) {
+      super("SELECT name FROM Players WHERE id = ?", SqlStatement.Configuration.none());
+      this.id = id;
+    }
+
+    @Override
+    protected void setParametersTo(final PreparedStatement ps) throws SQLException {
+      ps.setLong(1, this.id);
+    }
+
+    @Override
+    protected boolean hasParameters() {
+      return true;
+    }
+
+    @Override
+    protected void appendParametersDescriptionTo(final StringBuilder msg) {
+      msg.append("id: ").append(this.id);
+    }
+  }
+
+  private static final class ByNumber extends SelectObject {
+    private final Integer number;
+
+    ByNumber(final Integer number) {
+      super("SELECT id, name, number FROM Players WHERE number = ?", SqlStatement.Configuration.none());
+      this.number = number;
+    }
+
+    @Override
+    protected void setParametersTo(final PreparedStatement ps) throws SQLException {
+      if (this.number == null) {
+        ps.setNull(1, Types.INTEGER);
+      } else {
+        ps.setInt(1, this.number);
+      }
+    }
+
+    @Override
+    protected boolean hasParameters() {
+      return true;
+    }
+
+    @Override
+    protected void appendParametersDescriptionTo(final StringBuilder msg) {
+      msg.append("number: ").append(this.number);
+    }
+  }
+
+  private static final class OffensiveInners extends SelectList {
+    private final int playmaking;
+
+    private final int passing;
+
+    OffensiveInners(final int playmaking, final int passing) {
+      super("SELECT id, name, number FROM Players WHERE playmaking >= ? and passing >= ?", SqlStatement.Configuration.none());
+      this.playmaking = playmaking;
+      this.passing = passing;
+    }
+
+    @Override
+    protected void setParametersTo(final PreparedStatement ps) throws SQLException {
+      ps.setInt(1, this.playmaking);
+      ps.setInt(2, this.passing);
+    }
+
+    @Override
+    protected boolean hasParameters() {
+      return true;
+    }
+
+    @Override
+    protected void appendParametersDescriptionTo(final StringBuilder msg) {
+      msg.append("playmaking: ").append(this.playmaking).append(", passing: ").append(this.passing);
+    }
+  }
+
+  private static final class PlayerIds extends SelectLongList {
+    private final String team;
+
+    PlayerIds(final String team) {
+      super("SELECT id FROM Players WHERE team = ?", SqlStatement.Configuration.none());
+      this.team = team;
+    }
+
+    @Override
+    protected void setParametersTo(final PreparedStatement ps) throws SQLException {
+      ps.setString(1, this.team);
+    }
+
+    @Override
+    protected boolean hasParameters() {
+      return true;
+    }
+
+    @Override
+    protected void appendParametersDescriptionTo(final StringBuilder msg) {
+      msg.append("team: ").append(this.team);
+    }
+  }
+
+  private static final class AllPlayers extends SelectStream {
+    AllPlayers() {
+      super("SELECT id, name, number FROM Players", SqlStatement.Configuration.none());
+    }
+  }
+}
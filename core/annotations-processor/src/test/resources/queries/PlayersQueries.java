@@ -0,0 +1,75 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package test;
+
+import barman.sql.LongList;
+import barman.sql.Query;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+interface PlayersQueries
+{
+  @Query("SELECT count(*) FROM Players")
+  int countPlayers(Connection connection) throws SQLException;
+
+  @Query("SELECT name FROM Players WHERE id = ?")
+  String playerName(Connection connection, long id) throws SQLException;
+
+  @Query("SELECT id, name, number FROM Players WHERE number = ?")
+  Player byNumber(Connection connection, Integer number) throws SQLException;
+
+  @Query("SELECT id, name, number FROM Players WHERE playmaking >= ? and passing >= ?")
+  List<Player> offensiveInners(Connection connection, int playmaking, int passing) throws SQLException;
+
+  @Query("SELECT id FROM Players WHERE team = ?")
+  LongList playerIds(Connection connection, String team) throws SQLException;
+
+  @Query("SELECT id, name, number FROM Players")
+  Stream<Player> allPlayers(Connection connection) throws SQLException;
+
+  default int countPlayersTwice(final Connection connection) throws SQLException
+  {
+    return 2 * countPlayers(connection);
+  }
+
+  final class Player
+  {
+    final long id;
+    final String name;
+    final Integer number;
+
+    Player(
+        final long id,
+        final String name,
+        final Integer number)
+    {
+      this.id = id;
+      this.name = name;
+      this.number = number;
+    }
+  }
+}
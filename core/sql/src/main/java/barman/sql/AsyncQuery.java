@@ -0,0 +1,220 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A query running on an {@link Executor}, with its own connection.
+ * <p>
+ * While it runs, the statements prepared by its thread are registered, so completing its future before the query ends (cancelling it, or by a
+ * timeout) cancels the statement being executed.
+ *
+ * @param <T> type of the result of the query.
+ */
+final class AsyncQuery<T>
+    implements Runnable
+{
+  /** SQL state of cancelled statements. */
+  private static final String QUERY_CANCELLED = "57014";
+
+  private static final ThreadLocal<AsyncQuery<?>> RUNNING = new ThreadLocal<>();
+
+  /** Executor to run queries, if one was set. */
+  private static volatile Executor executor;
+
+  private final ConnectionSupplier connections;
+  private final Body<T> body;
+  private final CompletableFuture<T> result = new CompletableFuture<>();
+
+  /** Statement being executed, guarded by {@code this}. */
+  private Statement statement;
+  /** Whether the query was cancelled, guarded by {@code this}. */
+  private boolean cancelled;
+
+  private AsyncQuery(
+      final ConnectionSupplier connections,
+      final Body<T> body)
+  {
+    this.connections = connections;
+    this.body = body;
+  }
+
+  static void runOn(final Executor value)
+  {
+    executor = value;
+  }
+
+  /**
+   * Submits a query to be run by the executor.
+   *
+   * @param statement   statement which will run the query.
+   * @param connections where to obtain the connection to use.
+   * @param body        the query to run.
+   * @param <T>         type of the result of the query.
+   * @return a future completed by the query; it times out after the query timeout of {@code statement}, if it has one.
+   */
+  static <T> CompletableFuture<T> submit(
+      final SqlStatement statement,
+      final ConnectionSupplier connections,
+      final Body<T> body)
+  {
+    if (connections == null) {
+      throw new NullPointerException("connections");
+    }
+    final var query = new AsyncQuery<>(connections, body);
+    query.result.whenComplete((value, failure) -> {
+      if (failure != null) {
+        query.cancel();
+      }
+    });
+    final var timeout = statement.queryTimeout();
+    if (timeout > 0) {
+      query.result.orTimeout(timeout, TimeUnit.SECONDS);
+    }
+    try {
+      executor().execute(query);
+    } catch (final RejectedExecutionException e) {
+      query.result.completeExceptionally(e);
+    }
+    return query.result;
+  }
+
+  private static Executor executor()
+  {
+    final var value = executor;
+    return value != null ? value : DefaultExecutor.INSTANCE;
+  }
+
+  @Override public void run()
+  {
+    if (result.isDone()) {
+      return;
+    }
+    RUNNING.set(this);
+    try (var connection = connections.connection()) {
+      result.complete(body.query(connection));
+    } catch (final Throwable e) {
+      // errors too, as otherwise the result would never complete (unless it has a timeout)
+      result.completeExceptionally(e);
+    } finally {
+      RUNNING.remove();
+    }
+  }
+
+  /**
+   * Registers a statement about to be executed by the current thread.
+   *
+   * @param statement statement to be executed.
+   * @throws SQLException if the query running on the current thread was cancelled.
+   */
+  static void executing(final Statement statement) throws SQLException
+  {
+    final var query = RUNNING.get();
+    if (query != null) {
+      query.register(statement);
+    }
+  }
+
+  /**
+   * Unregisters a statement executed by the current thread.
+   *
+   * @param statement statement no longer executed.
+   */
+  static void executed(final Statement statement)
+  {
+    final var query = RUNNING.get();
+    if (query != null) {
+      query.unregister(statement);
+    }
+  }
+
+  private synchronized void register(final Statement value) throws SQLException
+  {
+    if (cancelled) {
+      throw new SQLException("query cancelled", QUERY_CANCELLED);
+    }
+    statement = value;
+  }
+
+  private synchronized void unregister(final Statement value)
+  {
+    if (statement == value) {
+      statement = null;
+    }
+  }
+
+  // holds the lock while cancelling, so the statement is not given back (and reused by another query) meanwhile
+  private synchronized void cancel()
+  {
+    cancelled = true;
+    if (statement != null) {
+      try {
+        statement.cancel();
+      } catch (final SQLException e) {
+        // the statement completed or the driver can't cancel it, either way the result is already discarded
+      }
+    }
+  }
+
+  /**
+   * A query to run with some connection.
+   *
+   * @param <T> type of the result of the query.
+   */
+  @FunctionalInterface interface Body<T>
+  {
+    T query(Connection connection) throws SQLException;
+  }
+
+  /** Executor used when none is set: virtual threads when available (JDK 21+), otherwise a pool of daemon threads. */
+  private static final class DefaultExecutor
+  {
+    static final Executor INSTANCE = create();
+
+    private static Executor create()
+    {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+        final var threads = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+          final var thread = new Thread(task, "barman-query-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+  }
+}
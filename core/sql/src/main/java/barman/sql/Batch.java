@@ -0,0 +1,541 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * INSERT, UPDATE or DELETE SQL statements executed once per row, sending the rows to the database in JDBC batches.
+ * <p>
+ * Rows are added to a {@link Writer}, which executes the batch each time {@code batchSize} rows were added, and when it is flushed or closed.
+ * <p>
+ * INSERT statements like {@code INSERT INTO T (a, b) VALUES (?, ?)} can also be expanded to insert {@code rowsPerStatement} rows per statement,
+ * as {@code INSERT INTO T (a, b) VALUES (?, ?), (?, ?), ...}; the rows which don't fill a whole statement are inserted one by one. That's what
+ * drivers like MySQL's do when {@code rewriteBatchedStatements} is enabled, but done by the batch itself so it works with any driver.
+ *
+ * @param <T> type of the rows.
+ */
+public abstract class Batch<T>
+    extends SqlStatement
+{
+  private final int batchSize;
+  private final int rowsPerStatement;
+  private final String multiRowSql;
+  private final int parametersPerRow;
+
+  /**
+   * Constructs an instance of {@link Batch} executing its statement once per row.
+   *
+   * @param statement              sql statement to be specified by the instance.
+   * @param statementConfiguration how to configure related JDBC prepared statements.
+   * @param batchSize              how many rows are sent to the database at once.
+   * @throws IllegalArgumentException if {@code batchSize < 1}.
+   */
+  protected Batch(
+      final String statement,
+      final Configuration statementConfiguration,
+      final int batchSize)
+  {
+    this(statement, statementConfiguration, batchSize, 1);
+  }
+
+  /**
+   * Constructs an instance of {@link Batch} which expands its {@code VALUES} clause to insert {@code rowsPerStatement} rows per statement.
+   *
+   * @param statement              sql statement to be specified by the instance, ending with a {@code VALUES (...)} clause.
+   * @param statementConfiguration how to configure related JDBC prepared statements.
+   * @param batchSize              how many rows are sent to the database at once.
+   * @param rowsPerStatement       how many rows are inserted by each statement.
+   * @throws IllegalArgumentException if {@code batchSize < 1}, or {@code rowsPerStatement < 1}, or {@code rowsPerStatement > 1} and
+   *                                  {@code statement} doesn't end with a {@code VALUES (...)} clause.
+   */
+  protected Batch(
+      final String statement,
+      final Configuration statementConfiguration,
+      final int batchSize,
+      final int rowsPerStatement)
+  {
+    super(statement, statementConfiguration);
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be >= 1, but it is " + batchSize);
+    }
+    if (rowsPerStatement < 1) {
+      throw new IllegalArgumentException("rowsPerStatement must be >= 1, but it is " + rowsPerStatement);
+    }
+    this.batchSize = batchSize;
+    this.rowsPerStatement = rowsPerStatement;
+    if (rowsPerStatement == 1) {
+      multiRowSql = null;
+      parametersPerRow = 0;
+    } else {
+      final var values = ValuesClause.of(statement);
+      if (values == null) {
+        throw new IllegalArgumentException("only statements ending with a VALUES (...) clause can be expanded, but it is '" + statement + "'.");
+      }
+      multiRowSql = values.head + String.join(", ", Collections.nCopies(rowsPerStatement, values.row));
+      parametersPerRow = values.parameters;
+    }
+  }
+
+  /** @return how many rows are sent to the database at once. */
+  public int batchSize()
+  {
+    return batchSize;
+  }
+
+  /** @return how many rows are inserted by each statement. */
+  public int rowsPerStatement()
+  {
+    return rowsPerStatement;
+  }
+
+  /**
+   * Sets the parameters of a row to a statement.
+   *
+   * @param ps             statement which parameters must be set.
+   * @param firstParameter index of the first parameter of the row; when the statement was expanded, rows after the first one start after it.
+   * @param row            the row which parameters must be set.
+   * @throws SQLException if a database access error occurs
+   */
+  protected abstract void setParametersTo(
+      PreparedStatement ps,
+      int firstParameter,
+      T row) throws SQLException;
+
+  /**
+   * Describes a row at error messages.
+   *
+   * @param msg where to append the description.
+   * @param row the row to describe.
+   */
+  protected void appendRowDescriptionTo(
+      final StringBuilder msg,
+      final T row)
+  {
+    msg.append(row);
+  }
+
+  /**
+   * Executes the statement for each row.
+   *
+   * @param connection connection to use to execute the statements.
+   * @param rows       the rows to execute the statement for.
+   * @return how many rows were modified, as informed by the driver.
+   * @throws SQLException if a database access error occurs
+   */
+  public long execute(
+      final Connection connection,
+      final Iterable<? extends T> rows) throws SQLException
+  {
+    final var writer = open(connection);
+    try (writer) {
+      for (final T row : rows) {
+        writer.add(row);
+      }
+    }
+    return writer.modifiedRows();
+  }
+
+  /**
+   * Opens a {@link Writer} to execute the statement for rows added one at a time.
+   *
+   * @param connection connection to use to execute the statements.
+   * @return a new {@link Writer}, which must be closed to send its last rows.
+   */
+  public Writer open(final Connection connection)
+  {
+    if (connection == null) {
+      throw new NullPointerException("connection");
+    }
+    return new Writer(connection);
+  }
+
+  /** The {@code VALUES (...)} clause ending an INSERT statement, which is repeated to insert many rows per statement. */
+  static final class ValuesClause
+  {
+    private static final String VALUES = "VALUES";
+
+    /** the statement up to the parenthesized values, {@code VALUES} keyword included. */
+    final String head;
+    /** the parenthesized values of one row. */
+    final String row;
+    /** how many {@code ?} placeholders has {@link #row}. */
+    final int parameters;
+
+    private ValuesClause(
+        final String head,
+        final String row,
+        final int parameters)
+    {
+      this.head = head;
+      this.row = row;
+      this.parameters = parameters;
+    }
+
+    /**
+     * Finds the {@code VALUES} clause of a statement, skipping quoted text and comments.
+     *
+     * @param statement the statement to analyze.
+     * @return the clause when the statement ends with {@code VALUES} followed by a single parenthesized group (and maybe a {@code ;});
+     *     {@literal null} other way.
+     */
+    static ValuesClause of(final String statement)
+    {
+      final var keyword = valuesKeyword(statement);
+      if (keyword < 0) {
+        return null;
+      }
+      var open = keyword + VALUES.length();
+      while (open < statement.length() && Character.isWhitespace(statement.charAt(open))) {
+        open++;
+      }
+      if (open == statement.length() || statement.charAt(open) != '(') {
+        return null;
+      }
+      int depth = 0;
+      int parameters = 0;
+      var i = open;
+      while (i < statement.length()) {
+        final var skipped = skipQuotedOrComment(statement, i);
+        if (skipped != i) {
+          i = skipped;
+          continue;
+        }
+        final var c = statement.charAt(i++);
+        if (c == '(') {
+          depth++;
+        } else if (c == '?') {
+          parameters++;
+        } else if (c == ')' && --depth == 0) {
+          break;
+        }
+      }
+      if (depth != 0 || !isEnd(statement, i)) {
+        return null;
+      }
+      return new ValuesClause(statement.substring(0, open), statement.substring(open, i), parameters);
+    }
+
+    /** @return index of the first {@code VALUES} keyword outside quoted text, comments and parentheses; {@code -1} if there is none. */
+    private static int valuesKeyword(final String statement)
+    {
+      int depth = 0;
+      var i = 0;
+      while (i < statement.length()) {
+        final var skipped = skipQuotedOrComment(statement, i);
+        if (skipped != i) {
+          i = skipped;
+          continue;
+        }
+        final var c = statement.charAt(i);
+        if (c == '(') {
+          depth++;
+        } else if (c == ')') {
+          depth--;
+        } else if (depth == 0 && statement.regionMatches(true, i, VALUES, 0, VALUES.length())
+                   && (i == 0 || !isIdentifierPart(statement.charAt(i - 1)))
+                   && (i + VALUES.length() == statement.length() || !isIdentifierPart(statement.charAt(i + VALUES.length())))) {
+          return i;
+        }
+        i++;
+      }
+      return -1;
+    }
+
+    /** @return whether there is nothing but blanks, comments and a {@code ;} from {@code i} on. */
+    private static boolean isEnd(
+        final String statement,
+        final int from)
+    {
+      var semicolon = false;
+      var i = from;
+      while (i < statement.length()) {
+        final var skipped = skipQuotedOrComment(statement, i);
+        final var c = statement.charAt(i);
+        if (skipped != i && c != '\'' && c != '"') {
+          i = skipped;
+        } else if (Character.isWhitespace(c)) {
+          i++;
+        } else if (c == ';' && !semicolon) {
+          semicolon = true;
+          i++;
+        } else {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isIdentifierPart(final char c)
+    {
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * @return the index after the quoted text or comment starting at {@code i}; {@code i} when there is none there. Unterminated ones end the
+     *     statement.
+     */
+    static int skipQuotedOrComment(
+        final String statement,
+        final int i)
+    {
+      final var c = statement.charAt(i);
+      if (c == '\'' || c == '"') {
+        // a doubled quote escapes it, and it is just a quoted text followed by another one
+        final var close = statement.indexOf(c, i + 1);
+        return close < 0 ? statement.length() : close + 1;
+      }
+      if (c == '-' && statement.startsWith("--", i)) {
+        final var eol = statement.indexOf('\n', i);
+        return eol < 0 ? statement.length() : eol + 1;
+      }
+      if (c == '/' && statement.startsWith("/*", i)) {
+        final var close = statement.indexOf("*/", i + 2);
+        return close < 0 ? statement.length() : close + 2;
+      }
+      return i;
+    }
+  }
+
+  /** Adds rows to JDBC batches, executing them when they are full. Instances are not thread safe. */
+  public final class Writer
+      implements AutoCloseable
+  {
+    private final Connection connection;
+    private final Object[] rows = new Object[batchSize];
+    private PreparedStatement singleRow;
+    private PreparedStatement multiRow;
+    private int count;
+    private int bound;
+    private long batches;
+    private long flushedRows;
+    private long modifiedRows;
+    private boolean failed;
+    private boolean closed;
+
+    Writer(final Connection connection)
+    {
+      this.connection = connection;
+    }
+
+    /** @return how many rows were modified by the batches executed, as informed by the driver. */
+    public long modifiedRows()
+    {
+      return modifiedRows;
+    }
+
+    /**
+     * Adds a row to the batch, executing it if it gets full.
+     *
+     * @param row the row to execute the statement for.
+     * @throws SQLException          if a database access error occurs
+     * @throws IllegalStateException if the writer was closed, or a previous batch failed.
+     */
+    public void add(final T row) throws SQLException
+    {
+      if (closed || failed) {
+        throw new IllegalStateException(closed ? "writer closed" : "a previous batch failed");
+      }
+      rows[count++] = row;
+      try {
+        if (multiRowSql == null) {
+          bind(singleRow(), count - 1, 1);
+        } else if (count - bound == rowsPerStatement) {
+          bind(multiRow(), bound, rowsPerStatement);
+        }
+      } catch (final SQLException e) {
+        failed = true;
+        throw withInformationAboutBatch(e, 0, -1, 1);
+      }
+      if (count == batchSize) {
+        flush();
+      }
+    }
+
+    /**
+     * Executes the rows added since the last batch was executed.
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public void flush() throws SQLException
+    {
+      if (count == 0 || failed) {
+        return;
+      }
+      try {
+        final var expandedRows = multiRowSql == null ? 0 : bound;
+        if (expandedRows > 0) {
+          executeBatch(multiRow, 0, rowsPerStatement);
+        }
+        if (expandedRows < count) {
+          if (multiRowSql != null) {
+            for (int i = expandedRows; i < count; i++) {
+              bind(singleRow(), i, 1);
+            }
+          }
+          executeBatch(singleRow, expandedRows, 1);
+        }
+      } catch (final SQLException e) {
+        failed = true;
+        throw e;
+      } finally {
+        batches++;
+        flushedRows += count;
+        Arrays.fill(rows, 0, count, null);
+        count = 0;
+        bound = 0;
+      }
+    }
+
+    /**
+     * Executes the rows not executed yet, unless a previous batch failed, and closes the statements used.
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    @Override public void close() throws SQLException
+    {
+      if (closed) {
+        return;
+      }
+      try {
+        flush();
+      } finally {
+        closed = true;
+        try {
+          closeStatement(singleRow);
+        } finally {
+          closeStatement(multiRow);
+        }
+      }
+    }
+
+    private PreparedStatement singleRow() throws SQLException
+    {
+      if (singleRow == null) {
+        singleRow = prepared(connection, sql());
+      }
+      return singleRow;
+    }
+
+    private PreparedStatement multiRow() throws SQLException
+    {
+      if (multiRow == null) {
+        multiRow = prepared(connection, multiRowSql);
+      }
+      return multiRow;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bind(
+        final PreparedStatement ps,
+        final int firstRow,
+        final int rowsToBind) throws SQLException
+    {
+      for (int i = 0; i < rowsToBind; i++) {
+        setParametersTo(ps, 1 + i * parametersPerRow, (T) rows[firstRow + i]);
+      }
+      ps.addBatch();
+      bound = firstRow + rowsToBind;
+    }
+
+    private void executeBatch(
+        final PreparedStatement ps,
+        final int firstRow,
+        final int rowsPerBatchedStatement) throws SQLException
+    {
+      try {
+        for (final int modified : ps.executeBatch()) {
+          if (modified > 0) {
+            modifiedRows += modified;
+          }
+        }
+      } catch (final SQLException e) {
+        var failedStatement = -1;
+        if (e instanceof BatchUpdateException) {
+          final var updateCounts = ((BatchUpdateException) e).getUpdateCounts();
+          if (updateCounts != null) {
+            failedStatement = updateCounts.length;
+            for (int i = 0; i < updateCounts.length; i++) {
+              if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                failedStatement = i;
+                break;
+              }
+            }
+          }
+        }
+        throw withInformationAboutBatch(e, firstRow, failedStatement, rowsPerBatchedStatement);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private SQLException withInformationAboutBatch(
+        final SQLException e,
+        final int firstRow,
+        final int failedStatement,
+        final int rowsPerBatchedStatement)
+    {
+      final var msg = new StringBuilder(getInformativeErrorMessageFor(e));
+      msg.append(", Batch: #").append(batches + 1)
+         .append(", Rows: [").append(flushedRows + 1).append("..").append(flushedRows + count).append(']');
+      if (failedStatement >= 0) {
+        final var failedRow = firstRow + failedStatement * rowsPerBatchedStatement;
+        if (failedRow < count) {
+          msg.append(", Failed row: #").append(flushedRows + failedRow + 1).append(" (");
+          appendRowDescriptionTo(msg, (T) rows[failedRow]);
+          msg.append(')');
+        }
+      }
+      final var result = new SQLException(msg.toString(), e.getSQLState(), e.getErrorCode());
+      result.setNextException(e);
+      return result;
+    }
+  }
+
+  private PreparedStatement prepared(
+      final Connection connection,
+      final String statement) throws SQLException
+  {
+    final var ps = connection.prepareStatement(statement);
+    try {
+      configure(ps);
+    } catch (final SQLException e) {
+      ps.close();
+      throw e;
+    }
+    return ps;
+  }
+
+  private static void closeStatement(final PreparedStatement ps) throws SQLException
+  {
+    if (ps != null) {
+      ps.close();
+    }
+  }
+}
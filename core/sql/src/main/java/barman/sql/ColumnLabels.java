@@ -0,0 +1,233 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Labels of the columns of a {@link ResultSet}, to resolve the index of each column by its label just once.
+ * <p>
+ * Reading columns by label, as {@code rs.getString("name")}, makes most drivers search the column (ignoring case) for each cell. Instead,
+ * {@link #mapper(Planner)} builds row mappers which resolve the labels they need when they see a new {@code ResultSet}, and then read each row by
+ * index:
+ * <pre>
+ * static final RowMapper&lt;PlayerInfo&gt; PLAYER_INFO = ColumnLabels.mapper(columns -&gt; {
+ *   final int playerId = columns.indexOf("playerId");
+ *   final int name = columns.indexOf("name");
+ *   return rs -&gt; new PlayerInfo(PlayerId.at(rs, playerId), Name.at(rs, name));
+ * });
+ * </pre>
+ * The plan built for some labels is kept by the mapper, so it is built again only if a query returns different columns.
+ */
+public final class ColumnLabels
+{
+  private final String[] labels;
+  private final Map<String, Integer> indexes;
+
+  private ColumnLabels(final String[] labels)
+  {
+    this.labels = labels;
+    this.indexes = new HashMap<>(labels.length * 2);
+    // the first column with some label wins, as with ResultSet getters
+    for (int i = labels.length; i > 0; i--) {
+      indexes.put(normalized(labels[i - 1]), i);
+    }
+  }
+
+  /**
+   * @param rs some {@link ResultSet}.
+   * @return the labels of the columns of {@code rs}.
+   * @throws SQLException if a database access error occurs
+   */
+  public static ColumnLabels of(final ResultSet rs) throws SQLException
+  {
+    return new ColumnLabels(labelsOf(rs.getMetaData()));
+  }
+
+  private static String[] labelsOf(final ResultSetMetaData metaData) throws SQLException
+  {
+    final var labels = new String[metaData.getColumnCount()];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = metaData.getColumnLabel(i + 1);
+    }
+    return labels;
+  }
+
+  private static String normalized(final String label)
+  {
+    return label.toUpperCase(Locale.ROOT);
+  }
+
+  /** @return how many columns there are. */
+  public int size()
+  {
+    return labels.length;
+  }
+
+  /**
+   * @param index index of a column, starting at {@code 1}.
+   * @return the label of the column.
+   * @throws IndexOutOfBoundsException if there is no column at {@code index}.
+   */
+  public String label(final int index)
+  {
+    return labels[index - 1];
+  }
+
+  /**
+   * @param label label of some column, case is ignored.
+   * @return {@literal true} if there is a column with that label.
+   */
+  public boolean contains(final String label)
+  {
+    return indexes.containsKey(normalized(label));
+  }
+
+  /**
+   * @param label label of some column, case is ignored.
+   * @return the index of the first column with that label, starting at {@code 1}.
+   * @throws SQLException if there is no column with that label.
+   */
+  public int indexOf(final String label) throws SQLException
+  {
+    final var index = indexes.get(normalized(label));
+    if (index == null) {
+      throw new SQLException("no column labeled '" + label + "', columns: " + Arrays.toString(labels));
+    }
+    return index;
+  }
+
+  @Override public String toString()
+  {
+    return Arrays.toString(labels);
+  }
+
+  /**
+   * Builds a {@link RowMapper} which plans how to map rows once per set of columns.
+   *
+   * @param planner builds the row mapper to use for some columns.
+   * @param <T>     type of the mapped rows.
+   * @return a new {@link RowMapper}, which should be kept (as a constant) to reuse its plans.
+   */
+  public static <T> RowMapper<T> mapper(final Planner<T> planner)
+  {
+    if (planner == null) {
+      throw new NullPointerException("planner");
+    }
+    return new PlannedRowMapper<>(planner);
+  }
+
+  /**
+   * Strategy to plan how to map rows with some columns, usually resolving the indexes of the columns it needs.
+   *
+   * @param <T> type of the mapped rows.
+   */
+  @FunctionalInterface public interface Planner<T>
+  {
+    /**
+     * @param columns columns of the rows to map.
+     * @return a {@link RowMapper} for rows with those columns.
+     * @throws SQLException if some column required is missing.
+     */
+    RowMapper<T> plan(ColumnLabels columns) throws SQLException;
+  }
+
+  /** How to map rows with some columns. */
+  private static final class Plan<T>
+  {
+    final ColumnLabels columns;
+    final RowMapper<T> mapper;
+
+    Plan(
+        final ColumnLabels columns,
+        final RowMapper<T> mapper)
+    {
+      this.columns = columns;
+      this.mapper = mapper;
+    }
+  }
+
+  /** The plan used for the {@code ResultSet} a thread is reading, which is referenced weakly so it can be collected once it is closed. */
+  private static final class Current<T>
+      extends WeakReference<ResultSet>
+  {
+    final Plan<T> plan;
+
+    Current(
+        final ResultSet rs,
+        final Plan<T> plan)
+    {
+      super(rs);
+      this.plan = plan;
+    }
+  }
+
+  /**
+   * Maps rows with the plan for their columns. Each thread keeps the plan for the {@code ResultSet} it is reading, so just the first row of each
+   * one has to check its columns; and the last plan built is shared, so it is built again only when columns change. No {@code ResultSet} is
+   * held strongly, so threads idle at a pool don't keep the last one they read (and its statement) reachable.
+   */
+  private static final class PlannedRowMapper<T>
+      implements RowMapper<T>
+  {
+    private final Planner<T> planner;
+    private final ThreadLocal<Current<T>> current = new ThreadLocal<>();
+    private volatile Plan<T> shared;
+
+    PlannedRowMapper(final Planner<T> planner)
+    {
+      this.planner = planner;
+    }
+
+    @Override public T mapRow(final ResultSet rs) throws SQLException
+    {
+      var reading = current.get();
+      if (reading == null || reading.get() != rs) {
+        reading = new Current<>(rs, planFor(rs));
+        current.set(reading);
+      }
+      return reading.plan.mapper.mapRow(rs);
+    }
+
+    private Plan<T> planFor(final ResultSet rs) throws SQLException
+    {
+      final var labels = labelsOf(rs.getMetaData());
+      final var last = shared;
+      if (last != null && Arrays.equals(last.columns.labels, labels)) {
+        return last;
+      }
+      final var columns = new ColumnLabels(labels);
+      final var plan = new Plan<>(columns, planner.plan(columns));
+      shared = plan;
+      return plan;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads nullable columns of primitive types, as {@link ResultSet} getters return {@code 0} or {@literal false} for {@code NULL}s.
+ */
+public final class Columns
+{
+  private Columns()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  public static Boolean nullableBoolean(
+      final ResultSet rs,
+      final int column) throws SQLException
+  {
+    final var value = rs.getBoolean(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  public static Byte nullableByte(
+      final ResultSet rs,
+      final int column) throws SQLException
+  {
+    final var value = rs.getByte(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  public static Short nullableShort(
+      final ResultSet rs,
+      final int column) throws SQLException
+  {
+    final var value = rs.getShort(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  public static Integer nullableInt(
+      final ResultSet rs,
+      final int column) throws SQLException
+  {
+    final var value = rs.getInt(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  public static Long nullableLong(
+      final ResultSet rs,
+      final int column) throws SQLException
+  {
+    final var value = rs.getLong(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  public static Float nullableFloat(
+      final ResultSet rs,
+      final int column) throws SQLException
+  {
+    final var value = rs.getFloat(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  public static Double nullableDouble(
+      final ResultSet rs,
+      final int column) throws SQLException
+  {
+    final var value = rs.getDouble(column);
+    return rs.wasNull() ? null : value;
+  }
+}
@@ -0,0 +1,513 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of connections, for deployments without one of their own (as embedded or command line applications).
+ * <p>
+ * Connections are borrowed through {@link #connection()}, and given back by closing them. Borrowing and giving back are lock free: idle connections
+ * are kept in a concurrent deque, and each thread first tries the last connection it gave back. Connections are validated only when borrowed after
+ * being idle for some time; and those failing with a connection error (SQL state {@code 08xxx}) are discarded when given back. Connections given
+ * back are rolled back, their warnings cleared, and their auto-commit, transaction isolation, read-only, catalog and schema restored to the values
+ * they had when created.
+ * <p>
+ * When a connection is held for too long, a warning is logged (through {@link System.Logger}) with the statement that used it last and where it was
+ * borrowed. Cached statements of discarded connections are invalidated, and {@link StatementCache} keeps statements by physical connection, so they
+ * are reused whichever thread borrows it. This class is thread safe.
+ */
+public final class ConnectionPool
+    implements ConnectionSupplier, AutoCloseable
+{
+  private static final System.Logger LOGGER = System.getLogger(ConnectionPool.class.getName());
+
+  private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+  private static final int IDLE = 0;
+  private static final int IN_USE = 1;
+  private static final int REMOVED = 2;
+
+  private final ConnectionSupplier factory;
+  private final int maximumSize;
+  private final long borrowTimeoutNanos;
+  private final long validateAfterIdleNanos;
+  private final long leakThresholdNanos;
+
+  /** one permit per connection that can be borrowed. */
+  private final Semaphore permits;
+  private final AtomicInteger size = new AtomicInteger();
+  private final ConcurrentLinkedDeque<Pooled> idle = new ConcurrentLinkedDeque<>();
+  private final Set<Pooled> all = ConcurrentHashMap.newKeySet();
+  private final ThreadLocal<Pooled> lastGivenBack = new ThreadLocal<>();
+  private final ScheduledFuture<?> leakDetection;
+
+  private volatile boolean closed;
+
+  /**
+   * Constructs an empty {@link ConnectionPool}, connections are created when needed.
+   *
+   * @param factory           how to create physical connections, usually {@code dataSource::getConnection} or a {@code DriverManager} call.
+   * @param maximumSize       how many connections can be open at once.
+   * @param borrowTimeout     how long to wait for a connection when all of them are in use.
+   * @param validateAfterIdle how long a connection can be idle before being validated when borrowed.
+   * @param leakThreshold     how long a connection can be held before logging it as leaked; {@link Duration#ZERO} to not detect leaks.
+   * @throws NullPointerException     if any argument is {@literal null}.
+   * @throws IllegalArgumentException if {@code maximumSize < 1} or any duration is negative.
+   */
+  public ConnectionPool(
+      final ConnectionSupplier factory,
+      final int maximumSize,
+      final Duration borrowTimeout,
+      final Duration validateAfterIdle,
+      final Duration leakThreshold)
+  {
+    if (factory == null) {
+      throw new NullPointerException("factory");
+    }
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("maximumSize must be >= 1, but it is " + maximumSize);
+    }
+    this.factory = factory;
+    this.maximumSize = maximumSize;
+    this.borrowTimeoutNanos = nanos(borrowTimeout, "borrowTimeout");
+    this.validateAfterIdleNanos = nanos(validateAfterIdle, "validateAfterIdle");
+    this.leakThresholdNanos = nanos(leakThreshold, "leakThreshold");
+    this.permits = new Semaphore(maximumSize);
+    if (leakThresholdNanos == 0) {
+      leakDetection = null;
+    } else {
+      final var period = Math.max(leakThresholdNanos / 2, TimeUnit.SECONDS.toNanos(1));
+      leakDetection = LeakDetector.EXECUTOR.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static long nanos(
+      final Duration value,
+      final String name)
+  {
+    if (value == null) {
+      throw new NullPointerException(name);
+    }
+    if (value.isNegative()) {
+      throw new IllegalArgumentException(name + " can't be negative, but it is " + value);
+    }
+    return value.toNanos();
+  }
+
+  /** @return how many connections can be open at once. */
+  public int maximumSize()
+  {
+    return maximumSize;
+  }
+
+  /** @return how many connections are open. */
+  public int size()
+  {
+    return size.get();
+  }
+
+  /** @return how many connections can be borrowed without waiting for one to be given back. */
+  public int available()
+  {
+    return permits.availablePermits();
+  }
+
+  /**
+   * Borrows a connection, it must be closed to give it back.
+   *
+   * @return a connection for the exclusive use of the caller until it is closed.
+   * @throws SQLTransientConnectionException if no connection was given back before the borrow timeout.
+   * @throws SQLException                    if the pool is closed, or a database access error occurs.
+   */
+  @Override public Connection connection() throws SQLException
+  {
+    if (closed) {
+      throw new SQLException("connection pool is closed");
+    }
+    try {
+      if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+        throw new SQLTransientConnectionException("no connection available after " + Duration.ofNanos(borrowTimeoutNanos)
+                                                  + ", all the " + maximumSize + " connections are in use");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("interrupted while waiting for a connection", e);
+    }
+    try {
+      return new Handle(this, take()).proxy;
+    } catch (final SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  private Pooled take() throws SQLException
+  {
+    final var last = lastGivenBack.get();
+    if (last != null && claim(last)) {
+      return borrowed(last);
+    }
+    for (;;) {
+      final var pooled = idle.pollFirst();
+      if (pooled != null) {
+        pooled.queued = false;
+        if (claim(pooled)) {
+          return borrowed(pooled);
+        }
+      } else if (size.incrementAndGet() <= maximumSize) {
+        return borrowed(create());
+      } else {
+        // holding a permit, some connection is being given back right now
+        size.decrementAndGet();
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  private boolean claim(final Pooled pooled) throws SQLException
+  {
+    if (!pooled.state.compareAndSet(IDLE, IN_USE)) {
+      return false;
+    }
+    if (System.nanoTime() - pooled.givenBackAt > validateAfterIdleNanos && !isValid(pooled)) {
+      discard(pooled);
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean isValid(final Pooled pooled)
+  {
+    try {
+      return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (final SQLException e) {
+      return false;
+    }
+  }
+
+  private Pooled create() throws SQLException
+  {
+    final Connection physical;
+    try {
+      physical = factory.connection();
+    } catch (final SQLException | RuntimeException e) {
+      size.decrementAndGet();
+      throw e;
+    }
+    final Pooled pooled;
+    try {
+      pooled = new Pooled(physical);
+    } catch (final SQLException | RuntimeException e) {
+      size.decrementAndGet();
+      try {
+        physical.close();
+      } catch (final SQLException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    all.add(pooled);
+    return pooled;
+  }
+
+  private Pooled borrowed(final Pooled pooled)
+  {
+    pooled.borrowedAt = System.nanoTime();
+    pooled.borrower = Thread.currentThread().getName();
+    pooled.statement = null;
+    pooled.sql = null;
+    pooled.leakReported = false;
+    if (leakThresholdNanos != 0) {
+      pooled.borrowedFrom = new Exception("connection borrowed here");
+    }
+    return pooled;
+  }
+
+  private void giveBack(final Pooled pooled)
+  {
+    try {
+      if (!pooled.broken && !closed && reset(pooled)) {
+        pooled.givenBackAt = System.nanoTime();
+        pooled.borrowedFrom = null;
+        pooled.state.set(IDLE);
+        lastGivenBack.set(pooled);
+        // a connection taken by its last thread is still in the deque, it must be there just once
+        if (!pooled.queued) {
+          pooled.queued = true;
+          idle.offerFirst(pooled);
+        }
+        if (closed && pooled.state.compareAndSet(IDLE, IN_USE)) {
+          discard(pooled);
+        }
+      } else {
+        discard(pooled);
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  private static boolean reset(final Pooled pooled)
+  {
+    final var physical = pooled.physical;
+    try {
+      final var autoCommit = physical.getAutoCommit();
+      if (!autoCommit) {
+        physical.rollback();
+      }
+      if (autoCommit != pooled.autoCommit) {
+        physical.setAutoCommit(pooled.autoCommit);
+      }
+      if (pooled.modified) {
+        // only when the borrower changed them, as reading some of them takes a round trip with some drivers
+        if (physical.getTransactionIsolation() != pooled.transactionIsolation) {
+          physical.setTransactionIsolation(pooled.transactionIsolation);
+        }
+        if (physical.isReadOnly() != pooled.readOnly) {
+          physical.setReadOnly(pooled.readOnly);
+        }
+        if (!Objects.equals(physical.getCatalog(), pooled.catalog)) {
+          physical.setCatalog(pooled.catalog);
+        }
+        if (!Objects.equals(physical.getSchema(), pooled.schema)) {
+          physical.setSchema(pooled.schema);
+        }
+        pooled.modified = false;
+      }
+      physical.clearWarnings();
+      return true;
+    } catch (final SQLException e) {
+      LOGGER.log(System.Logger.Level.DEBUG, "discarding connection which can't be reset", e);
+      return false;
+    }
+  }
+
+  private void discard(final Pooled pooled)
+  {
+    pooled.state.set(REMOVED);
+    if (all.remove(pooled)) {
+      size.decrementAndGet();
+    }
+    try {
+      final var statements = SqlStatement.statementCache();
+      if (statements != null) {
+        statements.invalidate(pooled.physical);
+      }
+    } catch (final SQLException e) {
+      LOGGER.log(System.Logger.Level.DEBUG, "can't close cached statements of discarded connection", e);
+    }
+    try {
+      pooled.physical.close();
+    } catch (final SQLException e) {
+      LOGGER.log(System.Logger.Level.DEBUG, "can't close discarded connection", e);
+    }
+  }
+
+  private void detectLeaks()
+  {
+    final var now = System.nanoTime();
+    for (final var pooled : all) {
+      final var from = pooled.borrowedFrom;
+      if (pooled.state.get() == IN_USE && !pooled.leakReported && from != null && now - pooled.borrowedAt > leakThresholdNanos) {
+        pooled.leakReported = true;
+        LOGGER.log(System.Logger.Level.WARNING,
+                   () -> "connection held by thread '" + pooled.borrower + "' for more than " + Duration.ofNanos(leakThresholdNanos)
+                         + ", it may have leaked; last statement: " + pooled.statement + ", last SQL: " + pooled.sql,
+                   from);
+      }
+    }
+  }
+
+  /**
+   * Closes the pool, closing its idle connections. Connections in use are closed when given back.
+   */
+  @Override public void close()
+  {
+    closed = true;
+    if (leakDetection != null) {
+      leakDetection.cancel(false);
+    }
+    for (final var pooled : all) {
+      if (pooled.state.compareAndSet(IDLE, IN_USE)) {
+        discard(pooled);
+      }
+    }
+    idle.clear();
+  }
+
+  /**
+   * Obtains the physical connection of a pooled connection, so statements are cached for it instead of for one borrow of it.
+   *
+   * @param connection some connection, pooled or not.
+   * @param statement  statement about to use the connection, recorded to report leaks.
+   * @return the physical connection of {@code connection} if it is pooled, otherwise {@code connection}.
+   */
+  static Connection physical(
+      final Connection connection,
+      final SqlStatement statement)
+  {
+    if (Proxy.isProxyClass(connection.getClass())) {
+      final var handler = Proxy.getInvocationHandler(connection);
+      if (handler instanceof Handle) {
+        final var pooled = ((Handle) handler).pooled;
+        pooled.statement = statement.getClass().getName();
+        return pooled.physical;
+      }
+    }
+    return connection;
+  }
+
+  /** A physical connection kept by the pool. */
+  private static final class Pooled
+  {
+    final Connection physical;
+    /** state of the connection when created, restored when given back. */
+    final boolean autoCommit;
+    final int transactionIsolation;
+    final boolean readOnly;
+    final String catalog;
+    final String schema;
+    /** whether the transaction isolation, read-only, catalog or schema may have been changed since the connection was borrowed. */
+    volatile boolean modified;
+    final AtomicInteger state = new AtomicInteger(IN_USE);
+    /** whether it is in the idle deque. */
+    volatile boolean queued;
+    volatile boolean broken;
+    volatile long givenBackAt = System.nanoTime();
+    volatile long borrowedAt;
+    volatile String borrower;
+    volatile Exception borrowedFrom;
+    /** last barman statement which used the connection, to report leaks. */
+    volatile String statement;
+    /** last SQL prepared with the connection, to report leaks. */
+    volatile String sql;
+    volatile boolean leakReported;
+
+    Pooled(final Connection physical) throws SQLException
+    {
+      this.physical = physical;
+      this.autoCommit = physical.getAutoCommit();
+      this.transactionIsolation = physical.getTransactionIsolation();
+      this.readOnly = physical.isReadOnly();
+      this.catalog = physical.getCatalog();
+      this.schema = physical.getSchema();
+    }
+  }
+
+  /** One borrow of a pooled connection, closing it gives back the connection. */
+  private static final class Handle
+      implements InvocationHandler
+  {
+    /** SQL state class of connection exceptions. */
+    private static final String CONNECTION_EXCEPTION = "08";
+    /** setters of the properties restored when the connection is given back, besides auto-commit. */
+    private static final Set<String> RESTORED_SETTERS = Set.of("setTransactionIsolation", "setReadOnly", "setCatalog", "setSchema");
+
+    final ConnectionPool pool;
+    final Pooled pooled;
+    final Connection proxy;
+    private final AtomicInteger closed = new AtomicInteger();
+
+    Handle(
+        final ConnectionPool pool,
+        final Pooled pooled)
+    {
+      this.pool = pool;
+      this.pooled = pooled;
+      this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+    }
+
+    @Override public Object invoke(
+        final Object target,
+        final Method method,
+        final Object[] args) throws Throwable
+    {
+      switch (method.getName()) {
+        case "close":
+          if (closed.compareAndSet(0, 1)) {
+            pool.giveBack(pooled);
+          }
+          return null;
+        case "isClosed":
+          return closed.get() != 0;
+        case "equals":
+          return target == args[0];
+        case "hashCode":
+          return System.identityHashCode(target);
+        case "toString":
+          return "pooled " + pooled.physical;
+        default:
+          break;
+      }
+      if (closed.get() != 0) {
+        throw new SQLException("connection is closed", "08003");
+      }
+      if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String) {
+        pooled.sql = (String) args[0];
+      } else if (RESTORED_SETTERS.contains(method.getName())) {
+        pooled.modified = true;
+      }
+      try {
+        return method.invoke(pooled.physical, args);
+      } catch (final InvocationTargetException e) {
+        final var cause = e.getCause();
+        if (cause instanceof SQLException) {
+          final var state = ((SQLException) cause).getSQLState();
+          if (state != null && state.startsWith(CONNECTION_EXCEPTION)) {
+            pooled.broken = true;
+          }
+        }
+        throw cause;
+      }
+    }
+  }
+
+  /** Thread detecting leaked connections of all the pools. */
+  private static final class LeakDetector
+  {
+    static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(task -> {
+      final var thread = new Thread(task, "barman-connection-leaks");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
@@ -0,0 +1,190 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable list of {@code double} values, which can hold {@code NULL}s, stored without boxing.
+ */
+public final class DoubleList
+{
+  private static final double[] NO_VALUES = new double[0];
+  private static final int HASH_MULTIPLIER = 31;
+  private static final DoubleList EMPTY = new DoubleList(NO_VALUES, null);
+
+  private final double[] values;
+  private final BitSet nulls;
+
+  private DoubleList(
+      final double[] values,
+      final BitSet nulls)
+  {
+    this.values = values;
+    this.nulls = nulls;
+  }
+
+  static DoubleList of(
+      final double[] values,
+      final int size,
+      final BitSet nulls)
+  {
+    if (size == 0) {
+      return EMPTY;
+    }
+    return new DoubleList(values.length == size ? values : Arrays.copyOf(values, size), nulls == null || nulls.isEmpty() ? null : nulls);
+  }
+
+  /** @return how many values are in the list. */
+  public int size()
+  {
+    return values.length;
+  }
+
+  /** @return {@literal true} if the list has no values. */
+  public boolean isEmpty()
+  {
+    return values.length == 0;
+  }
+
+  /** @return {@literal true} if some value of the list is {@code NULL}. */
+  public boolean hasNulls()
+  {
+    return nulls != null;
+  }
+
+  /**
+   * @param index position of the value to check.
+   * @return {@literal true} if the value at {@code index} is {@code NULL}.
+   * @throws IndexOutOfBoundsException if {@code index} is out of bounds.
+   */
+  public boolean isNull(final int index)
+  {
+    checkIndex(index);
+    return nulls != null && nulls.get(index);
+  }
+
+  /**
+   * @param index position of the value to get.
+   * @return the value at {@code index}.
+   * @throws IndexOutOfBoundsException if {@code index} is out of bounds.
+   * @throws IllegalStateException     if the value at {@code index} is {@code NULL}.
+   */
+  public double get(final int index)
+  {
+    if (isNull(index)) {
+      throw new IllegalStateException("NULL at index " + index + " can't be interpreted as double");
+    }
+    return values[index];
+  }
+
+  /**
+   * @param index        position of the value to get.
+   * @param valueForNull value to return when the value at {@code index} is {@code NULL}.
+   * @return the value at {@code index}, or {@code valueForNull} if it is {@code NULL}.
+   * @throws IndexOutOfBoundsException if {@code index} is out of bounds.
+   */
+  public double getOrDefault(
+      final int index,
+      final double valueForNull)
+  {
+    return isNull(index) ? valueForNull : values[index];
+  }
+
+  /**
+   * @return a copy of the values of the list.
+   * @throws IllegalStateException if some value of the list is {@code NULL}.
+   */
+  public double[] toArray()
+  {
+    if (hasNulls()) {
+      throw new IllegalStateException("NULL at index " + nulls.nextSetBit(0) + " can't be interpreted as double");
+    }
+    return values.clone();
+  }
+
+  /** @return the values of the list which are not {@code NULL}. */
+  public DoubleStream nonNullValues()
+  {
+    if (nulls == null) {
+      return Arrays.stream(values);
+    }
+    return IntStream.range(0, values.length).filter(i -> !nulls.get(i)).mapToDouble(i -> values[i]);
+  }
+
+  private void checkIndex(final int index)
+  {
+    if (index < 0 || index >= values.length) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + values.length);
+    }
+  }
+
+  @Override public boolean equals(final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o instanceof DoubleList) {
+      final var other = (DoubleList) o;
+      if (values.length != other.values.length || hasNulls() != other.hasNulls() || hasNulls() && !nulls.equals(other.nulls)) {
+        return false;
+      }
+      for (int i = 0; i < values.length; i++) {
+        if (!isNull(i) && Double.compare(values[i], other.values[i]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  @Override public int hashCode()
+  {
+    int result = 1;
+    for (int i = 0; i < values.length; i++) {
+      result = HASH_MULTIPLIER * result + (isNull(i) ? 0 : Double.hashCode(values[i]));
+    }
+    return result;
+  }
+
+  @Override public String toString()
+  {
+    final var text = new StringBuilder().append('[');
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        text.append(", ");
+      }
+      if (isNull(i)) {
+        text.append("NULL");
+      } else {
+        text.append(values[i]);
+      }
+    }
+    return text.append(']').toString();
+  }
+}
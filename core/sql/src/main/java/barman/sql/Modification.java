@@ -0,0 +1,66 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * INSERT, UPDATE and DELETE SQL statements, which modify rows instead of querying them.
+ */
+public abstract class Modification
+    extends SqlStatement
+{
+  /**
+   * Constructs an instance of {@link Modification} with its sql statement and configuration.
+   *
+   * @param statement              sql statement to be specified by the instance.
+   * @param statementConfiguration how to configure related JDBC prepared statements.
+   */
+  protected Modification(
+      final String statement,
+      final Configuration statementConfiguration)
+  {
+    super(statement, statementConfiguration);
+  }
+
+  /**
+   * Executes the statement.
+   *
+   * @param connection connection to use to execute the statement.
+   * @return how many rows were modified.
+   * @throws SQLException if a database access error occurs
+   */
+  public int execute(final Connection connection) throws SQLException
+  {
+    if (connection == null) {
+      throw new NullPointerException("connection");
+    }
+    try (var modification = prepare(connection)) {
+      return modification.statement().executeUpdate();
+    } catch (final SQLException e) {
+      throw withInformationAboutStatement(e);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Marks a method of an interface as a SQL query, so QueriesCompiler generates its implementation.
+ * <p>
+ * The first parameter of the method must be a {@link java.sql.Connection}, the following ones are bound in order to the {@code ?} of the query;
+ * they can be primitives (or their wrappers), {@link String}s, {@link java.math.BigDecimal}s or {@link ColumnSetter}s. The method must declare
+ * {@link java.sql.SQLException} and return:
+ * <ul>
+ * <li>a primitive, for queries returning exactly one row with a NOT NULL value, as {@link SelectInt};</li>
+ * <li>an {@link IntList}, a {@link LongList} or a {@link DoubleList}, as {@link SelectIntList};</li>
+ * <li>a row, for queries returning zero or one row, as {@link SelectObject};</li>
+ * <li>a {@link java.util.List} or a {@link java.util.stream.Stream} of rows, as {@link SelectList} and {@link SelectStream}.</li>
+ * </ul>
+ * Rows can be a wrapper, a {@link String} or a {@link java.math.BigDecimal} read from the first column; or a class with only one non private
+ * constructor, which parameters of those types are read from the columns at the same position; nested row classes must be static.
+ * <p>
+ * A {@code ?} in quoted text or comments is not a parameter, and neither is the {@code ??} escape; so operators like {@code ?|} and {@code ?&} are written
+ * as {@code ??|} and {@code ??&}.
+ * <p>
+ * The implementation of {@code Xxx} interface is generated as {@code Xxx__barmanImpl}.
+ */
+@Retention(CLASS)
+@Target(METHOD)
+public @interface Query
+{
+  /** @return the query, as a JDBC query string (with {@code ?} for parameters). */
+  String value();
+}
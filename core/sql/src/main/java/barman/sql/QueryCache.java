@@ -0,0 +1,192 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Keeps the results of {@link Select}s, so queries over data that rarely changes (as reference data) don't hit the database each time.
+ * <p>
+ * Results are identified by the class of the statement, its SQL, the description of its parameters (as built by {@link
+ * SqlStatement#appendParametersDescriptionTo(StringBuilder)}) and the row mapper used. So statements whose results are cached must describe all
+ * their parameters; caching the results of a statement with parameters it doesn't describe fails with an {@link IllegalStateException}.
+ * <p>
+ * Statements opt-in to use a cache through {@link Select#cacheResultsIn(QueryCache)}. This class is thread safe.
+ * <p>
+ * Caffeine is an optional dependency of barman/sql: applications using this class must depend on it themselves.
+ */
+public final class QueryCache
+{
+  /** represents {@literal null} results, as the cache can't hold {@literal null}s. */
+  private static final Object NULL = new Object();
+
+  private final Cache<Key, Object> results;
+
+  /**
+   * Constructs an empty {@link QueryCache}.
+   *
+   * @param maximumSize      how many results can be kept, the least used ones are evicted first.
+   * @param expireAfterWrite how long results are kept since they were queried.
+   * @throws IllegalArgumentException if {@code maximumSize < 0} or {@code expireAfterWrite} is negative.
+   * @throws NullPointerException     if {@code expireAfterWrite} is {@literal null}.
+   */
+  public QueryCache(
+      final long maximumSize,
+      final Duration expireAfterWrite)
+  {
+    results = Caffeine.newBuilder()
+                      .maximumSize(maximumSize)
+                      .expireAfterWrite(expireAfterWrite)
+                      .recordStats()
+                      .build();
+  }
+
+  /** @return statistics of the cache usage, as its hit rate. */
+  public CacheStats stats()
+  {
+    return results.stats();
+  }
+
+  /** @return the ratio of queries which were answered by the cache. */
+  public double hitRate()
+  {
+    return results.stats().hitRate();
+  }
+
+  /** @return approximately how many results are kept. */
+  public long size()
+  {
+    return results.estimatedSize();
+  }
+
+  /**
+   * Discards all the results of some class of statement, usually because the data it queries was modified.
+   *
+   * @param type class of the statements which results must be discarded.
+   */
+  public void invalidate(final Class<? extends SqlStatement> type)
+  {
+    results.asMap().keySet().removeIf(key -> key.type == type);
+  }
+
+  /** Discards all the results. */
+  public void invalidateAll()
+  {
+    results.invalidateAll();
+  }
+
+  /**
+   * Gets the result of a statement from the cache, querying the database when it isn't there.
+   *
+   * @param statement the statement which result is required.
+   * @param rowMapper how the result is mapped; {@literal null} if the statement doesn't use row mappers.
+   * @param query     how to query the result when it isn't at the cache.
+   * @param <T>       type of the result.
+   * @return the result of the statement.
+   * @throws SQLException if a database access error occurs
+   */
+  @SuppressWarnings("unchecked")
+  <T> T get(
+      final SqlStatement statement,
+      final Object rowMapper,
+      final Query<T> query) throws SQLException
+  {
+    final var key = new Key(statement, rowMapper);
+    final var cached = results.getIfPresent(key);
+    if (cached != null) {
+      return cached == NULL ? null : (T) cached;
+    }
+    final var result = query.run();
+    results.put(key, result == null ? NULL : result);
+    return result;
+  }
+
+  /**
+   * Queries the result of a statement.
+   *
+   * @param <T> type of the result.
+   */
+  @FunctionalInterface interface Query<T>
+  {
+    T run() throws SQLException;
+  }
+
+  /** Identifies the result of a statement. */
+  private static final class Key
+  {
+    final Class<?> type;
+    final String sql;
+    final String parameters;
+    final Object rowMapper;
+    private final int hash;
+
+    Key(
+        final SqlStatement statement,
+        final Object rowMapper)
+    {
+      this.type = statement.getClass();
+      this.sql = statement.sql();
+      if (statement.hasParameters()) {
+        final var description = new StringBuilder();
+        statement.appendParametersDescriptionTo(description);
+        if (description.length() == 0) {
+          throw new IllegalStateException("results of '" + statement.sql() + "' can't be cached, its parameters must be described by "
+                                          + "appendParametersDescriptionTo(StringBuilder)");
+        }
+        this.parameters = description.toString();
+      } else {
+        this.parameters = "";
+      }
+      this.rowMapper = rowMapper;
+      this.hash = Objects.hash(type, sql, parameters, rowMapper);
+    }
+
+    @Override public int hashCode()
+    {
+      return hash;
+    }
+
+    @Override public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o instanceof Key) {
+        final var other = (Key) o;
+        return hash == other.hash
+               && type == other.type
+               && Objects.equals(sql, other.sql)
+               && parameters.equals(other.parameters)
+               && rowMapper == other.rowMapper;
+      }
+      return false;
+    }
+  }
+}
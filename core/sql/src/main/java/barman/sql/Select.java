@@ -23,14 +23,25 @@ THE SOFTWARE.
 */
 package barman.sql;
 
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * SELECT SQL queries with pluggable strategies for handling {@code ResultSet}s.
+ * <p>
+ * Besides blocking {@code query} methods, selects have {@code queryAsync} methods which run the query on an {@link Executor}, with a connection of
+ * their own; so independent queries can run in parallel. Their futures time out after the query timeout configured for the statement, and cancelling
+ * them (or any other exceptional completion) cancels the statement being executed.
  */
 public abstract class Select
     extends SqlStatement
 {
   static final int FIRST_COLUMN = 1;
 
+  /** where to keep the results of the statement, if they are cached. */
+  private QueryCache resultsCache;
+
   /**
    * Constructs an instance of {@link Select} with its sql statement and configuration.
    *
@@ -45,4 +56,71 @@ public abstract class Select
   {
     super(statement, statementConfiguration);
   }
+
+  /**
+   * Makes the statement keep its results in a {@link QueryCache}, usually called by the constructors of statements querying data that rarely
+   * changes.
+   *
+   * @param cache where to keep the results of the statement; {@literal null} to not cache them.
+   * @throws IllegalStateException if the statement has parameters, but it doesn't override {@link #hasParameters()}; as its results would be
+   *                               cached without the parameters that produced them.
+   */
+  protected final void cacheResultsIn(final QueryCache cache)
+  {
+    if (cache != null && !hasParameters() && hasPlaceholders(sql())) {
+      throw new IllegalStateException("results of '" + sql() + "' can't be cached, its parameters must be described by hasParameters() and "
+                                      + "appendParametersDescriptionTo(StringBuilder)");
+    }
+    resultsCache = cache;
+  }
+
+  /** @return whether the statement has a {@code ?} placeholder out of quoted text and comments, that isn't the {@code ??} escape. */
+  static boolean hasPlaceholders(final String statement)
+  {
+    var i = 0;
+    while (i < statement.length()) {
+      final var skipped = Batch.ValuesClause.skipQuotedOrComment(statement, i);
+      if (skipped != i) {
+        i = skipped;
+      } else if (statement.charAt(i) != '?') {
+        i++;
+      } else if (statement.startsWith("??", i)) {
+        i += 2;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sets the executor to run <em>ALL</em> asynchronous queries.
+   * <p>
+   * By default, queries run on virtual threads when available (JDK 21+), otherwise on a pool of daemon threads.
+   *
+   * @param executor where to run asynchronous queries; {@literal null} to use the default.
+   */
+  public static void runAsyncQueriesOn(final Executor executor)
+  {
+    AsyncQuery.runOn(executor);
+  }
+
+  final <T> CompletableFuture<T> async(
+      final ConnectionSupplier connections,
+      final AsyncQuery.Body<T> query)
+  {
+    return AsyncQuery.submit(this, connections, query);
+  }
+
+  final boolean cachesResults()
+  {
+    return resultsCache != null;
+  }
+
+  final <T> T cached(
+      final Object rowMapper,
+      final QueryCache.Query<T> query) throws SQLException
+  {
+    return resultsCache.get(this, rowMapper, query);
+  }
 }
@@ -25,6 +25,7 @@ package barman.sql;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * SELECT SQL queries which expects {@code ResultSet}s to hold EXACTLY one row, with a first column holding a NOT NULL {@code boolean}.
@@ -48,13 +49,33 @@ public abstract class SelectBoolean
     super(statement, statementConfiguration);
   }
 
+  /**
+   * Runs the query asynchronously, with its own connection.
+   *
+   * @param connections where to obtain the connection to use.
+   * @return a future completed with the result of the query.
+   * @throws NullPointerException if {@code connections} is {@literal null}.
+   */
+  public CompletableFuture<Boolean> queryAsync(final ConnectionSupplier connections)
+  {
+    return async(connections, this::query);
+  }
+
   public boolean query(final Connection connection) throws SQLException
   {
     if (connection == null) {
       throw new NullPointerException("connection");
     }
-    try (var select = prepareStatement(connection);
-         var rs = wrap(select.executeQuery())) {
+    if (cachesResults()) {
+      return cached(null, () -> fetch(connection));
+    }
+    return fetch(connection);
+  }
+
+  private boolean fetch(final Connection connection) throws SQLException
+  {
+    try (var select = prepare(connection);
+         var rs = wrap(select.statement().executeQuery())) {
       if (!rs.next()) {
         throw withInformationAboutStatement(new IllegalStateException("no row fetched"));
       }
@@ -0,0 +1,106 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SELECT SQL queries which expects {@code ResultSet}s to hold zero or more rows, with a first column holding a {@code double}.
+ * <p>
+ * Values are collected without boxing them, into an {@link DoubleList}; {@code NULL} values are kept as such, so callers must decide how to handle
+ * them.
+ */
+public class SelectDoubleList
+    extends Select
+{
+  private static final int MIN_CAPACITY = 16;
+
+  /**
+   * Constructs an instance of {@link SelectDoubleList} with its sql statement and configuration.
+   *
+   * @param statement              sql statement to be specified by the instance.
+   * @param statementConfiguration how to configure related JDBC prepared statements.
+   * @throws NullPointerException     if {@code statement} is {@literal null}.
+   * @throws IllegalArgumentException if {@code statement} is {@code empty} or {@code blank}.
+   */
+  public SelectDoubleList(
+      final String statement,
+      final Configuration statementConfiguration)
+  {
+    super(statement, statementConfiguration);
+  }
+
+  /**
+   * Runs the query asynchronously, with its own connection.
+   *
+   * @param connections where to obtain the connection to use.
+   * @return a future completed with the result of the query.
+   * @throws NullPointerException if {@code connections} is {@literal null}.
+   */
+  public CompletableFuture<DoubleList> queryAsync(final ConnectionSupplier connections)
+  {
+    return async(connections, this::query);
+  }
+
+  public DoubleList query(final Connection connection) throws SQLException
+  {
+    if (connection == null) {
+      throw new NullPointerException("connection");
+    }
+    if (cachesResults()) {
+      return cached(null, () -> fetch(connection));
+    }
+    return fetch(connection);
+  }
+
+  private DoubleList fetch(final Connection connection) throws SQLException
+  {
+    try (var select = prepare(connection);
+         var rs = wrap(select.statement().executeQuery())) {
+      var values = new double[Math.max(rs.getFetchSize(), MIN_CAPACITY)];
+      BitSet nulls = null;
+      int size = 0;
+      while (rs.next()) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size + (size >> 1));
+        }
+        values[size] = rs.getDouble(FIRST_COLUMN);
+        if (rs.wasNull()) {
+          if (nulls == null) {
+            nulls = new BitSet();
+          }
+          nulls.set(size);
+        }
+        size++;
+      }
+      return DoubleList.of(values, size, nulls);
+    } catch (final SQLException e) {
+      throw withInformationAboutStatement(e);
+    }
+  }
+}
@@ -26,17 +26,27 @@ package barman.sql;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * SELECT SQL queries which expects {@code ResultSet}s to hold zero or more elements of some type.
+ * <p>
+ * Lists are sized from the results of the last queries made by the same class of statement, so most of them never grow while rows are added.
  */
 public abstract class SelectList
     extends Select
 {
-  private static volatile Boolean supportsLast;
+  /** estimates of the result sizes, by class of statement. */
+  private static final ClassValue<ResultSizeEstimate> ESTIMATES = new ClassValue<>()
+  {
+    @Override protected ResultSizeEstimate computeValue(final Class<?> type)
+    {
+      return new ResultSizeEstimate();
+    }
+  };
 
   protected SelectList(
       final String statement,
@@ -45,6 +55,22 @@ public abstract class SelectList
     super(statement, statementConfiguration);
   }
 
+  /**
+   * Runs the query asynchronously, with its own connection.
+   *
+   * @param connections where to obtain the connection to use.
+   * @param rowMapper   how to map the fetched rows.
+   * @param <T>         type of the mapped rows.
+   * @return a future completed with the result of the query.
+   * @throws NullPointerException if {@code connections} is {@literal null}.
+   */
+  public <T> CompletableFuture<List<T>> queryAsync(
+      final ConnectionSupplier connections,
+      final RowMapper<T> rowMapper)
+  {
+    return async(connections, connection -> query(connection, rowMapper));
+  }
+
   public <T> List<T> query(
       final Connection connection,
       final RowMapper<T> rowMapper) throws SQLException
@@ -52,23 +78,44 @@ public abstract class SelectList
     if (connection == null) {
       throw new NullPointerException("connection");
     }
-    try (var select = prepareStatement(connection);
-         var rs = wrap(select.executeQuery())) {
-      final ArrayList<T> result = createListFor(rs);
-      if (result == null) {
-        return List.<T>of();
-      }
+    if (cachesResults()) {
+      return cached(rowMapper, () -> Collections.unmodifiableList(fetch(connection, rowMapper)));
+    }
+    return fetch(connection, rowMapper);
+  }
 
+  private <T> List<T> fetch(
+      final Connection connection,
+      final RowMapper<T> rowMapper) throws SQLException
+  {
+    try (var select = prepare(connection);
+         var rs = wrap(select.statement().executeQuery())) {
+      final ArrayList<T> result = createListFor(rs);
       while (rs.next()) {
         result.add(rowMapper.mapRow(rs));
       }
-      result.trimToSize();
-      return result;
+      return completed(result);
     } catch (final SQLException e) {
       throw withInformationAboutStatement(e);
     }
   }
 
+  /**
+   * Runs the query asynchronously, with its own connection.
+   *
+   * @param connections where to obtain the connection to use.
+   * @param rowMapper   how to map the fetched rows.
+   * @param <T>         type of the mapped rows.
+   * @return a future completed with the result of the query.
+   * @throws NullPointerException if {@code connections} is {@literal null}.
+   */
+  public <T> CompletableFuture<List<T>> queryAsync(
+      final ConnectionSupplier connections,
+      final RowMapperWithIndex<T> rowMapper)
+  {
+    return async(connections, connection -> query(connection, rowMapper));
+  }
+
   public <T> List<T> query(
       final Connection connection,
       final RowMapperWithIndex<T> rowMapper) throws SQLException
@@ -76,20 +123,24 @@ public abstract class SelectList
     if (connection == null) {
       throw new NullPointerException("connection");
     }
-    try (var select = prepareStatement(connection);
-         var rs = wrap(select.executeQuery())) {
-      final ArrayList<T> result = createListFor(rs);
-      if (result == null) {
-        return List.<T>of();
-      }
+    if (cachesResults()) {
+      return cached(rowMapper, () -> Collections.unmodifiableList(fetch(connection, rowMapper)));
+    }
+    return fetch(connection, rowMapper);
+  }
 
+  private <T> List<T> fetch(
+      final Connection connection,
+      final RowMapperWithIndex<T> rowMapper) throws SQLException
+  {
+    try (var select = prepare(connection);
+         var rs = wrap(select.statement().executeQuery())) {
+      final ArrayList<T> result = createListFor(rs);
       int index = 0;
       while (rs.next()) {
         result.add(rowMapper.mapRow(rs, ++index));
       }
-
-      result.trimToSize();
-      return result;
+      return completed(result);
     } catch (final SQLException e) {
       throw withInformationAboutStatement(e);
     }
@@ -97,35 +148,57 @@ public abstract class SelectList
 
   protected <T> ArrayList<T> createListFor(final ResultSet rs) throws SQLException
   {
-    if (ResultSet.TYPE_FORWARD_ONLY == rs.getType()) {
-      return new ArrayList<>(rs.getStatement().getFetchSize());
-    }
+    return new ArrayList<>(expectedRows(rs));
+  }
 
-    if (supportsLast == null) {
-      try {
-        ArrayList<T> result = null;
-        if (rs.last()) {
-          result = new ArrayList<T>(rs.getRow());
-          rs.beforeFirst(); // not rs.first() because the rs.next() below will move on, missing the first element
-        }
-        supportsLast = true;
-        return result;
-      } catch (final SQLFeatureNotSupportedException lastIsNotSupported) {
-        supportsLast = false;
-        return new ArrayList<>(rs.getStatement().getFetchSize());
-      }
+  /**
+   * Defines the initial capacity of the lists holding the results of the statement.
+   * <p>
+   * By default it is a moving average of the sizes of the last results of the same class of statement, plus a 25% of headroom; or the fetch size
+   * of {@code rs} when there are no previous results. In both cases it is never greater than 65536, bigger results grow as needed.
+   *
+   * @param rs the {@code ResultSet} which rows are about to be added to the list.
+   * @return how many rows are expected at {@code rs}.
+   * @throws SQLException if a database access error occurs
+   */
+  protected int expectedRows(final ResultSet rs) throws SQLException
+  {
+    return ESTIMATES.get(getClass()).expectedRows(rs);
+  }
+
+  private <T> List<T> completed(final ArrayList<T> result)
+  {
+    ESTIMATES.get(getClass()).record(result.size());
+    if (result.isEmpty()) {
+      return List.of();
     }
+    result.trimToSize();
+    return result;
+  }
 
-    if (!supportsLast) {
-      return new ArrayList<>(rs.getStatement().getFetchSize());
+  /** Moving average of the result sizes of some statement, updated without locking as it doesn't need to be exact. */
+  private static final class ResultSizeEstimate
+  {
+    private static final int MAX_EXPECTED_ROWS = 1 << 16;
+    // each new size weights 1/4 of the average, and 1/4 of headroom is added when sizing
+    private static final int WEIGHT_SHIFT = 2;
+    private static final int UNKNOWN = -1;
+
+    private volatile int average = UNKNOWN;
+
+    int expectedRows(final ResultSet rs) throws SQLException
+    {
+      final var current = average;
+      if (current == UNKNOWN) {
+        return Math.min(Math.max(rs.getFetchSize(), 0), MAX_EXPECTED_ROWS);
+      }
+      return Math.min(current + (current >> WEIGHT_SHIFT), MAX_EXPECTED_ROWS);
     }
 
-    if (rs.last()) {
-      final var result = new ArrayList<T>(rs.getRow());
-      rs.beforeFirst(); // not rs.first() because the rs.next() below will move on, missing the first element
-      return result;
-    } else {
-      return null;
+    void record(final int rows)
+    {
+      final var current = average;
+      average = current == UNKNOWN ? rows : current + ((rows - current) >> WEIGHT_SHIFT);
     }
   }
 }
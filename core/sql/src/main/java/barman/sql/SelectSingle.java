@@ -25,6 +25,7 @@ package barman.sql;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * SELECT SQL queries which expects {@code ResultSet}s to hold EXACTLY ONE row which can be interpreted to a NOT NULL object.
@@ -39,13 +40,37 @@ public abstract class SelectSingle
     super(statement, statementConfiguration);
   }
 
+  /**
+   * Runs the query asynchronously, with its own connection.
+   *
+   * @param connections where to obtain the connection to use.
+   * @param rowMapper   how to map the fetched rows.
+   * @param <T>         type of the mapped rows.
+   * @return a future completed with the result of the query.
+   * @throws NullPointerException if {@code connections} is {@literal null}.
+   */
+  public <T> CompletableFuture<T> queryAsync(
+      final ConnectionSupplier connections,
+      final RowMapper<T> rowMapper)
+  {
+    return async(connections, connection -> query(connection, rowMapper));
+  }
+
   public <T> T query(final Connection connection, final RowMapper<T> rowMapper) throws SQLException
   {
     if (connection == null) {
       throw new NullPointerException("connection");
     }
-    try (var select = prepareStatement(connection);
-         var rs = wrap(select.executeQuery())) {
+    if (cachesResults()) {
+      return cached(rowMapper, () -> fetch(connection, rowMapper));
+    }
+    return fetch(connection, rowMapper);
+  }
+
+  private <T> T fetch(final Connection connection, final RowMapper<T> rowMapper) throws SQLException
+  {
+    try (var select = prepare(connection);
+         var rs = wrap(select.statement().executeQuery())) {
       if (!rs.next()) {
         throw withInformationAboutStatement(new IllegalStateException("no row fetched"));
       }
@@ -0,0 +1,171 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * SELECT SQL queries which expects {@code ResultSet}s to hold zero or more elements of some type, reading them lazily.
+ * <p>
+ * Rows are mapped one at a time while the returned {@link Stream} is consumed, so memory doesn't grow with the size of the result. Use {@link
+ * Configuration.Specification#fetchSize(int)} to define how many rows the driver fetches at once (some drivers, as PostgreSQL's, fetch all of them
+ * unless a fetch size is defined and auto-commit is disabled).
+ * <p>
+ * The statement and its {@code ResultSet} are released when the stream is closed, so it must be consumed inside a try-with-resources block.
+ * Database errors found while consuming the stream are thrown as {@link UncheckedSQLException}s.
+ */
+public abstract class SelectStream
+    extends Select
+{
+  protected SelectStream(
+      final String statement,
+      final Configuration statementConfiguration)
+  {
+    super(statement, statementConfiguration);
+  }
+
+  public <T> Stream<T> query(
+      final Connection connection,
+      final RowMapper<T> rowMapper) throws SQLException
+  {
+    if (rowMapper == null) {
+      throw new NullPointerException("rowMapper");
+    }
+    return query(connection, (rs, index) -> rowMapper.mapRow(rs));
+  }
+
+  public <T> Stream<T> query(
+      final Connection connection,
+      final RowMapperWithIndex<T> rowMapper) throws SQLException
+  {
+    if (connection == null) {
+      throw new NullPointerException("connection");
+    }
+    if (rowMapper == null) {
+      throw new NullPointerException("rowMapper");
+    }
+    final var cursor = new Cursor<>(rowMapper);
+    try {
+      cursor.open(connection);
+    } catch (final SQLException | RuntimeException e) {
+      try {
+        cursor.close();
+      } catch (final UncheckedSQLException closeFailure) {
+        e.addSuppressed(closeFailure.getCause());
+      }
+      throw e;
+    }
+    return StreamSupport.stream(cursor, false).onClose(cursor::close);
+  }
+
+  private SQLException describe(final SQLException e)
+  {
+    try {
+      return withInformationAboutStatement(e);
+    } catch (final SQLException described) {
+      return described;
+    }
+  }
+
+  /** Maps the rows of a {@code ResultSet} while they are requested. */
+  private final class Cursor<T>
+      extends Spliterators.AbstractSpliterator<T>
+  {
+    private final RowMapperWithIndex<T> rowMapper;
+    private Prepared select;
+    private ResultSet rs;
+    private int index;
+
+    Cursor(final RowMapperWithIndex<T> rowMapper)
+    {
+      super(Long.MAX_VALUE, Spliterator.ORDERED);
+      this.rowMapper = rowMapper;
+    }
+
+    void open(final Connection connection) throws SQLException
+    {
+      try {
+        select = prepare(connection);
+        rs = wrap(select.statement().executeQuery());
+      } catch (final SQLException e) {
+        throw describe(e);
+      }
+    }
+
+    @Override public boolean tryAdvance(final Consumer<? super T> action)
+    {
+      if (rs == null) {
+        return false;
+      }
+      final T row;
+      try {
+        if (!rs.next()) {
+          close();
+          return false;
+        }
+        row = rowMapper.mapRow(rs, ++index);
+      } catch (final SQLException e) {
+        close();
+        throw new UncheckedSQLException(describe(e));
+      }
+      action.accept(row);
+      return true;
+    }
+
+    void close()
+    {
+      SQLException failure = null;
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (final SQLException e) {
+          failure = e;
+        }
+        rs = null;
+      }
+      if (select != null) {
+        try {
+          select.close();
+        } catch (final SQLException e) {
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.setNextException(e);
+          }
+        }
+        select = null;
+      }
+      if (failure != null) {
+        throw new UncheckedSQLException(describe(failure));
+      }
+    }
+  }
+}
@@ -27,6 +27,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Objects;
 
 /** The base class for QueryRunner &amp; AsyncQueryRunner. This class is thread safe. */
 public abstract class SqlStatement
@@ -39,6 +40,12 @@ public abstract class SqlStatement
    */
   private final Configuration configuration;
 
+  /** Identifies the statements cached for this one. */
+  private final StatementCache.Key cacheKey;
+
+  /** Cache of statements to use, if any. */
+  private static volatile StatementCache statementCache;
+
   /**
    * Constructs an instance of {@link SqlStatement} with its sql and configuration.
    *
@@ -51,6 +58,31 @@ public abstract class SqlStatement
   {
     sql = statement;
     configuration = statementConfiguration;
+    cacheKey = new StatementCache.Key(statement, statementConfiguration);
+  }
+
+  /** @return the represented statement, as a JDBC query string. */
+  protected final String sql()
+  {
+    return sql;
+  }
+
+  /**
+   * Sets the cache of prepared statements to be used by <em>ALL</em> SQL statements.
+   * <p>
+   * By default no statement is cached, so each query prepares its own statement.
+   *
+   * @param cache where to keep prepared statements; {@literal null} to stop caching them.
+   */
+  public static void cacheStatementsUsing(final StatementCache cache)
+  {
+    statementCache = cache;
+  }
+
+  /** @return the cache of prepared statements used by all SQL statements, if any. */
+  static StatementCache statementCache()
+  {
+    return statementCache;
   }
 
   /**
@@ -99,6 +131,61 @@ public abstract class SqlStatement
     return ps;
   }
 
+  /**
+   * Obtains a {@code PreparedStatement} for the given connection, with its parameters set.
+   * <p>
+   * When statements are cached, a statement prepared previously is reused if available, clearing and setting again its parameters. Otherwise, it
+   * is created by {@link #prepareStatement(Connection)}.
+   *
+   * @param connection The {@code Connection} used to create the {@code PreparedStatement}
+   * @return the statement to use, closing it closes or gives back the {@code PreparedStatement}.
+   * @throws SQLException if a database access error occurs
+   */
+  protected final Prepared prepare(final Connection connection) throws SQLException
+  {
+    final var prepared = obtain(connection);
+    try {
+      AsyncQuery.executing(prepared.statement);
+    } catch (final SQLException e) {
+      prepared.close();
+      throw e;
+    }
+    return prepared;
+  }
+
+  private Prepared obtain(final Connection connection) throws SQLException
+  {
+    final var cache = statementCache;
+    if (cache != null) {
+      // pooled connections cache statements for their physical connection, so they are reused by later borrows
+      final var owner = ConnectionPool.physical(connection, this);
+      final var ps = cache.borrow(owner, cacheKey);
+      if (ps != null) {
+        try {
+          ps.clearParameters();
+          setParametersTo(ps);
+        } catch (final SQLException | RuntimeException e) {
+          ps.close();
+          throw e;
+        }
+        return new Prepared(ps, owner, cacheKey, cache);
+      }
+      return new Prepared(prepareStatement(connection), owner, cacheKey, cache);
+    }
+    ConnectionPool.physical(connection, this);
+    return new Prepared(prepareStatement(connection), connection, cacheKey, null);
+  }
+
+  /** @return the number of seconds the driver will wait for execution, or {@code 0} if not limited by this statement configuration. */
+  final int queryTimeout()
+  {
+    if (configuration instanceof StatementConfiguration) {
+      final var queryTimeout = ((StatementConfiguration) configuration).queryTimeout;
+      return queryTimeout == StatementConfiguration.UNDEFINED_PROPERTY ? 0 : queryTimeout;
+    }
+    return 0;
+  }
+
   protected void configure(final PreparedStatement ps) throws SQLException
   {
     configuration.configureStatement(ps);
@@ -157,6 +244,44 @@ public abstract class SqlStatement
     // nothing to do
   }
 
+  /** A {@code PreparedStatement} obtained for one query, which is given back to the cache (if any) when closed. */
+  public static final class Prepared
+      implements AutoCloseable
+  {
+    private final PreparedStatement statement;
+    private final Connection connection;
+    private final StatementCache.Key key;
+    private final StatementCache cache;
+
+    Prepared(
+        final PreparedStatement statement,
+        final Connection connection,
+        final StatementCache.Key key,
+        final StatementCache cache)
+    {
+      this.statement = statement;
+      this.connection = connection;
+      this.key = key;
+      this.cache = cache;
+    }
+
+    /** @return the prepared statement to execute. */
+    public PreparedStatement statement()
+    {
+      return statement;
+    }
+
+    @Override public void close() throws SQLException
+    {
+      AsyncQuery.executed(statement);
+      if (cache == null) {
+        statement.close();
+      } else {
+        cache.release(connection, key, statement);
+      }
+    }
+  }
+
   private enum NoConfiguration
       implements Configuration
   {
@@ -279,7 +404,7 @@ public abstract class SqlStatement
       }
 
       /** @return A new and configured {@link Configuration}. */
-      private Configuration build()
+      public Configuration build()
       {
         return new StatementConfiguration(fetchDirection, fetchSize, maxFieldSize, maxRows, queryTimeout);
       }
@@ -339,5 +464,26 @@ public abstract class SqlStatement
         stmt.setQueryTimeout(queryTimeout);
       }
     }
+
+    @Override public int hashCode()
+    {
+      return Objects.hash(fetchDirection, fetchSize, maxFieldSize, maxRows, queryTimeout);
+    }
+
+    @Override public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o instanceof StatementConfiguration) {
+        final var other = (StatementConfiguration) o;
+        return fetchDirection == other.fetchDirection
+               && fetchSize == other.fetchSize
+               && maxFieldSize == other.maxFieldSize
+               && maxRows == other.maxRows
+               && queryTimeout == other.queryTimeout;
+      }
+      return false;
+    }
   }
 }
@@ -0,0 +1,353 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.sql;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the {@link PreparedStatement}s used by {@link SqlStatement}s, so they are reused instead of being prepared on each query.
+ * <p>
+ * Statements are kept per connection and SQL, at most {@code maxStatementsPerConnection} per connection; when that limit is reached the least
+ * recently used statement is closed. A statement is borrowed while a query uses it, so it is never shared by two queries running at the same time.
+ * <p>
+ * Connections are compared by identity and held strongly (their statements reference them anyway), so their statements must be released when
+ * they are closed: {@link ConnectionPool} does it when discarding its physical connections, other pools should call
+ * {@link #invalidate(Connection)}, and plain connections can be wrapped with {@link #invalidatingOnClose(Connection)}. Statements found closed
+ * when borrowed or given back are dropped along with the rest of the statements of their connection.
+ * <p>
+ * Caching is opt-in, through {@link SqlStatement#cacheStatementsUsing(StatementCache)}. This class is thread safe.
+ */
+public final class StatementCache
+{
+  private final int maxStatementsPerConnection;
+  private final ConcurrentHashMap<Owner, Statements> statementsByConnection = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Constructs an empty {@link StatementCache}.
+   *
+   * @param maxStatementsPerConnection how many statements can be kept for each connection.
+   * @throws IllegalArgumentException if {@code maxStatementsPerConnection < 1}.
+   */
+  public StatementCache(final int maxStatementsPerConnection)
+  {
+    if (maxStatementsPerConnection < 1) {
+      throw new IllegalArgumentException("maxStatementsPerConnection must be >= 1, but it is " + maxStatementsPerConnection);
+    }
+    this.maxStatementsPerConnection = maxStatementsPerConnection;
+  }
+
+  /** @return how many statements can be kept for each connection. */
+  public int maxStatementsPerConnection()
+  {
+    return maxStatementsPerConnection;
+  }
+
+  /** @return how many times a cached statement was reused. */
+  public long hits()
+  {
+    return hits.sum();
+  }
+
+  /** @return how many times a statement had to be prepared, because there was none available at the cache. */
+  public long misses()
+  {
+    return misses.sum();
+  }
+
+  /** @return how many statements were closed to keep the cache under its limit. */
+  public long evictions()
+  {
+    return evictions.sum();
+  }
+
+  /**
+   * Borrows a statement from the cache, it must be given back through {@link #release(Connection, Key, PreparedStatement)}.
+   *
+   * @param connection connection used to prepare the statement.
+   * @param key        SQL and configuration of the statement.
+   * @return a statement prepared previously; {@literal null} if there is none available.
+   */
+  PreparedStatement borrow(
+      final Connection connection,
+      final Key key)
+  {
+    final var statements = statementsByConnection.get(new Owner(connection));
+    if (statements != null) {
+      final PreparedStatement statement;
+      synchronized (statements) {
+        statement = statements.remove(key);
+      }
+      if (statement != null) {
+        if (isOpen(statement)) {
+          hits.increment();
+          return statement;
+        }
+        // the connection was closed, so any other statement of it is useless too
+        statementsByConnection.remove(new Owner(connection), statements);
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Gives back a statement to the cache, or closes it when there is another statement for the same SQL already cached.
+   *
+   * @param connection connection used to prepare the statement.
+   * @param key        SQL and configuration of the statement.
+   * @param statement  statement to give back.
+   * @throws SQLException if the statement can't be closed.
+   */
+  void release(
+      final Connection connection,
+      final Key key,
+      final PreparedStatement statement)
+      throws SQLException
+  {
+    if (!isOpen(statement)) {
+      // the connection was closed while the statement was borrowed
+      invalidate(connection);
+      return;
+    }
+    final var statements = statementsByConnection.computeIfAbsent(new Owner(connection), owner -> new Statements());
+    final PreparedStatement replaced;
+    synchronized (statements) {
+      // when the statements were invalidated concurrently, after being looked up, this one is closed as they were
+      replaced = statements.invalidated ? statement : statements.putIfAbsent(key, statement);
+    }
+    if (replaced != null) {
+      statement.close();
+    }
+  }
+
+  /**
+   * Closes and forgets all the statements cached for a connection. Should be called before closing the connection.
+   *
+   * @param connection connection which statements must be released.
+   * @throws SQLException if some of the statements can't be closed.
+   */
+  public void invalidate(final Connection connection) throws SQLException
+  {
+    final var statements = statementsByConnection.remove(new Owner(connection));
+    if (statements != null) {
+      closeAll(statements);
+    }
+  }
+
+  /**
+   * Wraps a connection not managed by a {@link ConnectionPool}, so closing it releases the statements cached for it.
+   *
+   * @param connection connection to wrap.
+   * @return a connection delegating to {@code connection}, that calls {@link #invalidate(Connection)} before closing it.
+   * @throws NullPointerException if {@code connection} is {@literal null}.
+   */
+  public Connection invalidatingOnClose(final Connection connection)
+  {
+    if (connection == null) {
+      throw new NullPointerException("connection");
+    }
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "close":
+          try {
+            invalidate((Connection) proxy);
+          } finally {
+            connection.close();
+          }
+          return null;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          try {
+            return method.invoke(connection, args);
+          } catch (final InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    });
+  }
+
+  /**
+   * Closes and forgets all the statements cached.
+   *
+   * @throws SQLException if some of the statements can't be closed.
+   */
+  public void clear() throws SQLException
+  {
+    SQLException failure = null;
+    for (final var owner : statementsByConnection.keySet()) {
+      final var statements = statementsByConnection.remove(owner);
+      if (statements == null) {
+        continue;
+      }
+      try {
+        closeAll(statements);
+      } catch (final SQLException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.setNextException(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static boolean isOpen(final PreparedStatement statement)
+  {
+    try {
+      return !statement.isClosed();
+    } catch (final SQLException e) {
+      return false;
+    }
+  }
+
+  private static void closeAll(final Statements statements) throws SQLException
+  {
+    final List<PreparedStatement> toClose;
+    synchronized (statements) {
+      toClose = new ArrayList<>(statements.values());
+      statements.clear();
+      statements.invalidated = true;
+    }
+    SQLException failure = null;
+    for (final var statement : toClose) {
+      try {
+        statement.close();
+      } catch (final SQLException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.setNextException(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /** Statements of a connection, in least recently used order. */
+  private final class Statements
+      extends LinkedHashMap<Key, PreparedStatement>
+  {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    /** have they been closed and forgotten? Guarded by the lock of this map. */
+    boolean invalidated;
+
+    Statements()
+    {
+      super(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    }
+
+    @Override protected boolean removeEldestEntry(final Map.Entry<Key, PreparedStatement> eldest)
+    {
+      if (size() > maxStatementsPerConnection) {
+        evictions.increment();
+        try {
+          eldest.getValue().close();
+        } catch (final SQLException e) {
+          // the statement is useless anyway
+        }
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /** A connection compared by identity, as drivers may define equality of connections in other ways. */
+  private static final class Owner
+  {
+    final Connection connection;
+
+    Owner(final Connection connection)
+    {
+      this.connection = connection;
+    }
+
+    @Override public int hashCode()
+    {
+      return System.identityHashCode(connection);
+    }
+
+    @Override public boolean equals(final Object o)
+    {
+      return o instanceof Owner && connection == ((Owner) o).connection;
+    }
+  }
+
+  /** Identifies the statements that can be reused by a {@link SqlStatement}: the ones with the same SQL and configuration. */
+  static final class Key
+  {
+    final String sql;
+    final SqlStatement.Configuration configuration;
+    private final int hash;
+
+    Key(
+        final String sql,
+        final SqlStatement.Configuration configuration)
+    {
+      this.sql = sql;
+      this.configuration = configuration;
+      this.hash = Objects.hash(sql, configuration);
+    }
+
+    @Override public int hashCode()
+    {
+      return hash;
+    }
+
+    @Override public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o instanceof Key) {
+        final var other = (Key) o;
+        return hash == other.hash && Objects.equals(sql, other.sql) && Objects.equals(configuration, other.configuration);
+      }
+      return false;
+    }
+  }
+}
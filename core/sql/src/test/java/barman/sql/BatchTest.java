@@ -0,0 +1,88 @@
+/*
+ The MIT License
+
+ Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+package barman.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchTest
+{
+  @Test void should_expand_the_values_of_one_row()
+  {
+    final var values = Batch.ValuesClause.of("INSERT INTO Players (id, name) values (?, lower(?));");
+
+    assertThat(values).isNotNull();
+    assertThat(values.head).isEqualTo("INSERT INTO Players (id, name) values ");
+    assertThat(values.row).isEqualTo("(?, lower(?))");
+    assertThat(values.parameters).isEqualTo(2);
+  }
+
+  @Test void should_not_count_placeholders_in_quoted_text_nor_comments()
+  {
+    final var values = Batch.ValuesClause.of(
+        "INSERT INTO \"Who?\" (id, name, note) VALUES (?, 'what?', /* or ? */ 'it''s ?' || ? -- really?\n) -- done?");
+
+    assertThat(values).isNotNull();
+    assertThat(values.row).isEqualTo("(?, 'what?', /* or ? */ 'it''s ?' || ? -- really?\n)");
+    assertThat(values.parameters).isEqualTo(2);
+  }
+
+  @Test void should_ignore_parentheses_and_values_keyword_in_quoted_text()
+  {
+    final var values = Batch.ValuesClause.of("INSERT INTO Notes (\"values\", text) VALUES (?, ') VALUES (')");
+
+    assertThat(values).isNotNull();
+    assertThat(values.head).isEqualTo("INSERT INTO Notes (\"values\", text) VALUES ");
+    assertThat(values.parameters).isEqualTo(1);
+  }
+
+  @Test void should_reject_statements_with_anything_after_the_values()
+  {
+    assertThat(Batch.ValuesClause.of("INSERT INTO Players (id, name) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET name = lower(?)")).isNull();
+    assertThat(Batch.ValuesClause.of("INSERT INTO Players (id, name) VALUES (?, ?), (?, ?)")).isNull();
+    assertThat(Batch.ValuesClause.of("INSERT INTO Players (id, name) VALUES (?, ?) RETURNING id")).isNull();
+    assertThat(Batch.ValuesClause.of("INSERT INTO Players (id, name) VALUES (?, ?);;")).isNull();
+    assertThat(Batch.ValuesClause.of("INSERT INTO Players (id, name) VALUES (?, '?)")).isNull();
+    assertThat(Batch.ValuesClause.of("INSERT INTO Players (id, name) SELECT id, name FROM Users")).isNull();
+    assertThat(Batch.ValuesClause.of("UPDATE Players SET name = ? WHERE id = ?")).isNull();
+  }
+
+  @Test void should_not_expand_statements_without_a_trailing_values_clause()
+  {
+    assertThatThrownBy(() -> new Batch<String>(
+        "INSERT INTO Players (id, name) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET name = lower(?)", SqlStatement.Configuration.none(), 10, 5)
+    {
+      @Override protected void setParametersTo(
+          final java.sql.PreparedStatement ps,
+          final int firstParameter,
+          final String row)
+      {
+        // never executed
+      }
+    }).isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("VALUES (...)");
+  }
+}
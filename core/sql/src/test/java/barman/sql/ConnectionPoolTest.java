@@ -0,0 +1,233 @@
+/*
+ The MIT License
+
+ Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+package barman.sql;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionPoolTest
+{
+  static final Duration LONG = Duration.ofSeconds(10);
+
+  final Physicals physicals = new Physicals();
+  ConnectionPool pool;
+
+  @BeforeEach void createPool()
+  {
+    pool = new ConnectionPool(physicals, 4, LONG, LONG, Duration.ZERO);
+  }
+
+  @AfterEach void closePool()
+  {
+    pool.close();
+  }
+
+  @Test void should_never_lend_more_connections_than_its_maximum_size_under_contention() throws Exception
+  {
+    final var threads = 16;
+    final var inUse = new AtomicInteger();
+    final var maxInUse = new AtomicInteger();
+    final var start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<?>> borrowers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        borrowers.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < 200; i++) {
+            try (var connection = pool.connection();
+                 var statement = connection.createStatement();
+                 var rs = statement.executeQuery("SELECT 1")) {
+              maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+              assertThat(rs.next()).isTrue();
+              inUse.decrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (final var borrower : borrowers) {
+        borrower.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(maxInUse.get()).isBetween(1, 4);
+    assertThat(physicals.created.get()).isBetween(1, 4);
+    assertThat(pool.size()).isEqualTo(physicals.created.get());
+    assertThat(pool.available()).isEqualTo(4);
+  }
+
+  @Test void should_give_up_borrowing_after_the_borrow_timeout() throws Exception
+  {
+    pool.close();
+    pool = new ConnectionPool(physicals, 1, Duration.ofMillis(100), LONG, Duration.ZERO);
+    try (var connection = pool.connection()) {
+      final var started = System.nanoTime();
+      assertThatThrownBy(pool::connection).isInstanceOf(SQLTransientConnectionException.class);
+      assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+      assertThat(connection.isValid(1)).isTrue();
+    }
+    try (var connection = pool.connection()) {
+      assertThat(connection.isValid(1)).isTrue();
+    }
+    assertThat(physicals.created.get()).isEqualTo(1);
+  }
+
+  @Test void should_discard_connections_failing_with_connection_errors() throws Exception
+  {
+    final var connection = pool.connection();
+    physicals.broken.set(true);
+    assertThatThrownBy(() -> connection.createStatement()).isInstanceOf(SQLException.class);
+    physicals.broken.set(false);
+    connection.close();
+
+    assertThat(pool.size()).isZero();
+    assertThat(physicals.all.get(0).isClosed()).isTrue();
+    try (var another = pool.connection()) {
+      assertThat(another.isValid(1)).isTrue();
+    }
+    assertThat(physicals.created.get()).isEqualTo(2);
+    assertThat(pool.available()).isEqualTo(4);
+  }
+
+  @Test void should_discard_invalid_connections_when_borrowed_after_being_idle() throws Exception
+  {
+    pool.close();
+    pool = new ConnectionPool(physicals, 4, LONG, Duration.ZERO, Duration.ZERO);
+    pool.connection().close();
+    physicals.all.get(0).close();
+
+    try (var connection = pool.connection()) {
+      assertThat(connection.isValid(1)).isTrue();
+    }
+    assertThat(physicals.created.get()).isEqualTo(2);
+    assertThat(pool.size()).isEqualTo(1);
+  }
+
+  @Test void should_close_connections_in_use_when_given_back_after_closing_the_pool() throws Exception
+  {
+    final var inUse = pool.connection();
+    pool.connection().close();
+    assertThat(pool.size()).isEqualTo(2);
+
+    pool.close();
+    assertThat(pool.size()).isEqualTo(1);
+    assertThatThrownBy(pool::connection).isInstanceOf(SQLException.class).hasMessageContaining("closed");
+    try (var statement = inUse.createStatement(); var rs = statement.executeQuery("SELECT 1")) {
+      assertThat(rs.next()).isTrue();
+    }
+
+    inUse.close();
+    assertThat(pool.size()).isZero();
+    for (final var physical : physicals.all) {
+      assertThat(physical.isClosed()).isTrue();
+    }
+  }
+
+  @Test void should_restore_the_state_of_connections_given_back() throws Exception
+  {
+    final Connection first = pool.connection();
+    try (var statement = first.createStatement()) {
+      statement.execute("CREATE SCHEMA IF NOT EXISTS other");
+    }
+    final var isolation = first.getTransactionIsolation();
+    final var schema = first.getSchema();
+    first.setAutoCommit(false);
+    first.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    first.setSchema("OTHER");
+    try (var statement = first.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS Notes (id INT)");
+      statement.execute("INSERT INTO Notes VALUES (1)");
+    }
+    first.setReadOnly(true);
+    first.close();
+
+    try (var connection = pool.connection()) {
+      assertThat(physicals.created.get()).isEqualTo(1);
+      assertThat(connection.getAutoCommit()).isTrue();
+      assertThat(connection.getTransactionIsolation()).isEqualTo(isolation);
+      assertThat(connection.isReadOnly()).isFalse();
+      assertThat(connection.getSchema()).isEqualTo(schema);
+      assertThat((Object) connection.getWarnings()).isNull();
+      try (var statement = connection.createStatement(); var rs = statement.executeQuery("SELECT count(*) FROM other.Notes")) {
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getInt(1)).as("rolled back rows").isZero();
+      }
+    }
+  }
+
+  /** Creates H2 connections, which can be made to fail as if the link to the database was lost. */
+  static final class Physicals
+      implements ConnectionSupplier
+  {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    final String url = "jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+    final AtomicInteger created = new AtomicInteger();
+    final AtomicBoolean broken = new AtomicBoolean();
+    final List<Connection> all = new CopyOnWriteArrayList<>();
+
+    @Override public Connection connection() throws SQLException
+    {
+      final var h2 = DriverManager.getConnection(url);
+      created.incrementAndGet();
+      all.add(h2);
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+        if (broken.get() && !"close".equals(method.getName())) {
+          throw new SQLException("link lost", "08S01");
+        }
+        try {
+          return method.invoke(h2, args);
+        } catch (final InvocationTargetException e) {
+          throw e.getCause();
+        }
+      });
+    }
+  }
+}
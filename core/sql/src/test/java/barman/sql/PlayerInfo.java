@@ -31,6 +31,13 @@ class PlayerInfo
   private static final int PLAYER_ID = 1;
   private static final int NAME = 2;
 
+  /** Maps rows by the labels of their columns, so it doesn't depend on their order. */
+  static final RowMapper<PlayerInfo> BY_LABEL = ColumnLabels.mapper(columns -> {
+    final int playerId = columns.indexOf("playerId");
+    final int name = columns.indexOf("name");
+    return rs -> new PlayerInfo(PlayerId.at(rs, playerId), Name.at(rs, name));
+  });
+
   final PlayerId playerId;
   final Name name;
 
@@ -26,7 +26,7 @@ package barman.sql;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
-/** Sample of a SELECT querying for an object with ONE parameter. */
+/** Sample of a SELECT querying for an object with ONE parameter, caching its results. */
 final class PlayerName
     extends SelectObject
 {
@@ -38,6 +38,7 @@ final class PlayerName
   PlayerName()
   {
     super("SELECT name FROM Players WHERE id = ?", Configuration.none());
+    cacheResultsIn(PlayersRepository.REFERENCE_DATA);
   }
 
   PlayerName playerId(final PlayerId value)
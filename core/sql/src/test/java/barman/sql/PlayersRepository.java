@@ -25,16 +25,29 @@ package barman.sql;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 class PlayersRepository
     extends Repository
 {
+  static final QueryCache REFERENCE_DATA = new QueryCache(10_000, Duration.ofMinutes(10));
+
   int countAll(final Connection connection) throws SQLException
   {
     return CountPlayers.get().query(connection);
   }
 
+  /** Sample of independent queries running in parallel, each one with its own connection. */
+  CompletableFuture<String> describeAll(final ConnectionSupplier connections)
+  {
+    final var count = CountPlayers.get().queryAsync(connections);
+    final var ids = new PlayerIds().queryAsync(connections);
+    return count.thenCombine(ids, (players, playerIds) -> players + " players: " + playerIds);
+  }
+
   String getPlayerName(
       final Connection connection,
       final PlayerId playerId) throws SQLException
@@ -53,4 +66,31 @@ class PlayersRepository
                .passing(passing)
                .query(connection, PlayerInfo::at);
   }
+
+  int renamePlayer(
+      final Connection connection,
+      final PlayerId playerId,
+      final Name name) throws SQLException
+  {
+    final var renamed = new RenamePlayer().playerId(playerId).name(name).execute(connection);
+    REFERENCE_DATA.invalidate(PlayerName.class);
+    return renamed;
+  }
+
+  long insertPlayers(
+      final Connection connection,
+      final List<PlayerInfo> players) throws SQLException
+  {
+    return new InsertPlayers().execute(connection, players);
+  }
+
+  Stream<PlayerInfo> streamAll(final Connection connection) throws SQLException
+  {
+    return new AllPlayers().query(connection, PlayerInfo.BY_LABEL);
+  }
+
+  LongList allPlayerIds(final Connection connection) throws SQLException
+  {
+    return new PlayerIds().query(connection);
+  }
 }
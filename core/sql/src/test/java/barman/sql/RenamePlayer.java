@@ -0,0 +1,77 @@
+/*
+ The MIT License
+
+ Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+package barman.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/** Sample of an UPDATE with parameters. */
+final class RenamePlayer
+    extends Update
+{
+  private PlayerId playerId;
+  private Name name;
+
+  /**
+   * Constructs an instance of {@link RenamePlayer}.
+   */
+  RenamePlayer()
+  {
+    super("UPDATE Players SET name = ? WHERE id = ?", Configuration.none());
+  }
+
+  RenamePlayer playerId(final PlayerId value)
+  {
+    playerId = value;
+    return this;
+  }
+
+  RenamePlayer name(final Name value)
+  {
+    name = value;
+    return this;
+  }
+
+  @Override protected void setParametersTo(final PreparedStatement ps) throws SQLException
+  {
+    if (playerId == null) {
+      throw new IllegalStateException("'playerId' was not set");
+    }
+    if (name == null) {
+      throw new IllegalStateException("'name' was not set");
+    }
+    name.set(ps, 1);
+    playerId.set(ps, 2);
+  }
+
+  @Override protected boolean hasParameters()
+  {
+    return true;
+  }
+
+  @Override protected void appendParametersDescriptionTo(final StringBuilder msg)
+  {
+    msg.append("name: ").append(name).append(", playerId: ").append(playerId);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Runs an action asynchronously, so slow actions (waiting for downstream services, for example) don't hold a container thread.
+ * <p>
+ * The request is put in asynchronous mode, and the action runs on an executor managed by barman (virtual threads when the JVM has them), completing
+ * the request when it returns. Actions which throw are responded with {@code 500 Internal Server Error}, and actions still running after
+ * {@link #timeout()} with {@code 503 Service Unavailable}.
+ * <p>
+ * At most {@link #maxPending()} requests of the action are processed at once, further requests are rejected with
+ * {@code 503 Service Unavailable} until some of them completes. Requests passing through filters not supporting asynchronous mode are processed
+ * synchronously.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Async
+{
+  /** @return for how many seconds the action can run, before the request is responded as timed out. */
+  long timeout() default 30;
+
+  /** @return how many requests of the action can be processed at once. */
+  int maxPending() default 256;
+}
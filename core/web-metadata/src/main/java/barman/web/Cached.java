@@ -0,0 +1,55 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Keeps the responses of a {@link GET} action at a server side cache, so the action runs once per key until its response expires.
+ * <p>
+ * Responses are keyed by the request path (so by its path variables) and the query parameters named by {@link #varyBy()}; concurrent requests for
+ * the same key wait for the first one, instead of running the action each. Only {@code 200 OK} responses which don't set cookies nor
+ * {@code Cache-Control: no-store} or {@code private} are cached.
+ * <p>
+ * Responses are shared by all users. Requests with an {@code Authorization} header, a session id or any cookie bypass the cache, so they always
+ * run the action; even so, actions responding something specific to the logged user should not be cached. Marking a non {@code GET} action is a
+ * compilation error.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Cached
+{
+  /** @return for how many seconds a response is kept, since it was produced. */
+  long ttl() default 60;
+
+  /** @return names of the query parameters which produce different responses. */
+  String[] varyBy() default {};
+
+  /** @return how many responses can be kept at once. */
+  long maximumSize() default 1_000;
+}
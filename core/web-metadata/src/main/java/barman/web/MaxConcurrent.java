@@ -0,0 +1,58 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Limits how many requests an action processes at once, so one expensive action can't starve the rest.
+ * <p>
+ * When used on an {@link Endpoint}, all its actions share one limit; actions with their own {@code @MaxConcurrent} use it instead. Requests
+ * arriving when the limit has been reached wait for up to {@link #queueTimeout()} milliseconds, if less than {@link #queue()} requests are already
+ * waiting; other way they are rejected with {@code 503 Service Unavailable} and {@code Retry-After}.
+ * <p>
+ * Adaptive limits start at {@link #value()} and are lowered while latencies grow over their usual values, raising them back (up to
+ * {@link #value()}) once latencies recover.
+ */
+@Retention(SOURCE)
+@Target({TYPE, METHOD})
+public @interface MaxConcurrent
+{
+  /** @return how many requests can be processed at once. */
+  int value();
+
+  /** @return how many requests can wait for others to be processed. */
+  int queue() default 0;
+
+  /** @return for how many milliseconds a request can wait, before being rejected. */
+  long queueTimeout() default 100;
+
+  /** @return should the limit be lowered when latencies grow? */
+  boolean adaptive() default false;
+}
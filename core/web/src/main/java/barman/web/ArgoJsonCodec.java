@@ -0,0 +1,82 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import argo.format.CompactJsonFormatter;
+import argo.format.JsonFormatter;
+import argo.jdom.JdomParser;
+import argo.jdom.JsonNode;
+import argo.saj.InvalidSyntaxException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/** {@link JsonCodec} implemented with <a href="http://argo.sourceforge.net/">Argo</a>, used when no other is defined. */
+final class ArgoJsonCodec
+    implements JsonCodec
+{
+  /** parser to use to interpret json contents, it is thread safe so every codec shares it. */
+  private static final JdomParser JDOM_PARSER = new JdomParser();
+
+  /** formatter used to print json content. */
+  private final JsonFormatter formatter;
+
+  /** Builds an {@link ArgoJsonCodec} printing json content using a {@link CompactJsonFormatter}. */
+  ArgoJsonCodec()
+  {
+    this(new CompactJsonFormatter());
+  }
+
+  /** @param formatter formatter to use to print json content. */
+  ArgoJsonCodec(final JsonFormatter formatter)
+  {
+    this.formatter = formatter;
+  }
+
+  @Override public JsonNode parse(final Reader reader)
+      throws InvalidSyntaxException, IOException
+  {
+    return JDOM_PARSER.parse(reader);
+  }
+
+  @Override public JsonNode parse(final String content)
+      throws InvalidSyntaxException
+  {
+    return JDOM_PARSER.parse(content);
+  }
+
+  @Override public String format(final JsonNode json)
+  {
+    return formatter.format(json);
+  }
+
+  @Override public void format(
+      final JsonNode json,
+      final Writer writer)
+      throws IOException
+  {
+    formatter.format(json, writer);
+  }
+}
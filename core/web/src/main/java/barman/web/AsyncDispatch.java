@@ -0,0 +1,579 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs actions asynchronously, used by the routers of actions marked as {@code @Async}.
+ * <p>
+ * Each request is put in asynchronous mode and its action runs on an executor managed by barman, so the container thread is released right away.
+ * The request is completed when the action returns; when it throws, or when it runs for longer than the timeout, an error is sent instead.
+ * Containers recycle the response of a completed request, so once the request is completed the action can't touch it anymore: what it writes is
+ * dropped, and its response reports itself as committed.
+ * <p>
+ * The number of requests being processed is limited, requests arriving when the limit has been reached are rejected with
+ * {@code 503 Service Unavailable} and {@code Retry-After}, instead of queueing work the executor can't keep up with. This class is thread safe.
+ */
+public final class AsyncDispatch
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncDispatch.class);
+  /** seconds a rejected client should wait before retrying. */
+  private static final String RETRY_AFTER = "1";
+
+  /** Executor to run actions, if one was set. */
+  private static volatile Executor executor;
+
+  private final long timeoutMillis;
+  private final int maxPending;
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /**
+   * Constructs a dispatcher for some action.
+   *
+   * @param timeout    for how long the action can run, before its request is responded as timed out.
+   * @param maxPending how many requests can be processed at once.
+   * @throws IllegalArgumentException if {@code timeout} isn't positive or {@code maxPending < 1}.
+   */
+  public AsyncDispatch(
+      final Duration timeout,
+      final int maxPending)
+  {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive, but it is " + timeout);
+    }
+    if (maxPending < 1) {
+      throw new IllegalArgumentException("maxPending must be >= 1, but it is " + maxPending);
+    }
+    this.timeoutMillis = timeout.toMillis();
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * Sets the executor to run <em>ALL</em> asynchronous actions.
+   *
+   * @param value executor to use; {@literal null} to use the default.
+   */
+  static void runOn(final Executor value)
+  {
+    executor = value;
+  }
+
+  private static Executor executor()
+  {
+    final var current = executor;
+    return current == null ? DefaultExecutor.INSTANCE : current;
+  }
+
+  /** @return number of requests being processed. */
+  public int pending()
+  {
+    return pending.get();
+  }
+
+  /**
+   * Processes a request asynchronously, or synchronously when the request doesn't support asynchronous mode.
+   *
+   * @param request  request to respond.
+   * @param response where to send the response.
+   * @param action   action producing the response.
+   * @throws ServletException if the action fails, when processed synchronously.
+   * @throws IOException      if the response can't be sent.
+   */
+  public void dispatch(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final Action action) throws ServletException, IOException
+  {
+    if (!request.isAsyncSupported()) {
+      action.handle(request, response);
+      return;
+    }
+    if (!tryAcquire()) {
+      response.setHeader("Retry-After", RETRY_AFTER);
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+    final AsyncContext context;
+    try {
+      context = request.startAsync(request, response);
+    } catch (final RuntimeException e) {
+      pending.decrementAndGet();
+      throw e;
+    }
+    final var task = new Task(context, request, response, action);
+    context.addListener(task);
+    context.setTimeout(timeoutMillis);
+    try {
+      executor().execute(task);
+    } catch (final RejectedExecutionException e) {
+      response.setHeader("Retry-After", RETRY_AFTER);
+      task.finish(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+    }
+  }
+
+  private boolean tryAcquire()
+  {
+    for (;;) {
+      final var current = pending.get();
+      if (current >= maxPending) {
+        return false;
+      }
+      if (pending.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** An action running for some request, it completes the request once: when the action ends, or when the request times out or fails. */
+  private final class Task
+      implements Runnable, AsyncListener
+  {
+    private final AsyncContext context;
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final Action action;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    /** held to change the response seen by the action, and to finish the task, so the action never writes to a completed response. */
+    private final Object output = new Object();
+    /** thread running the action, {@literal null} when it isn't running. */
+    private Thread runner;
+
+    Task(
+        final AsyncContext context,
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final Action action)
+    {
+      this.context = context;
+      this.request = request;
+      this.response = response;
+      this.action = action;
+    }
+
+    @Override public void run()
+    {
+      if (!started()) {
+        return;
+      }
+      try {
+        action.handle(request, new Guarded(response));
+        finish(0, null);
+      } catch (final Throwable e) {
+        // errors too, as otherwise the request would be completed only at timeout, and nothing would be logged
+        finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+      } finally {
+        stopped();
+      }
+    }
+
+    private synchronized boolean started()
+    {
+      if (finished.get()) {
+        return false;
+      }
+      runner = Thread.currentThread();
+      return true;
+    }
+
+    private synchronized void stopped()
+    {
+      runner = null;
+      // an interrupt sent at timeout must not leak to the next task run by this thread
+      Thread.interrupted();
+    }
+
+    private synchronized void interrupt()
+    {
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+
+    /**
+     * Completes the request, unless it was already completed.
+     *
+     * @param status status of the error to send, {@code 0} to send the response as the action left it.
+     * @param error  exception thrown by the action, can be {@literal null}.
+     */
+    void finish(
+        final int status,
+        final Throwable error)
+    {
+      // waits for any write of the action in progress, later ones are dropped
+      synchronized (output) {
+        if (!finished.compareAndSet(false, true)) {
+          return;
+        }
+      }
+      try {
+        if (status != 0) {
+          if (error != null) {
+            LOGGER.error("Exception when processing " + request.getRequestURI() + " asynchronously", error);
+            request.setAttribute(RequestDispatcher.ERROR_EXCEPTION, error);
+          }
+          if (!response.isCommitted()) {
+            response.sendError(status);
+          }
+        }
+      } catch (final IOException | RuntimeException e) {
+        LOGGER.warn("Exception when trying to send error " + status, e);
+      } finally {
+        context.complete();
+      }
+    }
+
+    @Override public void onTimeout(final AsyncEvent event)
+    {
+      finish(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+      interrupt();
+    }
+
+    @Override public void onError(final AsyncEvent event)
+    {
+      finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, event.getThrowable());
+      interrupt();
+    }
+
+    @Override public void onComplete(final AsyncEvent event)
+    {
+      pending.decrementAndGet();
+    }
+
+    @Override public void onStartAsync(final AsyncEvent event)
+    {
+      // nothing to do, requests are put in asynchronous mode once
+    }
+
+    /** Runs a change of the response, unless the task is finished. */
+    private void change(final Change change) throws IOException
+    {
+      synchronized (output) {
+        if (!finished.get()) {
+          change.apply();
+        }
+      }
+    }
+
+    /** Runs a change of the response which can't fail, unless the task is finished. */
+    private void set(final Runnable change)
+    {
+      synchronized (output) {
+        if (!finished.get()) {
+          change.run();
+        }
+      }
+    }
+
+    /** The response seen by the action, which ignores any change once the task is finished. */
+    private final class Guarded
+        extends HttpServletResponseWrapper
+    {
+      private ServletOutputStream outputStream;
+      private PrintWriter writer;
+
+      Guarded(final HttpServletResponse response)
+      {
+        super(response);
+      }
+
+      @Override public boolean isCommitted()
+      {
+        synchronized (output) {
+          return finished.get() || super.isCommitted();
+        }
+      }
+
+      @Override public ServletOutputStream getOutputStream() throws IOException
+      {
+        if (outputStream == null) {
+          outputStream = new GuardedStream(super.getOutputStream());
+        }
+        return outputStream;
+      }
+
+      @Override public PrintWriter getWriter() throws IOException
+      {
+        if (writer == null) {
+          writer = new PrintWriter(new GuardedWriter(super.getWriter()));
+        }
+        return writer;
+      }
+
+      @Override public void sendError(
+          final int sc,
+          final String msg) throws IOException
+      {
+        change(() -> super.sendError(sc, msg));
+      }
+
+      @Override public void sendError(final int sc) throws IOException
+      {
+        change(() -> super.sendError(sc));
+      }
+
+      @Override public void sendRedirect(final String location) throws IOException
+      {
+        change(() -> super.sendRedirect(location));
+      }
+
+      @Override public void flushBuffer() throws IOException
+      {
+        change(super::flushBuffer);
+      }
+
+      @Override public void setStatus(final int sc)
+      {
+        set(() -> super.setStatus(sc));
+      }
+
+      @Override public void setHeader(
+          final String name,
+          final String value)
+      {
+        set(() -> super.setHeader(name, value));
+      }
+
+      @Override public void addHeader(
+          final String name,
+          final String value)
+      {
+        set(() -> super.addHeader(name, value));
+      }
+
+      @Override public void setIntHeader(
+          final String name,
+          final int value)
+      {
+        set(() -> super.setIntHeader(name, value));
+      }
+
+      @Override public void addIntHeader(
+          final String name,
+          final int value)
+      {
+        set(() -> super.addIntHeader(name, value));
+      }
+
+      @Override public void setDateHeader(
+          final String name,
+          final long date)
+      {
+        set(() -> super.setDateHeader(name, date));
+      }
+
+      @Override public void addDateHeader(
+          final String name,
+          final long date)
+      {
+        set(() -> super.addDateHeader(name, date));
+      }
+
+      @Override public void addCookie(final Cookie cookie)
+      {
+        set(() -> super.addCookie(cookie));
+      }
+
+      @Override public void setContentType(final String type)
+      {
+        set(() -> super.setContentType(type));
+      }
+
+      @Override public void setCharacterEncoding(final String charset)
+      {
+        set(() -> super.setCharacterEncoding(charset));
+      }
+
+      @Override public void setContentLength(final int len)
+      {
+        set(() -> super.setContentLength(len));
+      }
+
+      @Override public void setContentLengthLong(final long len)
+      {
+        set(() -> super.setContentLengthLong(len));
+      }
+
+      @Override public void setLocale(final Locale loc)
+      {
+        set(() -> super.setLocale(loc));
+      }
+
+      @Override public void setBufferSize(final int size)
+      {
+        set(() -> super.setBufferSize(size));
+      }
+
+      @Override public void reset()
+      {
+        set(super::reset);
+      }
+
+      @Override public void resetBuffer()
+      {
+        set(super::resetBuffer);
+      }
+    }
+
+    /** The body of the response seen by the action, dropped once the task is finished. */
+    private final class GuardedStream
+        extends ServletOutputStream
+    {
+      private final ServletOutputStream body;
+
+      GuardedStream(final ServletOutputStream body)
+      {
+        this.body = body;
+      }
+
+      @Override public boolean isReady()
+      {
+        synchronized (output) {
+          return finished.get() || body.isReady();
+        }
+      }
+
+      @Override public void setWriteListener(final WriteListener writeListener)
+      {
+        set(() -> body.setWriteListener(writeListener));
+      }
+
+      @Override public void write(final int b) throws IOException
+      {
+        change(() -> body.write(b));
+      }
+
+      @Override public void write(
+          final byte[] b,
+          final int off,
+          final int len) throws IOException
+      {
+        change(() -> body.write(b, off, len));
+      }
+
+      @Override public void flush() throws IOException
+      {
+        change(body::flush);
+      }
+
+      @Override public void close() throws IOException
+      {
+        change(body::close);
+      }
+    }
+
+    /** The body of the response seen by the action, as text, dropped once the task is finished. */
+    private final class GuardedWriter
+        extends Writer
+    {
+      private final Writer body;
+
+      GuardedWriter(final Writer body)
+      {
+        this.body = body;
+      }
+
+      @Override public void write(
+          final char[] cbuf,
+          final int off,
+          final int len) throws IOException
+      {
+        change(() -> body.write(cbuf, off, len));
+      }
+
+      @Override public void write(
+          final String str,
+          final int off,
+          final int len) throws IOException
+      {
+        change(() -> body.write(str, off, len));
+      }
+
+      @Override public void flush() throws IOException
+      {
+        change(body::flush);
+      }
+
+      @Override public void close() throws IOException
+      {
+        change(body::close);
+      }
+    }
+  }
+
+  /** A change of a response, which can fail. */
+  @FunctionalInterface private interface Change
+  {
+    void apply() throws IOException;
+  }
+
+  /**
+   * Executor used when none is set: virtual threads when available (JDK 21+), otherwise a pool of daemon threads.
+   * <p>
+   * It duplicates {@code barman.sql.AsyncQuery.DefaultExecutor}, as barman/web and barman/sql don't share any runtime module; keep both in sync.
+   */
+  private static final class DefaultExecutor
+  {
+    static final Executor INSTANCE = create();
+
+    private static Executor create()
+    {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+        final var threads = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+          final var thread = new Thread(task, "barman-action-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+  }
+}
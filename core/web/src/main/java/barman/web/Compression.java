@@ -0,0 +1,350 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import barman.web.EndPointServlet.Header;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Negotiation of the content coding of response bodies, and the {@code gzip} and {@code deflate} encoders.
+ * <p>
+ * Compression is disabled until {@link EndPointServlet#compressResponsesOver(int, ContentEncoder...)} is called. Only bodies fully kept in memory
+ * are compressed, so their compressed length is known and sent as {@code Content-Length}.
+ * <p>
+ * {@link Deflater} instances hold native memory and are expensive to create, so they are pooled and reset after each use instead of ending them.
+ */
+final class Compression
+{
+  /** {@code gzip} coding, a deflate stream framed by a fixed header and a CRC32 trailer. */
+  static final ContentEncoder GZIP = new Gzip();
+  /** {@code deflate} coding, a deflate stream framed by zlib. */
+  static final ContentEncoder DEFLATE = new Zlib();
+
+  /** default encoders, by preference order. */
+  private static final ContentEncoder[] DEFAULT_ENCODERS = {GZIP, DEFLATE};
+  /** current settings, {@literal null} when responses must not be compressed. */
+  private static volatile Settings settings;
+
+  private Compression()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Enables the compression of response bodies.
+   *
+   * @param minimumSize size of the smallest body to compress, in bytes.
+   * @param encoders    encoders to use, by preference order; {@link #GZIP} and {@link #DEFLATE} when empty.
+   */
+  static void enable(
+      final int minimumSize,
+      final ContentEncoder... encoders)
+  {
+    final var used = encoders.length == 0 ? DEFAULT_ENCODERS : encoders.clone();
+    for (final var encoder : used) {
+      if (encoder == null) {
+        throw new NullPointerException("encoders can't have null elements");
+      }
+    }
+    settings = new Settings(minimumSize, used);
+  }
+
+  /** Disables the compression of response bodies. */
+  static void disable()
+  {
+    settings = null;
+  }
+
+  /**
+   * @param length length of a response body, in bytes.
+   * @return {@literal true} if a body of {@code length} bytes is compressed for clients accepting it, so the response varies by
+   * {@code Accept-Encoding}.
+   */
+  static boolean varies(final int length)
+  {
+    final var current = settings;
+    return current != null && length >= current.minimumSize;
+  }
+
+  /**
+   * Chooses the coding of a response body, the most preferred encoder that the client accepts.
+   *
+   * @param request request being responded.
+   * @param length  length of the response body, in bytes.
+   * @return the encoder to use, {@literal null} when the body must be sent as is.
+   */
+  static ContentEncoder negotiate(
+      final HttpServletRequest request,
+      final int length)
+  {
+    final var current = settings;
+    if (current == null || length < current.minimumSize) {
+      return null;
+    }
+    final var accepted = request.getHeader(Header.ACCEPT_ENCODING.name());
+    if (accepted == null || accepted.isEmpty()) {
+      return null;
+    }
+    for (final var encoder : current.encoders) {
+      if (isAccepted(accepted, encoder.name())) {
+        return encoder;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Marks a response as compressed, after negotiating it with {@link #negotiate(HttpServletRequest, int)}.
+   *
+   * @param response response to mark.
+   * @param encoder  encoder used on the response body, {@literal null} if it wasn't compressed.
+   * @param length   length of the response body, as it is sent.
+   */
+  static void mark(
+      final HttpServletResponse response,
+      final ContentEncoder encoder,
+      final int length)
+  {
+    if (encoder != null) {
+      response.setHeader(Header.CONTENT_ENCODING.name(), encoder.name());
+      response.addHeader("Vary", Header.ACCEPT_ENCODING.name());
+    } else if (varies(length)) {
+      response.addHeader("Vary", Header.ACCEPT_ENCODING.name());
+    }
+  }
+
+  /**
+   * @param etag    entity tag of a response body, quoted.
+   * @param encoder encoder used on the body, can be {@literal null}.
+   * @return the entity tag of the body after encoding it, as each representation must have its own tag.
+   */
+  static String etagOf(
+      final String etag,
+      final ContentEncoder encoder)
+  {
+    if (encoder == null) {
+      return etag;
+    }
+    return etag.substring(0, etag.length() - 1) + '-' + encoder.name() + '"';
+  }
+
+  /**
+   * Checks if an {@code Accept-Encoding} header accepts some coding, with a quality greater than {@code 0}.
+   *
+   * @param accepted value of the {@code Accept-Encoding} header.
+   * @param coding   name of the coding.
+   * @return {@literal true} if the client accepts the coding.
+   */
+  static boolean isAccepted(
+      final String accepted,
+      final String coding)
+  {
+    var wildcard = 0f;
+    int start = 0;
+    final int length = accepted.length();
+    while (start < length) {
+      var end = accepted.indexOf(',', start);
+      if (end < 0) {
+        end = length;
+      }
+      final var element = accepted.substring(start, end);
+      final var parameters = element.indexOf(';');
+      final var name = (parameters < 0 ? element : element.substring(0, parameters)).trim();
+      if (name.equalsIgnoreCase(coding)) {
+        return qualityOf(element, parameters) > 0;
+      }
+      if ("*".equals(name)) {
+        wildcard = qualityOf(element, parameters);
+      }
+      start = end + 1;
+    }
+    return wildcard > 0;
+  }
+
+  private static float qualityOf(
+      final String element,
+      final int parameters)
+  {
+    if (parameters < 0) {
+      return 1;
+    }
+    final var q = element.indexOf("q=", parameters);
+    if (q < 0) {
+      return 1;
+    }
+    try {
+      return Float.parseFloat(element.substring(q + 2).trim());
+    } catch (final NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /** Compression settings, immutable so they are replaced as a whole. */
+  private static final class Settings
+  {
+    final int minimumSize;
+    final ContentEncoder[] encoders;
+
+    Settings(
+        final int minimumSize,
+        final ContentEncoder[] encoders)
+    {
+      this.minimumSize = minimumSize;
+      this.encoders = encoders;
+    }
+  }
+
+  /** Pool of {@link Deflater} instances, bounded so idle ones don't hold native memory forever. */
+  private static final class Deflaters
+  {
+    private static final int MAXIMUM_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final boolean nowrap;
+    private final ConcurrentLinkedQueue<Deflater> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    Deflaters(final boolean nowrap)
+    {
+      this.nowrap = nowrap;
+    }
+
+    Deflater borrow()
+    {
+      final var deflater = idle.poll();
+      if (deflater == null) {
+        return new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+      }
+      idleCount.decrementAndGet();
+      return deflater;
+    }
+
+    void giveBack(final Deflater deflater)
+    {
+      if (idleCount.incrementAndGet() > MAXIMUM_IDLE) {
+        idleCount.decrementAndGet();
+        deflater.end();
+        return;
+      }
+      deflater.reset();
+      idle.offer(deflater);
+    }
+
+    /**
+     * Deflates some content into a new array, leaving some room before and after the compressed data.
+     *
+     * @return the array holding the compressed data, trimmed to {@code header + compressed length + trailer}.
+     */
+    byte[] deflate(
+        final byte[] content,
+        final int length,
+        final int header,
+        final int trailer)
+    {
+      final var deflater = borrow();
+      try {
+        deflater.setInput(content, 0, length);
+        deflater.finish();
+        var output = new byte[header + length / 2 + trailer + Byte.SIZE];
+        var count = header;
+        while (!deflater.finished()) {
+          if (count == output.length - trailer) {
+            output = Arrays.copyOf(output, output.length * 2);
+          }
+          count += deflater.deflate(output, count, output.length - trailer - count);
+        }
+        return Arrays.copyOf(output, count + trailer);
+      } finally {
+        giveBack(deflater);
+      }
+    }
+  }
+
+  /** {@code gzip} encoder, see RFC 1952. */
+  private static final class Gzip
+      implements ContentEncoder
+  {
+    /** fixed header: magic number, deflate method, no flags, no modification time, no extra flags, unknown OS. */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    /** trailer: CRC32 and length of the content, little endian. */
+    private static final int TRAILER_SIZE = 8;
+    private static final int BYTE_MASK = 0xFF;
+
+    private final Deflaters deflaters = new Deflaters(true);
+
+    @Override public String name()
+    {
+      return "gzip";
+    }
+
+    @Override public byte[] encode(
+        final byte[] content,
+        final int length)
+    {
+      final var output = deflaters.deflate(content, length, HEADER.length, TRAILER_SIZE);
+      System.arraycopy(HEADER, 0, output, 0, HEADER.length);
+      final var crc = new CRC32();
+      crc.update(content, 0, length);
+      final var trailer = output.length - TRAILER_SIZE;
+      writeIntLittleEndian(output, trailer, (int) crc.getValue());
+      writeIntLittleEndian(output, trailer + Integer.BYTES, length);
+      return output;
+    }
+
+    private static void writeIntLittleEndian(
+        final byte[] output,
+        final int offset,
+        final int value)
+    {
+      for (int i = 0; i < Integer.BYTES; i++) {
+        output[offset + i] = (byte) ((value >>> (i * Byte.SIZE)) & BYTE_MASK);
+      }
+    }
+  }
+
+  /** {@code deflate} encoder, see RFC 1950. */
+  private static final class Zlib
+      implements ContentEncoder
+  {
+    private final Deflaters deflaters = new Deflaters(false);
+
+    @Override public String name()
+    {
+      return "deflate";
+    }
+
+    @Override public byte[] encode(
+        final byte[] content,
+        final int length)
+    {
+      return deflaters.deflate(content, length, 0, 0);
+    }
+  }
+}
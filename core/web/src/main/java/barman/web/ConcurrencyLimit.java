@@ -0,0 +1,269 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limits how many requests are processed at once, used by the routers of actions (or endpoints) marked as {@code @MaxConcurrent}.
+ * <p>
+ * Permits are taken and given back with compare-and-set, without locking. Requests arriving when there is no permit left wait for a bounded time, if
+ * the queue isn't full; other way they are rejected with {@code 503 Service Unavailable} and {@code Retry-After}. Each permit given back wakes up
+ * the first waiting request, taking it out of the queue; a woken request that takes a permit wakes up the next one while there are permits left.
+ * <p>
+ * Adaptive limits follow the gradient of the latency: each window of requests its mean latency is compared with a long term average of latencies;
+ * the limit is lowered proportionally when it grew, and raised by its square root when it didn't, never over the maximum. This class is thread safe.
+ */
+public final class ConcurrencyLimit
+{
+  /** seconds a rejected client should wait before retrying. */
+  private static final String RETRY_AFTER = "1";
+  /** number of requests sampled before adapting the limit. */
+  private static final int WINDOW = 32;
+  /** weight of each window at the long term latency. */
+  private static final double LONG_TERM_SMOOTHING = 0.05;
+  /** weight of the new limit when adapting it. */
+  private static final double SMOOTHING = 0.2;
+  /** lowest gradient, so the limit is at most halved each window. */
+  private static final double MIN_GRADIENT = 0.5;
+
+  private final int maxConcurrent;
+  private final int queue;
+  private final long queueTimeoutNanos;
+  private final boolean adaptive;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+  private volatile int limit;
+  /** sum of the latencies sampled at the current window, in nanoseconds. */
+  private final AtomicLong windowNanos = new AtomicLong();
+  /** number of latencies sampled at the current window. */
+  private final AtomicInteger windowSize = new AtomicInteger();
+  /** long term average of latencies, in nanoseconds; {@code 0} until the first window is complete. */
+  private double longTermNanos;
+
+  /**
+   * Constructs a limit.
+   *
+   * @param maxConcurrent how many requests can be processed at once.
+   * @param queue         how many requests can wait for a permit.
+   * @param queueTimeout  for how long a request can wait for a permit.
+   * @param adaptive      should the limit be lowered when latencies grow?
+   * @throws IllegalArgumentException if {@code maxConcurrent < 1}, {@code queue < 0} or {@code queueTimeout} is negative.
+   */
+  public ConcurrencyLimit(
+      final int maxConcurrent,
+      final int queue,
+      final Duration queueTimeout,
+      final boolean adaptive)
+  {
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException("maxConcurrent must be >= 1, but it is " + maxConcurrent);
+    }
+    if (queue < 0) {
+      throw new IllegalArgumentException("queue must be >= 0, but it is " + queue);
+    }
+    if (queueTimeout.isNegative()) {
+      throw new IllegalArgumentException("queueTimeout can't be negative, but it is " + queueTimeout);
+    }
+    this.maxConcurrent = maxConcurrent;
+    this.queue = queue;
+    this.queueTimeoutNanos = queueTimeout.toNanos();
+    this.adaptive = adaptive;
+    this.limit = maxConcurrent;
+  }
+
+  /** @return how many requests can be processed at once, currently. */
+  public int limit()
+  {
+    return limit;
+  }
+
+  /** @return number of requests being processed. */
+  public int inFlight()
+  {
+    return inFlight.get();
+  }
+
+  /** @return number of requests waiting for a permit. */
+  public int waiting()
+  {
+    return waiting.get();
+  }
+
+  /**
+   * Runs an action when there is a permit for it, rejecting the request other way.
+   *
+   * @param request  request to respond.
+   * @param response where to send the response.
+   * @param action   action producing the response.
+   * @throws ServletException if the action fails.
+   * @throws IOException      if the response can't be sent.
+   */
+  public void run(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final Action action) throws ServletException, IOException
+  {
+    if (!acquire()) {
+      response.setHeader("Retry-After", RETRY_AFTER);
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+    final var started = System.nanoTime();
+    try {
+      action.handle(request, response);
+    } finally {
+      release(System.nanoTime() - started);
+    }
+  }
+
+  private boolean tryAcquire()
+  {
+    for (;;) {
+      final var current = inFlight.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private boolean acquire()
+  {
+    if (tryAcquire()) {
+      return true;
+    }
+    if (queue == 0) {
+      return false;
+    }
+    if (waiting.incrementAndGet() > queue) {
+      waiting.decrementAndGet();
+      return false;
+    }
+    final var thread = Thread.currentThread();
+    var waiter = new Waiter(thread);
+    waiters.add(waiter);
+    var acquired = false;
+    try {
+      final var deadline = System.nanoTime() + queueTimeoutNanos;
+      for (;;) {
+        if (tryAcquire()) {
+          acquired = true;
+          return true;
+        }
+        final var remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || thread.isInterrupted()) {
+          return false;
+        }
+        if (waiter.woken) {
+          // the permit it was woken for was taken by a request just arrived, so it waits again (at the end of the queue)
+          waiter = new Waiter(thread);
+          waiters.add(waiter);
+        } else {
+          LockSupport.parkNanos(this, remaining);
+        }
+      }
+    } finally {
+      // woken may not be set yet by the thread that polled the waiter, but then it can't be removed from the queue
+      final var polled = !waiters.remove(waiter);
+      waiting.decrementAndGet();
+      if (acquired ? inFlight.get() < limit : polled) {
+        // there are permits left for others, or the permit this thread was woken for was given up
+        wakeUpWaiter();
+      }
+    }
+  }
+
+  private void release(final long latencyNanos)
+  {
+    inFlight.decrementAndGet();
+    if (adaptive) {
+      sample(latencyNanos);
+    }
+    wakeUpWaiter();
+  }
+
+  private void wakeUpWaiter()
+  {
+    final var waiter = waiters.poll();
+    if (waiter != null) {
+      waiter.woken = true;
+      LockSupport.unpark(waiter.thread);
+    }
+  }
+
+  private void sample(final long latencyNanos)
+  {
+    windowNanos.addAndGet(latencyNanos);
+    if (windowSize.incrementAndGet() == WINDOW) {
+      adapt();
+    }
+  }
+
+  /** Adapts the limit to the latencies of the window just completed, it runs once per window, so it isn't at the path of permits. */
+  private synchronized void adapt()
+  {
+    final var size = windowSize.getAndSet(0);
+    final var total = windowNanos.getAndSet(0);
+    if (size == 0) {
+      return;
+    }
+    final var latency = (double) total / size;
+    if (longTermNanos == 0) {
+      longTermNanos = latency;
+      return;
+    }
+    longTermNanos = longTermNanos * (1 - LONG_TERM_SMOOTHING) + latency * LONG_TERM_SMOOTHING;
+    final var gradient = Math.max(MIN_GRADIENT, Math.min(1, longTermNanos / latency));
+    final var current = limit;
+    final var target = current * gradient + Math.sqrt(current);
+    final var smoothed = current * (1 - SMOOTHING) + target * SMOOTHING;
+    final var next = smoothed > current ? (int) Math.ceil(smoothed) : (int) Math.floor(smoothed);
+    limit = Math.max(1, Math.min(maxConcurrent, next));
+  }
+
+  /** A thread waiting for a permit. */
+  private static final class Waiter
+  {
+    final Thread thread;
+    /** has it been taken out of the queue, to wake it up? */
+    volatile boolean woken;
+
+    Waiter(final Thread thread)
+    {
+      this.thread = thread;
+    }
+  }
+}
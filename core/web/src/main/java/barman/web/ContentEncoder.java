@@ -0,0 +1,54 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import java.io.IOException;
+
+/**
+ * A content coding used to compress response bodies, negotiated with the {@code Accept-Encoding} header of each request.
+ * <p>
+ * {@link #GZIP} and {@link #DEFLATE} are provided, any other coding (as {@code br} or {@code zstd}) can be used by implementing this interface and
+ * registering it with {@link EndPointServlet#compressResponsesOver(int, ContentEncoder...)}. Implementations must be thread safe.
+ */
+public interface ContentEncoder
+{
+  /** {@code gzip} coding, understood by every client. */
+  ContentEncoder GZIP = Compression.GZIP;
+  /** {@code deflate} coding, a zlib stream. */
+  ContentEncoder DEFLATE = Compression.DEFLATE;
+
+  /** @return name of the coding, as used at the {@code Accept-Encoding} and {@code Content-Encoding} headers. */
+  String name();
+
+  /**
+   * @param content buffer holding a response body.
+   * @param length  length of the body, starting at {@code 0}.
+   * @return the body encoded.
+   * @throws IOException if some problem occurs while encoding.
+   */
+  byte[] encode(
+      byte[] content,
+      int length)
+      throws IOException;
+}
@@ -0,0 +1,107 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+/**
+ * Entity tags of responses, to answer conditional requests ({@code If-None-Match}) with {@code 304 Not Modified}.
+ * <p>
+ * Tags of bodies are computed with FNV-1a (64 bits), a fast non cryptographic hash, along with their length.
+ */
+final class ETag
+{
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final int BYTE_MASK = 0xFF;
+
+  private ETag()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @param body   buffer holding a response body.
+   * @param length length of the body, starting at {@code 0}.
+   * @return the entity tag of the body, quoted.
+   */
+  static String of(
+      final byte[] body,
+      final int length)
+  {
+    var hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < length; i++) {
+      hash ^= body[i] & BYTE_MASK;
+      hash *= FNV_PRIME;
+    }
+    return '"' + Integer.toHexString(length) + '-' + Long.toHexString(hash) + '"';
+  }
+
+  /**
+   * @param version version of some resource, defined by the application.
+   * @return the entity tag of the version, quoted.
+   * @throws IllegalArgumentException if {@code version} has quotes or is empty.
+   */
+  static String ofVersion(final String version)
+  {
+    if (version.isEmpty() || version.indexOf('"') >= 0) {
+      throw new IllegalArgumentException("versions can't be empty nor have quotes, but it is '" + version + '\'');
+    }
+    return '"' + version + '"';
+  }
+
+  /**
+   * Checks an {@code If-None-Match} header, using weak comparison as RFC 7232 requires.
+   *
+   * @param ifNoneMatch value of the {@code If-None-Match} header, can be {@literal null}.
+   * @param etag        entity tag of the response.
+   * @return {@literal true} if the client already has the response.
+   */
+  static boolean matches(
+      final String ifNoneMatch,
+      final String etag)
+  {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    int start = 0;
+    final int length = ifNoneMatch.length();
+    while (start < length) {
+      var end = ifNoneMatch.indexOf(',', start);
+      if (end < 0) {
+        end = length;
+      }
+      var tag = ifNoneMatch.substring(start, end).trim();
+      if ("*".equals(tag)) {
+        return true;
+      }
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals(etag)) {
+        return true;
+      }
+      start = end + 1;
+    }
+    return false;
+  }
+}
@@ -26,20 +26,20 @@ package barman.web;
 import argo.format.CompactJsonFormatter;
 import argo.format.JsonFormatter;
 import argo.format.PrettyJsonFormatter;
-import argo.jdom.JdomParser;
 import argo.jdom.JsonNode;
 import argo.saj.InvalidSyntaxException;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.Date;
+import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 public abstract class EndPointServlet
@@ -51,40 +51,120 @@ public abstract class EndPointServlet
   @SuppressWarnings("checkstyle:constantName") protected static final boolean required = true;
   /** indicates that something is not required. */
   @SuppressWarnings("checkstyle:constantName") protected static final boolean notRequired = false;
-  /** parser to use to interpret json contents. */
-  private static final JdomParser JDOM_PARSER;
+  /** how many custom {@link ContentType}s and {@link Header}s can be interned. */
+  private static final int MAX_INTERNED = 1024;
   /**
-   * Formatter used to print json content.
+   * Codec used to parse and print json content.
    * <p>
-   * It should be an instance of {@link PrettyJsonFormatter} in development and an instance of {@link CompactJsonFormatter} in production.
+   * The first {@link JsonCodec} registered as a service provider is used, or an Argo based one when there is none.
    */
-  private static JsonFormatter jsonFormatter;
+  private static volatile JsonCodec jsonCodec = defaultJsonCodec();
+  /** has the codec to use been explicitly defined? */
+  private static boolean jsonCodecDefined;
+  /** default maximum size of request bodies, in bytes. */
+  static final int DEFAULT_MAX_BODY_SIZE = 8 * 1024 * 1024;
+  /** maximum size of the request bodies read by {@link #body(HttpServletRequest)} and {@link #bodyBytes(HttpServletRequest)}, in bytes. */
+  private static volatile int maxBodySize = DEFAULT_MAX_BODY_SIZE;
 
-  static {
-    JDOM_PARSER = new JdomParser();
-  }
   /** Defined to avoid possible {@link EndPointServlet} anonymous construction. */
   protected EndPointServlet()
   {
     // nothing to do
   }
 
+  private static JsonCodec defaultJsonCodec()
+  {
+    return ServiceLoader.load(JsonCodec.class, EndPointServlet.class.getClassLoader()).findFirst().orElseGet(ArgoJsonCodec::new);
+  }
+
   /**
-   * Sets the JSON formatter to use to translate {@link JsonNode} to text.
+   * Sets the JSON formatter to use to translate {@link JsonNode} to text, parsing json content with Argo.
+   * <p>
+   * It should be an instance of {@link PrettyJsonFormatter} in development and an instance of {@link CompactJsonFormatter} in production.
    *
    * @param formatter the {@link JsonFormatter} to be used by <em>ALL</em> endpoints servlets.
    * @throws NullPointerException  if {@code formatter} is {@literal null}.
-   * @throws IllegalStateException the {@link JsonFormatter} to be used by <em>ALL</em> endpoints servlets had been already set previously.
+   * @throws IllegalStateException the {@link JsonCodec} to be used by <em>ALL</em> endpoints servlets had been already set previously.
    */
   public static synchronized void writeJsonUsing(final JsonFormatter formatter)
   {
     if (formatter == null) {
       throw new NullPointerException("formatter");
     }
-    if (EndPointServlet.jsonFormatter != null) {
-      throw new IllegalStateException("JSON_FORMATTER already defined as an '" + formatter.getClass().getCanonicalName() + "'.");
+    useJsonCodec(new ArgoJsonCodec(formatter));
+  }
+
+  /**
+   * Sets the JSON codec to use to parse json content and to translate {@link JsonNode} to text.
+   *
+   * @param codec the {@link JsonCodec} to be used by <em>ALL</em> endpoints servlets.
+   * @throws NullPointerException  if {@code codec} is {@literal null}.
+   * @throws IllegalStateException the {@link JsonCodec} to be used by <em>ALL</em> endpoints servlets had been already set previously.
+   */
+  public static synchronized void useJsonCodec(final JsonCodec codec)
+  {
+    if (codec == null) {
+      throw new NullPointerException("codec");
+    }
+    if (EndPointServlet.jsonCodecDefined) {
+      throw new IllegalStateException("JSON codec already defined as an '" + jsonCodec.getClass().getCanonicalName() + "'.");
+    }
+    EndPointServlet.jsonCodec = codec;
+    EndPointServlet.jsonCodecDefined = true;
+  }
+
+  /**
+   * Sets the maximum size of the request bodies read by <em>ALL</em> endpoints servlets, {@code 8 MiB} by default.
+   *
+   * @param bytes maximum size of request bodies, in bytes.
+   * @throws IllegalArgumentException if {@code bytes < 0}.
+   */
+  public static void limitBodiesTo(final int bytes)
+  {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("bytes must be >= 0, but it is " + bytes);
+    }
+    EndPointServlet.maxBodySize = bytes;
+  }
+
+  /**
+   * Compresses the response bodies written by <em>ALL</em> endpoints servlets with the request being responded (as
+   * {@link #renderJson(HttpServletRequest, HttpServletResponse, JsonNode)} or {@link #writeJson(HttpServletRequest, HttpServletResponse,
+   * CharSequence)}) and by cached actions, when they have some size and the client accepts it. Responses are not compressed by default.
+   * <p>
+   * The content coding is negotiated using the {@code Accept-Encoding} header, choosing the first encoder accepted by the client.
+   *
+   * @param bytes    size of the smallest body to compress, in bytes; smaller bodies gain little and cost a full compression.
+   * @param encoders encoders to use, by preference order; {@link ContentEncoder#GZIP} and {@link ContentEncoder#DEFLATE} when none is defined.
+   * @throws IllegalArgumentException if {@code bytes < 0}.
+   * @throws NullPointerException     if some encoder is {@literal null}.
+   */
+  public static void compressResponsesOver(
+      final int bytes,
+      final ContentEncoder... encoders)
+  {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("bytes must be >= 0, but it is " + bytes);
     }
-    EndPointServlet.jsonFormatter = formatter;
+    Compression.enable(bytes, encoders);
+  }
+
+  /** Stops compressing the response bodies written by <em>ALL</em> endpoints servlets. */
+  public static void dontCompressResponses()
+  {
+    Compression.disable();
+  }
+
+  /**
+   * Sets the executor to run <em>ALL</em> the actions marked as {@code @Async}.
+   * <p>
+   * By default, actions run on virtual threads when available (JDK 21+), otherwise on a pool of daemon threads.
+   *
+   * @param executor where to run asynchronous actions; {@literal null} to use the default.
+   */
+  public static void runAsyncActionsOn(final Executor executor)
+  {
+    AsyncDispatch.runOn(executor);
   }
 
   /**
@@ -97,77 +177,7 @@ public abstract class EndPointServlet
     if (value < 0) {
       throw new IllegalArgumentException("value < 0");
     }
-    switch (value) {
-    case HttpServletResponse.SC_OK:
-      return StatusCode.OK;
-    case HttpServletResponse.SC_CREATED:
-      return StatusCode.CREATED;
-    case HttpServletResponse.SC_ACCEPTED:
-      return StatusCode.ACCEPTED;
-    case HttpServletResponse.SC_NON_AUTHORITATIVE_INFORMATION:
-      return StatusCode.PARTIAL_INFO;
-    case HttpServletResponse.SC_NO_CONTENT:
-      return StatusCode.NO_RESPONSE;
-    case HttpServletResponse.SC_MOVED_PERMANENTLY:
-      return StatusCode.MOVED;
-    case HttpServletResponse.SC_FOUND:
-      return StatusCode.FOUND;
-    case HttpServletResponse.SC_SEE_OTHER:
-      return StatusCode.METHOD;
-    case HttpServletResponse.SC_NOT_MODIFIED:
-      return StatusCode.NOT_MODIFIED;
-    case HttpServletResponse.SC_BAD_REQUEST:
-      return StatusCode.BAD_REQUEST;
-    case HttpServletResponse.SC_UNAUTHORIZED:
-      return StatusCode.UNAUTHORIZED;
-    case HttpServletResponse.SC_PAYMENT_REQUIRED:
-      return StatusCode.PAYMENT_REQUIRED;
-    case HttpServletResponse.SC_FORBIDDEN:
-      return StatusCode.FORBIDDEN;
-    case HttpServletResponse.SC_NOT_FOUND:
-      return StatusCode.NOT_FOUND;
-    case HttpServletResponse.SC_METHOD_NOT_ALLOWED:
-      return StatusCode.METHOD_NOT_ALLOWED;
-    case HttpServletResponse.SC_CONFLICT:
-      return StatusCode.CONFLICT;
-    case HttpServletResponse.SC_GONE:
-      return StatusCode.GONE;
-    case StatusCode.SC_UNPROCESSABLE_ENTITY:
-      return StatusCode.UNPROCESSABLE_ENTITY;
-    case HttpServletResponse.SC_INTERNAL_SERVER_ERROR:
-      return StatusCode.INTERNAL_ERROR;
-    case HttpServletResponse.SC_NOT_IMPLEMENTED:
-      return StatusCode.NOT_IMPLEMENTED;
-    case HttpServletResponse.SC_BAD_GATEWAY:
-      return StatusCode.BAD_GATEWAY;
-    case HttpServletResponse.SC_SERVICE_UNAVAILABLE:
-      return StatusCode.SERVICE_UNAVAILABLE;
-    case HttpServletResponse.SC_GATEWAY_TIMEOUT:
-      return StatusCode.GATEWAY_TIMEOUT;
-    case HttpServletResponse.SC_HTTP_VERSION_NOT_SUPPORTED:
-      return StatusCode.HTTP_VERSION_NOT_SUPPORTED;
-    default:
-      if (StatusCode.CUSTOM.get() == null) {
-        final var code = new StatusCode(value);
-        StatusCode.CUSTOM.set(new StatusCode[]{code});
-        return code;
-      } else {
-        synchronized (StatusCode.CUSTOM.get()) {
-          final StatusCode[] customStatusCodes = StatusCode.CUSTOM.get();
-          for (final var customStatusCode : customStatusCodes) {
-            if (customStatusCode.code == value) {
-              return customStatusCode;
-            }
-          }
-          final var code = new StatusCode(value);
-          final var newCustomStatusCodes = new StatusCode[customStatusCodes.length + 1];
-          System.arraycopy(customStatusCodes, 0, StatusCode.CUSTOM.get(), 0, customStatusCodes.length);
-          newCustomStatusCodes[customStatusCodes.length] = code;
-          StatusCode.CUSTOM.set(newCustomStatusCodes);
-          return code;
-        }
-      }
-    }
+    return StatusCode.of(value);
   }
 
   /**
@@ -189,35 +199,7 @@ public abstract class EndPointServlet
     if (mediaType.isBlank()) {
       throw new IllegalArgumentException("mediaType is blank");
     }
-    switch (mediaType) {
-    case "application/x-www-form-urlencoded":
-      return ContentType.APPLICATION_FORM_URLENCODED;
-    case "text/json":
-      return ContentType.TEXT_JSON;
-    case "application/json":
-      return ContentType.APPLICATION_JSON;
-    case "text/xml":
-      return ContentType.TEXT_XML;
-    case "application/xml":
-      return ContentType.APPLICATION_XML;
-    case "text/x-yaml":
-      return ContentType.TEXT_X_YAML;
-    case "application/x-yaml":
-      return ContentType.APPLICATION_X_YAML;
-    case "text/html":
-      return ContentType.TEXT_HTML;
-    case "text/plain":
-      return ContentType.TEXT_PLAIN;
-    case "application/octet-stream":
-      return ContentType.APPLICATION_OCTET_STREAM;
-    case "multipart/form-data":
-      return ContentType.MULTIPART_FORM_DATA;
-    default:
-      if (!ContentType.CUSTOM.contains(mediaType)) {
-        ContentType.CUSTOM.put(mediaType, new ContentType(mediaType));
-      }
-      return ContentType.CUSTOM.get(mediaType);
-    }
+    return ContentType.intern(mediaType);
   }
 
   /**
@@ -239,65 +221,7 @@ public abstract class EndPointServlet
     if (name.isBlank()) {
       throw new IllegalArgumentException("name is blank");
     }
-    switch (name) {
-    case "Accept":
-      return Header.ACCEPT;
-    case "Accept-Charset":
-      return Header.ACCEPT_CHARSET;
-    case "Accept-Encoding":
-      return Header.ACCEPT_ENCODING;
-    case "Accept-Language":
-      return Header.ACCEPT_LANGUAGE;
-    case "Accept-Datetime":
-      return Header.ACCEPT_DATETIME;
-    case "Authorization":
-      return Header.AUTHORIZATION;
-    case "Pragma":
-      return Header.PRAGMA;
-    case "Cache-Control":
-      return Header.CACHE_CONTROL;
-    case "Connection":
-      return Header.CONNECTION;
-    case "Content-Type":
-      return Header.CONTENT_TYPE;
-    case "Content-Encoding":
-      return Header.CONTENT_ENCODING;
-    case "Content-Language":
-      return Header.CONTENT_LANGUAGE;
-    case "Content-Length":
-      return Header.CONTENT_LENGTH;
-    case "Content-Location":
-      return Header.CONTENT_LOCATION;
-    case "Content-MD5":
-      return Header.CONTENT_MD5;
-    case "Content-Disposition":
-      return Header.CONTENT_DISPOSITION;
-    case "Date":
-      return Header.DATE;
-    case "Etag":
-      return Header.ETAG;
-    case "Expires":
-      return Header.EXPIRES;
-    case "If-Match":
-      return Header.IF_MATCH;
-    case "If-Modified-Since":
-      return Header.IF_MODIFIED_SINCE;
-    case "If-None-Match":
-      return Header.IF_NONE_MATCH;
-    case "User-Agent":
-      return Header.USER_AGENT;
-    case "Host":
-      return Header.HOST;
-    case "Last-Modified":
-      return Header.LAST_MODIFIED;
-    case "Location":
-      return Header.LOCATION;
-    default:
-      if (!Header.CUSTOM.contains(name)) {
-        Header.CUSTOM.put(name, new Header(name));
-      }
-      return Header.CUSTOM.get(name);
-    }
+    return Header.intern(name);
   }
 
   protected static <T> Supplier<T> byDefault(final Supplier<T> defaultValueSupplier)
@@ -318,35 +242,42 @@ public abstract class EndPointServlet
   }
 
   /**
-   * Reads the text at the request body.
+   * Reads the text at the request body, decoding it with the request charset ({@code UTF-8} when the request doesn't define one).
    *
    * @param request {@link HttpServletRequest} which body must be read.
    * @return the raw text at the {@link HttpServletRequest} associated to the controller.
-   * @throws IOException if some problem occurs while reading the text.
+   * @throws RequestBody.TooLarge if the body is bigger than the size set by {@link #limitBodiesTo(int)}.
+   * @throws IOException          if some problem occurs while reading the text.
    */
   protected static String body(final HttpServletRequest request)
       throws IOException
   {
-    final BufferedReader reader = request.getReader();
-    final StringBuilder requestBody = new StringBuilder();
-    {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        requestBody.append(line);
-      }
-    }
-    return requestBody.toString();
+    return RequestBody.text(request, maxBodySize);
+  }
+
+  /**
+   * Reads the raw bytes at the request body, without decoding them.
+   *
+   * @param request {@link HttpServletRequest} which body must be read.
+   * @return the bytes at the {@link HttpServletRequest} associated to the controller.
+   * @throws RequestBody.TooLarge if the body is bigger than the size set by {@link #limitBodiesTo(int)}.
+   * @throws IOException          if some problem occurs while reading the bytes.
+   */
+  protected static byte[] bodyBytes(final HttpServletRequest request)
+      throws IOException
+  {
+    return RequestBody.bytes(request, maxBodySize);
   }
 
   protected static JsonNode json(final String content)
       throws InvalidSyntaxException
   {
-    return JDOM_PARSER.parse(content);
+    return jsonCodec.parse(content);
   }
 
   protected static String format(final JsonNode json)
   {
-    return jsonFormatter.format(json);
+    return jsonCodec.format(json);
   }
 
   protected static void unprocessableEntity(final HttpServletResponse response)
@@ -443,9 +374,44 @@ public abstract class EndPointServlet
   }
 
   protected JsonNode json(final Reader reader)
-      throws InvalidSyntaxException
+      throws InvalidSyntaxException, IOException
   {
-    return JDOM_PARSER.parse(reader);
+    return jsonCodec.parse(reader);
+  }
+
+  /**
+   * Reads the request body using a {@link JsonBinder}, without building any tree.
+   *
+   * @param request {@link HttpServletRequest} which body must be read.
+   * @param binder  how to read the request body.
+   * @param <T>     type of the value read.
+   * @return the value read from the {@code request} body.
+   * @throws IOException      if some problem occurs while reading the request body.
+   * @throws ServletException if the request body is not valid JSON.
+   */
+  protected <T> T json(
+      final HttpServletRequest request,
+      final JsonBinder<T> binder)
+      throws IOException, ServletException
+  {
+    try {
+      return binder.read(jsonReader(request));
+    } catch (final JsonReader.SyntaxError e) {
+      throw new ServletException(e);
+    }
+  }
+
+  /**
+   * Builds a {@link JsonReader} to read the request body token by token, without building any tree.
+   *
+   * @param request {@link HttpServletRequest} which body must be read.
+   * @return a {@link JsonReader} for the {@code request} body.
+   * @throws IOException if some problem occurs while accessing the request body.
+   */
+  protected JsonReader jsonReader(final HttpServletRequest request)
+      throws IOException
+  {
+    return new JsonReader(request.getReader());
   }
 
   protected void forward(
@@ -528,12 +494,161 @@ public abstract class EndPointServlet
     send(response, content);
   }
 
+  /**
+   * Writes HTML content as the body of a conditional response, tagged with an {@code ETag} computed from its encoded body.
+   *
+   * @param request  {@link HttpServletRequest} being responded.
+   * @param response {@link HttpServletResponse} where the content must be written.
+   * @param content  HTML content to write.
+   * @throws ServletException if the response is already committed.
+   * @throws IOException      if some problem occurs while writing the response.
+   */
+  protected void writeHtml(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final CharSequence content)
+      throws ServletException, IOException
+  {
+    set(response, ContentType.TEXT_HTML);
+    send(request, response, content);
+  }
+
+  /**
+   * Writes a JSON document as the response body.
+   * <p>
+   * The document is formatted straight into the response as UTF-8, so it is never materialized as a {@link String}. This method commits the
+   * response.
+   *
+   * @param response {@link HttpServletResponse} where the JSON document must be written.
+   * @param json     JSON document to write.
+   * @throws ServletException if the response is already committed.
+   * @throws IOException      if some problem occurs while writing the response.
+   */
+  protected void renderJson(
+      final HttpServletResponse response,
+      final JsonNode json)
+      throws ServletException, IOException
+  {
+    if (response.isCommitted()) {
+      throw new ServletException("The response has already been committed");
+    }
+    set(response, ContentType.APPLICATION_JSON);
+    set(response, StatusCode.OK);
+    Utf8ResponseWriter.render(null, response, writer -> jsonCodec.format(json, writer));
+  }
+
+  /**
+   * Writes a value as the JSON response body, using a {@link JsonBinder}.
+   * <p>
+   * The value is written straight into the response as UTF-8, without building any tree. This method commits the response.
+   *
+   * @param response {@link HttpServletResponse} where the value must be written.
+   * @param value    value to write.
+   * @param binder   how to write the value.
+   * @param <T>      type of the value written.
+   * @throws ServletException if the response is already committed.
+   * @throws IOException      if some problem occurs while writing the response.
+   */
+  protected <T> void renderJson(
+      final HttpServletResponse response,
+      final T value,
+      final JsonBinder<? super T> binder)
+      throws ServletException, IOException
+  {
+    if (response.isCommitted()) {
+      throw new ServletException("The response has already been committed");
+    }
+    set(response, ContentType.APPLICATION_JSON);
+    set(response, StatusCode.OK);
+    Utf8ResponseWriter.render(null, response, writer -> binder.write(value, new JsonWriter(writer)));
+  }
+
+  /**
+   * Writes a JSON document as the body of a conditional response.
+   * <p>
+   * The response is tagged with an {@code ETag} computed from its encoded body; when the request already has that tag at its
+   * {@code If-None-Match} header, {@code 304 Not Modified} is sent without body. This method commits the response.
+   *
+   * @param request  {@link HttpServletRequest} being responded.
+   * @param response {@link HttpServletResponse} where the JSON document must be written.
+   * @param json     JSON document to write.
+   * @throws ServletException if the response is already committed.
+   * @throws IOException      if some problem occurs while writing the response.
+   */
   protected void renderJson(
+      final HttpServletRequest request,
       final HttpServletResponse response,
       final JsonNode json)
       throws ServletException, IOException
   {
-    writeJson(response, jsonFormatter.format(json));
+    if (response.isCommitted()) {
+      throw new ServletException("The response has already been committed");
+    }
+    set(response, ContentType.APPLICATION_JSON);
+    set(response, StatusCode.OK);
+    Utf8ResponseWriter.render(request, response, writer -> jsonCodec.format(json, writer));
+  }
+
+  /**
+   * Writes a value as the JSON body of a conditional response, using a {@link JsonBinder}.
+   * <p>
+   * The response is tagged with an {@code ETag} computed from its encoded body; when the request already has that tag at its
+   * {@code If-None-Match} header, {@code 304 Not Modified} is sent without body. This method commits the response.
+   *
+   * @param request  {@link HttpServletRequest} being responded.
+   * @param response {@link HttpServletResponse} where the value must be written.
+   * @param value    value to write.
+   * @param binder   how to write the value.
+   * @param <T>      type of the value written.
+   * @throws ServletException if the response is already committed.
+   * @throws IOException      if some problem occurs while writing the response.
+   */
+  protected <T> void renderJson(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final T value,
+      final JsonBinder<? super T> binder)
+      throws ServletException, IOException
+  {
+    if (response.isCommitted()) {
+      throw new ServletException("The response has already been committed");
+    }
+    set(response, ContentType.APPLICATION_JSON);
+    set(response, StatusCode.OK);
+    Utf8ResponseWriter.render(request, response, writer -> binder.write(value, new JsonWriter(writer)));
+  }
+
+  /**
+   * Answers a conditional request using a version of the resource defined by the application, so the response body isn't even built when the
+   * client already has it.
+   * <p>
+   * The response is tagged with an {@code ETag} made from {@code version}; when the request already has that tag at its {@code If-None-Match}
+   * header, {@code 304 Not Modified} is set, and the action must return without writing any body:
+   * <pre>
+   * if (notModified(request, response, Long.toString(team.version))) {
+   *   return;
+   * }
+   * renderJson(response, team, TEAM);
+   * </pre>
+   *
+   * @param request  {@link HttpServletRequest} being responded.
+   * @param response {@link HttpServletResponse} to tag.
+   * @param version  current version of the resource, can't have quotes.
+   * @return {@literal true} if the client already has this version of the resource.
+   * @throws IllegalArgumentException if {@code version} is empty or has quotes.
+   */
+  protected static boolean notModified(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final String version)
+  {
+    final var etag = ETag.ofVersion(version);
+    set(response, Header.ETAG, etag);
+    if (ETag.matches(request.getHeader(Header.IF_NONE_MATCH.name), etag)) {
+      set(response, StatusCode.NOT_MODIFIED);
+      return true;
+    }
+    return false;
   }
 
   protected void writeJson(
@@ -545,6 +660,25 @@ public abstract class EndPointServlet
     send(response, content);
   }
 
+  /**
+   * Writes JSON content as the body of a conditional response, tagged with an {@code ETag} computed from its encoded body.
+   *
+   * @param request  {@link HttpServletRequest} being responded.
+   * @param response {@link HttpServletResponse} where the content must be written.
+   * @param content  JSON content to write.
+   * @throws ServletException if the response is already committed.
+   * @throws IOException      if some problem occurs while writing the response.
+   */
+  protected void writeJson(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final CharSequence content)
+      throws ServletException, IOException
+  {
+    set(response, ContentType.APPLICATION_JSON);
+    send(request, response, content);
+  }
+
   protected void writeText(
       final HttpServletResponse response,
       final CharSequence content)
@@ -570,26 +704,42 @@ public abstract class EndPointServlet
     if (response.isCommitted()) {
       throw new ServletException("The response has already been committed");
     }
-    if (content == null) {
-      commit(response, null);
-    } else {
-      commit(response, content.toString());
+    commit(response, content);
+  }
+
+  /**
+   * Writes the string content as the body of a conditional response.
+   * <p>
+   * This method commits the response.
+   *
+   * @param content the content to write into the response.
+   * @throws javax.servlet.ServletException if the response is already committed.
+   */
+  void send(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final CharSequence content)
+      throws ServletException, IOException
+  {
+    if (response.isCommitted()) {
+      throw new ServletException("The response has already been committed");
     }
+    set(response, StatusCode.OK);
+    Utf8ResponseWriter.write(request, response, content == null ? "" : content);
   }
 
   void commit(
       final HttpServletResponse response,
-      final String content)
+      final CharSequence content)
       throws IOException
   {
     if (response.getContentType() == null) {
       set(response, ContentType.TEXT_HTML);
     }
+    set(response, StatusCode.OK);
     if (content != null) {
-      response.setContentLength(content.getBytes().length);
-      response.getWriter().append(content);
+      Utf8ResponseWriter.write(response, content);
     }
-    set(response, StatusCode.OK);
   }
 
   protected void unprocessableEntity(
@@ -597,7 +747,7 @@ public abstract class EndPointServlet
       final JsonNode error)
       throws IOException
   {
-    final var json = jsonFormatter.format(error);
+    final var json = jsonCodec.format(error);
     set(response, ContentType.APPLICATION_JSON);
     response.sendError(StatusCode.SC_UNPROCESSABLE_ENTITY, json);
   }
@@ -685,12 +835,6 @@ public abstract class EndPointServlet
      * message.
      */
     public static final StatusCode HTTP_VERSION_NOT_SUPPORTED = new StatusCode(HttpServletResponse.SC_HTTP_VERSION_NOT_SUPPORTED);
-    /**
-     * User defined status codes.
-     *
-     * @see #statusCode(int) for details on its use.
-     */
-    private static final AtomicReference<StatusCode[]> CUSTOM = new AtomicReference<>();
     /**
      * Status code (422) indicating that the server understands the content type of the request entity, and the syntax of the request entity is
      * correct, but it was unable to process the contained instructions.
@@ -703,6 +847,33 @@ public abstract class EndPointServlet
      * <code><em>Important:</em></code> The client should not repeat this request without modification.
      */
     public static final StatusCode UNPROCESSABLE_ENTITY = new StatusCode(SC_UNPROCESSABLE_ENTITY);
+    /** lowest status code held at {@link #TABLE}. */
+    private static final int FIRST_CODE = 100;
+    /** highest status code held at {@link #TABLE}. */
+    private static final int LAST_CODE = 599;
+    /**
+     * Every status code from {@link #FIRST_CODE} to {@link #LAST_CODE}, indexed by {@code code - FIRST_CODE}.
+     * <p>
+     * It is filled at class initialization and never modified, so it can be read without any synchronization.
+     */
+    private static final StatusCode[] TABLE = new StatusCode[LAST_CODE - FIRST_CODE + 1];
+
+    static {
+      final StatusCode[] known = {
+          OK, CREATED, ACCEPTED, PARTIAL_INFO, NO_RESPONSE, MOVED, FOUND, METHOD, NOT_MODIFIED, BAD_REQUEST, UNAUTHORIZED, PAYMENT_REQUIRED,
+          FORBIDDEN, NOT_FOUND, METHOD_NOT_ALLOWED, CONFLICT, GONE, UNPROCESSABLE_ENTITY, INTERNAL_ERROR, NOT_IMPLEMENTED, BAD_GATEWAY,
+          SERVICE_UNAVAILABLE, GATEWAY_TIMEOUT, HTTP_VERSION_NOT_SUPPORTED
+      };
+      for (final var statusCode : known) {
+        TABLE[statusCode.code - FIRST_CODE] = statusCode;
+      }
+      for (int i = 0; i < TABLE.length; i++) {
+        if (TABLE[i] == null) {
+          TABLE[i] = new StatusCode(FIRST_CODE + i);
+        }
+      }
+    }
+
     private final int code;
 
     public StatusCode(final int code)
@@ -710,6 +881,18 @@ public abstract class EndPointServlet
       this.code = code;
     }
 
+    /**
+     * @param code code of the status code to represent.
+     * @return the shared instance representing {@code code} when it is between 100 and 599; a new one other way.
+     */
+    static StatusCode of(final int code)
+    {
+      if (code >= FIRST_CODE && code <= LAST_CODE) {
+        return TABLE[code - FIRST_CODE];
+      }
+      return new StatusCode(code);
+    }
+
     @Override public int hashCode()
     {
       return Integer.hashCode(code);
@@ -773,13 +956,24 @@ public abstract class EndPointServlet
      */
     public static final ContentType MULTIPART_FORM_DATA = new ContentType("multipart/form-data");
     /**
-     * User defined headers.
+     * Every content type interned, by media type.
      *
      * @see #contentType(String) to understand its use.
      */
-    private static final ConcurrentHashMap<String, ContentType> CUSTOM = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, ContentType> INTERNED = new ConcurrentHashMap<>();
+
+    static {
+      for (final var contentType : new ContentType[]{
+          APPLICATION_FORM_URLENCODED, TEXT_JSON, APPLICATION_JSON, TEXT_XML, APPLICATION_XML, TEXT_X_YAML, APPLICATION_X_YAML, TEXT_HTML, TEXT_PLAIN,
+          APPLICATION_OCTET_STREAM, MULTIPART_FORM_DATA}) {
+        INTERNED.put(contentType.mediaType, contentType);
+      }
+    }
+
     /** media type represented by the instance. */
     private final String mediaType;
+    /** value of the {@code charset} parameter of the media type; {@literal null} when it is not defined or not supported. */
+    private final transient Charset charset;
 
     /**
      * Constructs an instance of {@link ContentType} given the media type to represent.
@@ -789,6 +983,62 @@ public abstract class EndPointServlet
     private ContentType(final String mediaType)
     {
       this.mediaType = mediaType;
+      this.charset = charsetOf(mediaType);
+    }
+
+    /**
+     * Gets the shared instance representing some media type, creating it if needed.
+     * <p>
+     * At most {@link EndPointServlet#MAX_INTERNED} instances are kept, so media types received from clients can't exhaust the memory.
+     *
+     * @param mediaType the media type to represent.
+     * @return a {@link ContentType} representing {@code mediaType}.
+     */
+    static ContentType intern(final String mediaType)
+    {
+      final var contentType = INTERNED.get(mediaType);
+      if (contentType != null) {
+        return contentType;
+      }
+      if (INTERNED.size() >= MAX_INTERNED) {
+        return new ContentType(mediaType);
+      }
+      return INTERNED.computeIfAbsent(mediaType, ContentType::new);
+    }
+
+    private static Charset charsetOf(final String mediaType)
+    {
+      final var parameters = mediaType.indexOf(';');
+      if (parameters < 0) {
+        return null;
+      }
+      for (final var parameter : mediaType.substring(parameters + 1).split(";")) {
+        final var equals = parameter.indexOf('=');
+        if (equals > 0 && "charset".equalsIgnoreCase(parameter.substring(0, equals).trim())) {
+          var name = parameter.substring(equals + 1).trim();
+          if (name.length() > 1 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
+            name = name.substring(1, name.length() - 1);
+          }
+          try {
+            return Charset.forName(name);
+          } catch (final IllegalArgumentException e) {
+            return null;
+          }
+        }
+      }
+      return null;
+    }
+
+    /** @return the charset defined by the media type; {@literal null} when it doesn't define one, or it is not supported. */
+    public Charset charset()
+    {
+      return charset;
+    }
+
+    /** @return the shared instance for the deserialized media type, so its (transient) {@link #charset} is resolved again. */
+    private Object readResolve()
+    {
+      return intern(mediaType);
     }
 
     @Override public int hashCode()
@@ -867,7 +1117,7 @@ public abstract class EndPointServlet
     /** Contains the date and time at which the message was originated. */
     public static final Header DATE = new Header("Date");
     /** Provides the current value of the entity tag for the requested variant. */
-    public static final Header ETAG = new Header("Etag");
+    public static final Header ETAG = new Header("ETag");
     /** Gives the date/time after which the response is considered stale. */
     public static final Header EXPIRES = new Header("Expires");
     /**
@@ -906,11 +1156,21 @@ public abstract class EndPointServlet
      */
     public static final Header LOCATION = new Header("Location");
     /**
-     * User defined headers.
+     * Every header interned, by name.
      *
      * @see #header(String) to understand its use.
      */
-    private static final ConcurrentHashMap<String, Header> CUSTOM = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Header> INTERNED = new ConcurrentHashMap<>();
+
+    static {
+      for (final var header : new Header[]{
+          ACCEPT, ACCEPT_CHARSET, ACCEPT_ENCODING, ACCEPT_LANGUAGE, ACCEPT_DATETIME, AUTHORIZATION, PRAGMA, CACHE_CONTROL, CONNECTION, CONTENT_TYPE,
+          CONTENT_ENCODING, CONTENT_LANGUAGE, CONTENT_LENGTH, CONTENT_LOCATION, CONTENT_MD5, CONTENT_DISPOSITION, DATE, ETAG, EXPIRES, IF_MATCH,
+          IF_MODIFIED_SINCE, IF_NONE_MATCH, USER_AGENT, HOST, LAST_MODIFIED, LOCATION}) {
+        INTERNED.put(header.name, header);
+      }
+    }
+
     private final String name;
 
     public Header(final String name)
@@ -918,6 +1178,32 @@ public abstract class EndPointServlet
       this.name = name;
     }
 
+    /** @return the name of the header. */
+    public String name()
+    {
+      return name;
+    }
+
+    /**
+     * Gets the shared instance representing some header, creating it if needed.
+     * <p>
+     * At most {@link EndPointServlet#MAX_INTERNED} instances are kept, so header names received from clients can't exhaust the memory.
+     *
+     * @param name the name of the header to represent.
+     * @return a {@link Header} representing {@code name}.
+     */
+    static Header intern(final String name)
+    {
+      final var header = INTERNED.get(name);
+      if (header != null) {
+        return header;
+      }
+      if (INTERNED.size() >= MAX_INTERNED) {
+        return new Header(name);
+      }
+      return INTERNED.computeIfAbsent(name, Header::new);
+    }
+
     @Override public int hashCode()
     {
       return name.hashCode();
@@ -0,0 +1,75 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import argo.jdom.JsonNode;
+import argo.saj.InvalidSyntaxException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Defines how endpoints parse and format JSON documents.
+ * <p>
+ * By default endpoints use <a href="http://argo.sourceforge.net/">Argo</a>, but any other implementation can be used by registering it with
+ * {@link EndPointServlet#useJsonCodec(JsonCodec)}, or as a service provider at {@code META-INF/services/barman.web.JsonCodec}.
+ * <p>
+ * Handlers that only need some fields of big documents should read them through a {@link JsonReader} instead, as it doesn't build any tree.
+ */
+public interface JsonCodec
+{
+  /**
+   * @param reader where to read the JSON document.
+   * @return the JSON document read from {@code reader}.
+   * @throws InvalidSyntaxException if {@code reader} doesn't hold a valid JSON document.
+   * @throws IOException            if some problem occurs while reading.
+   */
+  JsonNode parse(Reader reader)
+      throws InvalidSyntaxException, IOException;
+
+  /**
+   * @param content text of the JSON document.
+   * @return the JSON document represented by {@code content}.
+   * @throws InvalidSyntaxException if {@code content} isn't a valid JSON document.
+   */
+  JsonNode parse(String content)
+      throws InvalidSyntaxException;
+
+  /**
+   * @param json JSON document to format.
+   * @return the text representing {@code json}.
+   */
+  String format(JsonNode json);
+
+  /**
+   * @param json   JSON document to format.
+   * @param writer where to write the text representing {@code json}.
+   * @throws IOException if some problem occurs while writing.
+   */
+  void format(
+      JsonNode json,
+      Writer writer)
+      throws IOException;
+}
@@ -0,0 +1,760 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull based JSON reader, which reads a document token by token without building any tree.
+ * <p>
+ * Handlers can read just the fields they need, skipping the rest:
+ * <pre>{@code
+ * final var json = jsonReader(request);
+ * json.beginObject();
+ * while (json.hasNext()) {
+ *   switch (json.nextName()) {
+ *   case "id":
+ *     id = json.nextLong();
+ *     break;
+ *   default:
+ *     json.skipValue();
+ *   }
+ * }
+ * json.endObject();
+ * }</pre>
+ * or bind objects directly into some target, through {@link #readObject(Object, Map)}.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class JsonReader
+    implements Closeable
+{
+  private static final int BUFFER_SIZE = 1024;
+  private static final int INITIAL_DEPTH = 32;
+
+  /* scopes of the values being read. */
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_OBJECT = 2;
+  private static final int DANGLING_NAME = 3;
+  private static final int NONEMPTY_OBJECT = 4;
+  private static final int EMPTY_ARRAY = 5;
+  private static final int NONEMPTY_ARRAY = 6;
+
+  private final Reader in;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  /** number of characters consumed before the ones currently at the buffer, used to report syntax errors. */
+  private long offset;
+
+  private int[] scopes = new int[INITIAL_DEPTH];
+  private int depth = 1;
+
+  /** next token, already peeked; {@literal null} if it must be peeked. */
+  private Token peeked;
+  /** value of the boolean peeked. */
+  private boolean peekedBoolean;
+  /** text of the peeked number, reused for every number read. */
+  private final StringBuilder number = new StringBuilder();
+  /** text of the strings read, reused for every string read. */
+  private final StringBuilder text = new StringBuilder();
+
+  /**
+   * Builds a {@link JsonReader}.
+   *
+   * @param in where to read the JSON document.
+   */
+  public JsonReader(final Reader in)
+  {
+    if (in == null) {
+      throw new NullPointerException("in");
+    }
+    this.in = in;
+    scopes[0] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * @return the type of the next token, without consuming it.
+   * @throws IOException if the document is malformed, or some problem occurs while reading it.
+   */
+  public Token peek()
+      throws IOException
+  {
+    if (peeked == null) {
+      peeked = doPeek();
+    }
+    return peeked;
+  }
+
+  /**
+   * @return {@literal true} if the current object or array has more elements.
+   * @throws IOException if the document is malformed, or some problem occurs while reading it.
+   */
+  public boolean hasNext()
+      throws IOException
+  {
+    final var token = peek();
+    return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+  }
+
+  /**
+   * Consumes the beginning of an object.
+   *
+   * @throws IOException if the next token isn't the beginning of an object, or some problem occurs while reading.
+   */
+  public void beginObject()
+      throws IOException
+  {
+    expect(Token.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  /**
+   * Consumes the end of the current object.
+   *
+   * @throws IOException if the next token isn't the end of an object, or some problem occurs while reading.
+   */
+  public void endObject()
+      throws IOException
+  {
+    expect(Token.END_OBJECT);
+    depth--;
+  }
+
+  /**
+   * Consumes the beginning of an array.
+   *
+   * @throws IOException if the next token isn't the beginning of an array, or some problem occurs while reading.
+   */
+  public void beginArray()
+      throws IOException
+  {
+    expect(Token.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  /**
+   * Consumes the end of the current array.
+   *
+   * @throws IOException if the next token isn't the end of an array, or some problem occurs while reading.
+   */
+  public void endArray()
+      throws IOException
+  {
+    expect(Token.END_ARRAY);
+    depth--;
+  }
+
+  /**
+   * @return the name of the next field of the current object.
+   * @throws IOException if the next token isn't a field name, or some problem occurs while reading.
+   */
+  public String nextName()
+      throws IOException
+  {
+    expect(Token.NAME);
+    return readString();
+  }
+
+  /**
+   * @return the next string value; numbers are returned as their text representation.
+   * @throws IOException if the next token isn't a string nor a number, or some problem occurs while reading.
+   */
+  public String nextString()
+      throws IOException
+  {
+    final var token = peek();
+    if (token == Token.NUMBER) {
+      peeked = null;
+      return number.toString();
+    }
+    expect(Token.STRING);
+    return readString();
+  }
+
+  /**
+   * @return the next boolean value.
+   * @throws IOException if the next token isn't a boolean, or some problem occurs while reading.
+   */
+  public boolean nextBoolean()
+      throws IOException
+  {
+    expect(Token.BOOLEAN);
+    return peekedBoolean;
+  }
+
+  /**
+   * Consumes the next {@code null} value.
+   *
+   * @throws IOException if the next token isn't {@code null}, or some problem occurs while reading.
+   */
+  public void nextNull()
+      throws IOException
+  {
+    expect(Token.NULL);
+  }
+
+  /**
+   * Consumes the next value when it is {@code null}.
+   *
+   * @return {@literal true} if the next value was {@code null}; {@literal false} if it is some other value, which is left to be read.
+   * @throws IOException if the document is malformed, or some problem occurs while reading it.
+   */
+  public boolean nextIsNull()
+      throws IOException
+  {
+    if (peek() == Token.NULL) {
+      peeked = null;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the next number value, as a {@code long}; without boxing it nor building any {@link String} when it is an integer.
+   * @throws IOException if the next token isn't a number representing a {@code long}, or some problem occurs while reading.
+   */
+  @SuppressWarnings("checkstyle:magicNumber")
+  public long nextLong()
+      throws IOException
+  {
+    expect(Token.NUMBER);
+    final var length = number.length();
+    final var negative = number.charAt(0) == '-';
+    long value = 0;
+    for (int i = negative ? 1 : 0; i < length; i++) {
+      final var c = number.charAt(i);
+      if (c < '0' || c > '9') {
+        final var real = parseDouble();
+        if (real != (long) real) {
+          throw syntaxError("expected a long but was " + number);
+        }
+        return (long) real;
+      }
+      // accumulated as a negative value, so Long.MIN_VALUE can be read too
+      final var next = value * 10 - (c - '0');
+      if (value < Long.MIN_VALUE / 10 || next > value) {
+        throw syntaxError("expected a long but was " + number);
+      }
+      value = next;
+    }
+    if (negative) {
+      return value;
+    }
+    if (value == Long.MIN_VALUE) {
+      throw syntaxError("expected a long but was " + number);
+    }
+    return -value;
+  }
+
+  /**
+   * @return the next number value, as an {@code int}.
+   * @throws IOException if the next token isn't a number representing an {@code int}, or some problem occurs while reading.
+   */
+  public int nextInt()
+      throws IOException
+  {
+    final var value = nextLong();
+    if (value != (int) value) {
+      throw syntaxError("expected an int but was " + value);
+    }
+    return (int) value;
+  }
+
+  /**
+   * @return the next number value, as a {@code double}.
+   * @throws IOException if the next token isn't a number, or some problem occurs while reading.
+   */
+  public double nextDouble()
+      throws IOException
+  {
+    expect(Token.NUMBER);
+    return parseDouble();
+  }
+
+  /**
+   * Skips the next value, even when it is an entire object or array.
+   *
+   * @throws IOException if the document is malformed, or some problem occurs while reading it.
+   */
+  public void skipValue()
+      throws IOException
+  {
+    int nesting = 0;
+    do {
+      final var token = peek();
+      peeked = null;
+      switch (token) {
+      case BEGIN_OBJECT:
+        push(EMPTY_OBJECT);
+        nesting++;
+        break;
+      case BEGIN_ARRAY:
+        push(EMPTY_ARRAY);
+        nesting++;
+        break;
+      case END_OBJECT:
+      case END_ARRAY:
+        if (nesting == 0) {
+          throw syntaxError("expected a value but was " + token);
+        }
+        depth--;
+        nesting--;
+        break;
+      case NAME:
+      case STRING:
+        skipString();
+        break;
+      case END_DOCUMENT:
+        throw syntaxError("unexpected end of document");
+      default:
+        break;
+      }
+    } while (nesting > 0);
+  }
+
+  /**
+   * Reads the next object binding each of its fields into {@code target}.
+   * <p>
+   * Fields without a reader defined at {@code fields} are skipped.
+   *
+   * @param target where to bind the object fields.
+   * @param fields how to read each field, by name.
+   * @param <T>    type of the target object.
+   * @return the {@code target}.
+   * @throws IOException if the document is malformed, or some problem occurs while reading it.
+   */
+  public <T> T readObject(
+      final T target,
+      final Map<String, ? extends FieldReader<? super T>> fields)
+      throws IOException
+  {
+    beginObject();
+    while (hasNext()) {
+      final FieldReader<? super T> field = fields.get(nextName());
+      if (field == null) {
+        skipValue();
+      } else {
+        field.read(this, target);
+      }
+    }
+    endObject();
+    return target;
+  }
+
+  /**
+   * Reads the next array, reading each of its elements with {@code element}.
+   *
+   * @param element how to read each element of the array.
+   * @param <E>     type of the elements of the array.
+   * @return the elements read.
+   * @throws IOException if the document is malformed, or some problem occurs while reading it.
+   */
+  public <E> List<E> readList(final ValueReader<? extends E> element)
+      throws IOException
+  {
+    final var elements = new ArrayList<E>();
+    beginArray();
+    while (hasNext()) {
+      elements.add(element.read(this));
+    }
+    endArray();
+    return elements;
+  }
+
+  @Override public void close()
+      throws IOException
+  {
+    peeked = Token.END_DOCUMENT;
+    depth = 0;
+    in.close();
+  }
+
+  @Override public String toString()
+  {
+    return "JsonReader(at " + (offset + position) + ')';
+  }
+
+  private void expect(final Token expected)
+      throws IOException
+  {
+    final var token = peek();
+    if (token != expected) {
+      throw syntaxError("expected " + expected + " but was " + token);
+    }
+    peeked = null;
+  }
+
+  private void push(final int scope)
+  {
+    if (depth == scopes.length) {
+      scopes = Arrays.copyOf(scopes, depth * 2);
+    }
+    scopes[depth++] = scope;
+  }
+
+  @SuppressWarnings("checkstyle:cyclomaticComplexity")
+  private Token doPeek()
+      throws IOException
+  {
+    if (depth == 0) {
+      throw new IllegalStateException("JsonReader is closed");
+    }
+    final var scope = scopes[depth - 1];
+    switch (scope) {
+    case EMPTY_ARRAY:
+      scopes[depth - 1] = NONEMPTY_ARRAY;
+      break;
+    case NONEMPTY_ARRAY:
+      switch (nextNonWhitespace()) {
+      case ']':
+        return Token.END_ARRAY;
+      case ',':
+        break;
+      default:
+        throw syntaxError("unterminated array");
+      }
+      break;
+    case EMPTY_OBJECT:
+    case NONEMPTY_OBJECT:
+      scopes[depth - 1] = DANGLING_NAME;
+      if (scope == NONEMPTY_OBJECT) {
+        switch (nextNonWhitespace()) {
+        case '}':
+          return Token.END_OBJECT;
+        case ',':
+          break;
+        default:
+          throw syntaxError("unterminated object");
+        }
+      }
+      switch (nextNonWhitespace()) {
+      case '"':
+        return Token.NAME;
+      case '}':
+        if (scope == EMPTY_OBJECT) {
+          return Token.END_OBJECT;
+        }
+        throw syntaxError("expected name");
+      default:
+        throw syntaxError("expected name");
+      }
+    case DANGLING_NAME:
+      scopes[depth - 1] = NONEMPTY_OBJECT;
+      if (nextNonWhitespace() != ':') {
+        throw syntaxError("expected ':'");
+      }
+      break;
+    case EMPTY_DOCUMENT:
+      scopes[depth - 1] = NONEMPTY_DOCUMENT;
+      break;
+    default: // NONEMPTY_DOCUMENT
+      if (nextNonWhitespaceOrEnd() < 0) {
+        return Token.END_DOCUMENT;
+      }
+      throw syntaxError("unexpected content after the document");
+    }
+
+    final var c = nextNonWhitespace();
+    switch (c) {
+    case ']':
+      if (scope == EMPTY_ARRAY) {
+        return Token.END_ARRAY;
+      }
+      throw syntaxError("unexpected ']'");
+    case '"':
+      return Token.STRING;
+    case '{':
+      return Token.BEGIN_OBJECT;
+    case '[':
+      return Token.BEGIN_ARRAY;
+    case 't':
+      expectLiteral("rue");
+      peekedBoolean = true;
+      return Token.BOOLEAN;
+    case 'f':
+      expectLiteral("alse");
+      peekedBoolean = false;
+      return Token.BOOLEAN;
+    case 'n':
+      expectLiteral("ull");
+      return Token.NULL;
+    default:
+      if (c == '-' || (c >= '0' && c <= '9')) {
+        readNumber((char) c);
+        return Token.NUMBER;
+      }
+      throw syntaxError("unexpected character '" + (char) c + '\'');
+    }
+  }
+
+  private double parseDouble()
+      throws SyntaxError
+  {
+    try {
+      return Double.parseDouble(number.toString());
+    } catch (final NumberFormatException e) {
+      throw syntaxError("invalid number " + number);
+    }
+  }
+
+  private void expectLiteral(final String rest)
+      throws IOException
+  {
+    for (int i = 0; i < rest.length(); i++) {
+      if (read() != rest.charAt(i)) {
+        throw syntaxError("invalid literal");
+      }
+    }
+  }
+
+  private void readNumber(final char first)
+      throws IOException
+  {
+    number.setLength(0);
+    number.append(first);
+    while (true) {
+      if (position == limit && !fill()) {
+        break;
+      }
+      final var c = buffer[position];
+      if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+        number.append(c);
+        position++;
+      } else {
+        break;
+      }
+    }
+    if (number.length() == 1 && first == '-') {
+      throw syntaxError("invalid number");
+    }
+  }
+
+  private String readString()
+      throws IOException
+  {
+    text.setLength(0);
+    while (true) {
+      var start = position;
+      while (position < limit) {
+        final var c = buffer[position];
+        if (c == '"') {
+          text.append(buffer, start, position - start);
+          position++;
+          return text.toString();
+        }
+        if (c == '\\') {
+          text.append(buffer, start, position - start);
+          position++;
+          text.append(readEscape());
+          // reading the escape may have refilled the buffer
+          start = position;
+        } else {
+          position++;
+        }
+      }
+      text.append(buffer, start, position - start);
+      if (!fill()) {
+        throw syntaxError("unterminated string");
+      }
+    }
+  }
+
+  private void skipString()
+      throws IOException
+  {
+    while (true) {
+      final var c = read();
+      if (c == '"') {
+        return;
+      }
+      if (c == '\\') {
+        readEscape();
+      } else if (c < 0) {
+        throw syntaxError("unterminated string");
+      }
+    }
+  }
+
+  @SuppressWarnings("checkstyle:magicNumber")
+  private char readEscape()
+      throws IOException
+  {
+    final var c = read();
+    switch (c) {
+    case '"':
+    case '\\':
+    case '/':
+      return (char) c;
+    case 'b':
+      return '\b';
+    case 'f':
+      return '\f';
+    case 'n':
+      return '\n';
+    case 'r':
+      return '\r';
+    case 't':
+      return '\t';
+    case 'u':
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        final var digit = Character.digit(read(), 16);
+        if (digit < 0) {
+          throw syntaxError("invalid unicode escape");
+        }
+        value = (value << 4) | digit;
+      }
+      return (char) value;
+    default:
+      throw syntaxError("invalid escape");
+    }
+  }
+
+  private int nextNonWhitespace()
+      throws IOException
+  {
+    final var c = nextNonWhitespaceOrEnd();
+    if (c < 0) {
+      throw syntaxError("unexpected end of document");
+    }
+    return c;
+  }
+
+  private int nextNonWhitespaceOrEnd()
+      throws IOException
+  {
+    while (true) {
+      final var c = read();
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return c;
+      }
+    }
+  }
+
+  private int read()
+      throws IOException
+  {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position++];
+  }
+
+  private boolean fill()
+      throws IOException
+  {
+    offset += limit;
+    position = 0;
+    limit = 0;
+    final var count = in.read(buffer, 0, buffer.length);
+    if (count <= 0) {
+      return false;
+    }
+    limit = count;
+    return true;
+  }
+
+  private SyntaxError syntaxError(final String message)
+  {
+    return new SyntaxError(message + " at " + (offset + position));
+  }
+
+  /** Kinds of tokens in a JSON document. */
+  public enum Token
+  {
+    /** the beginning of an object ({@code '{'}). */
+    BEGIN_OBJECT,
+    /** the end of an object ({@code '}'}). */
+    END_OBJECT,
+    /** the beginning of an array ({@code '['}). */
+    BEGIN_ARRAY,
+    /** the end of an array ({@code ']'}). */
+    END_ARRAY,
+    /** the name of an object field. */
+    NAME,
+    /** an string value. */
+    STRING,
+    /** a number value. */
+    NUMBER,
+    /** {@code true} or {@code false}. */
+    BOOLEAN,
+    /** {@code null}. */
+    NULL,
+    /** the end of the document. */
+    END_DOCUMENT
+  }
+
+  /**
+   * Defines how to read a value.
+   *
+   * @param <T> type of the value read.
+   */
+  @FunctionalInterface public interface ValueReader<T>
+  {
+    /**
+     * @param json reader positioned at the value.
+     * @return the value read.
+     * @throws IOException if the document is malformed, or some problem occurs while reading it.
+     */
+    T read(JsonReader json)
+        throws IOException;
+  }
+
+  /**
+   * Defines how to read a field of an object, binding it into some target.
+   *
+   * @param <T> type of the target where the field is bound.
+   */
+  @FunctionalInterface public interface FieldReader<T>
+  {
+    /**
+     * @param json   reader positioned at the field value.
+     * @param target where to bind the field value.
+     * @throws IOException if the document is malformed, or some problem occurs while reading it.
+     */
+    void read(
+        JsonReader json,
+        T target)
+        throws IOException;
+  }
+
+  /** Indicates that the document read is not valid JSON. */
+  public static final class SyntaxError
+      extends IOException
+  {
+    /** @param message description of the error, including where it was found. */
+    SyntaxError(final String message)
+    {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,400 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming JSON writer, which writes a document token by token without building any tree.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class JsonWriter
+    implements Closeable, Flushable
+{
+  private static final int INITIAL_DEPTH = 32;
+  private static final String[] REPLACEMENTS = new String[128];
+
+  /* scopes of the values being written. */
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_OBJECT = 2;
+  private static final int DANGLING_NAME = 3;
+  private static final int NONEMPTY_OBJECT = 4;
+  private static final int EMPTY_ARRAY = 5;
+  private static final int NONEMPTY_ARRAY = 6;
+
+  static {
+    for (char c = 0; c < ' '; c++) {
+      REPLACEMENTS[c] = String.format("\\u%04x", (int) c);
+    }
+    REPLACEMENTS['"'] = "\\\"";
+    REPLACEMENTS['\\'] = "\\\\";
+    REPLACEMENTS['\t'] = "\\t";
+    REPLACEMENTS['\b'] = "\\b";
+    REPLACEMENTS['\n'] = "\\n";
+    REPLACEMENTS['\r'] = "\\r";
+    REPLACEMENTS['\f'] = "\\f";
+  }
+
+  private final Writer out;
+  private int[] scopes = new int[INITIAL_DEPTH];
+  private int depth = 1;
+
+  /**
+   * Builds a {@link JsonWriter}.
+   *
+   * @param out where to write the JSON document.
+   */
+  public JsonWriter(final Writer out)
+  {
+    if (out == null) {
+      throw new NullPointerException("out");
+    }
+    this.out = out;
+    scopes[0] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Begins a new object.
+   *
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter beginObject()
+      throws IOException
+  {
+    beforeValue();
+    push(EMPTY_OBJECT);
+    out.write('{');
+    return this;
+  }
+
+  /**
+   * Ends the current object.
+   *
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter endObject()
+      throws IOException
+  {
+    return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+  }
+
+  /**
+   * Begins a new array.
+   *
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter beginArray()
+      throws IOException
+  {
+    beforeValue();
+    push(EMPTY_ARRAY);
+    out.write('[');
+    return this;
+  }
+
+  /**
+   * Ends the current array.
+   *
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter endArray()
+      throws IOException
+  {
+    return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+  }
+
+  /**
+   * Writes the name of the next field of the current object.
+   *
+   * @param name name of the field.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter name(final String name)
+      throws IOException
+  {
+    if (name == null) {
+      throw new NullPointerException("name");
+    }
+    final var scope = scopes[depth - 1];
+    if (scope == NONEMPTY_OBJECT) {
+      out.write(',');
+    } else if (scope != EMPTY_OBJECT) {
+      throw new IllegalStateException("names can only be written inside objects");
+    }
+    scopes[depth - 1] = DANGLING_NAME;
+    string(name);
+    out.write(':');
+    return this;
+  }
+
+  /**
+   * @param value string to write, {@literal null} writes {@code null}.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter value(final String value)
+      throws IOException
+  {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    string(value);
+    return this;
+  }
+
+  /**
+   * @param value number to write.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter value(final long value)
+      throws IOException
+  {
+    beforeValue();
+    out.write(Long.toString(value));
+    return this;
+  }
+
+  /**
+   * @param value number to write, it must be finite.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter value(final double value)
+      throws IOException
+  {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("JSON numbers must be finite, but was " + value);
+    }
+    beforeValue();
+    out.write(Double.toString(value));
+    return this;
+  }
+
+  /**
+   * @param value number to write, {@literal null} writes {@code null}.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter value(final Number value)
+      throws IOException
+  {
+    if (value == null) {
+      return nullValue();
+    }
+    if (value instanceof Double || value instanceof Float) {
+      return value(value.doubleValue());
+    }
+    beforeValue();
+    out.write(value.toString());
+    return this;
+  }
+
+  /**
+   * @param value boolean to write.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter value(final boolean value)
+      throws IOException
+  {
+    beforeValue();
+    out.write(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * @param value boolean to write, {@literal null} writes {@code null}.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter value(final Boolean value)
+      throws IOException
+  {
+    if (value == null) {
+      return nullValue();
+    }
+    return value(value.booleanValue());
+  }
+
+  /**
+   * Writes {@code null}.
+   *
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public JsonWriter nullValue()
+      throws IOException
+  {
+    beforeValue();
+    out.write("null");
+    return this;
+  }
+
+  /**
+   * Writes an array, writing each of its elements with {@code element}.
+   *
+   * @param elements elements to write, {@literal null} writes {@code null}.
+   * @param element  how to write each element of the array.
+   * @param <E>      type of the elements of the array.
+   * @return this writer.
+   * @throws IOException if some problem occurs while writing.
+   */
+  public <E> JsonWriter writeList(
+      final List<? extends E> elements,
+      final ValueWriter<? super E> element)
+      throws IOException
+  {
+    if (elements == null) {
+      return nullValue();
+    }
+    beginArray();
+    for (final E e : elements) {
+      element.write(e, this);
+    }
+    return endArray();
+  }
+
+  @Override public void flush()
+      throws IOException
+  {
+    out.flush();
+  }
+
+  @Override public void close()
+      throws IOException
+  {
+    out.close();
+  }
+
+  private void push(final int scope)
+  {
+    if (depth == scopes.length) {
+      scopes = Arrays.copyOf(scopes, depth * 2);
+    }
+    scopes[depth++] = scope;
+  }
+
+  private JsonWriter close(
+      final int empty,
+      final int nonempty,
+      final char bracket)
+      throws IOException
+  {
+    final var scope = scopes[depth - 1];
+    if (scope != empty && scope != nonempty) {
+      throw new IllegalStateException("nesting problem");
+    }
+    depth--;
+    out.write(bracket);
+    return this;
+  }
+
+  private void beforeValue()
+      throws IOException
+  {
+    switch (scopes[depth - 1]) {
+    case EMPTY_DOCUMENT:
+      scopes[depth - 1] = NONEMPTY_DOCUMENT;
+      break;
+    case EMPTY_ARRAY:
+      scopes[depth - 1] = NONEMPTY_ARRAY;
+      break;
+    case NONEMPTY_ARRAY:
+      out.write(',');
+      break;
+    case DANGLING_NAME:
+      scopes[depth - 1] = NONEMPTY_OBJECT;
+      break;
+    case NONEMPTY_DOCUMENT:
+      throw new IllegalStateException("JSON documents must have only one top-level value");
+    default:
+      throw new IllegalStateException("values inside objects must be preceded by their name");
+    }
+  }
+
+  private void string(final String value)
+      throws IOException
+  {
+    out.write('"');
+    int last = 0;
+    final var length = value.length();
+    for (int i = 0; i < length; i++) {
+      final var c = value.charAt(i);
+      final String replacement;
+      if (c < REPLACEMENTS.length) {
+        replacement = REPLACEMENTS[c];
+        if (replacement == null) {
+          continue;
+        }
+      } else if (c == '\u2028') {
+        replacement = "\\u2028";
+      } else if (c == '\u2029') {
+        replacement = "\\u2029";
+      } else {
+        continue;
+      }
+      if (last < i) {
+        out.write(value, last, i - last);
+      }
+      out.write(replacement);
+      last = i + 1;
+    }
+    if (last < length) {
+      out.write(value, last, length - last);
+    }
+    out.write('"');
+  }
+
+  /**
+   * Defines how to write a value.
+   *
+   * @param <T> type of the value written.
+   */
+  @FunctionalInterface public interface ValueWriter<T>
+  {
+    /**
+     * @param value value to write.
+     * @param json  writer where to write the value.
+     * @throws IOException if some problem occurs while writing.
+     */
+    void write(
+        T value,
+        JsonWriter json)
+        throws IOException;
+  }
+}
@@ -36,6 +36,9 @@ import javax.servlet.http.HttpServletRequest;
 public final class PathVariable<T>
     extends RequestValueReader<T>
 {
+  /** position where this variable was found last time, racy updates are harmless as it is just a hint. */
+  private int expectedPosition;
+
   /**
    * Construct a {@link PathVariable} instance.
    *
@@ -50,24 +53,35 @@ public final class PathVariable<T>
   }
 
   /**
-   * Verifies if the request has an attribute representing this parameter.
+   * Finds the position of this variable at the match, trying first where it was found last time: variables are usually read from the same
+   * routes, so they are found at once.
+   */
+  private int positionAt(final RouteMatch match)
+  {
+    final var position = match.indexOf(name, expectedPosition);
+    if (position >= 0) {
+      expectedPosition = position;
+    }
+    return position;
+  }
+
+  /**
+   * Verifies if the request has a value for this variable.
    * <p>
-   * When a dynamic path is matched, all the path variables recognized in it are added to the request as attributes, so checking that a the variable
-   * is defined is as simple as checking that an attribute named as it exists under request attribute names.
+   * When a dynamic path is matched, all the path variables recognized in it are bound to the request as a {@link RouteMatch}, so checking that the
+   * variable is defined is as simple as checking that the match has a value for it. Request attributes named as the variable are still honored, for
+   * requests not dispatched by a {@code barman} router.
    *
    * @param request {@link HttpServletRequest} where to check if the value is defined or not.
    * @return {@literal true} if the variable is defined under the {@code request}; {@literal false} other way.
    */
   @Override public boolean isDefinedAt(final HttpServletRequest request)
   {
-    final var attributeNames = request.getAttributeNames();
-    while (attributeNames.hasMoreElements()) {
-      final var attributeName = attributeNames.nextElement();
-      if (name.equals(attributeName)) {
-        return true;
-      }
+    final var match = RouteMatch.of(request);
+    if (match != null && positionAt(match) >= 0) {
+      return true;
     }
-    return false;
+    return request.getAttribute(name) != null;
   }
 
   /**
@@ -81,13 +95,21 @@ public final class PathVariable<T>
   }
 
   /**
-   * Gets the value of the request's attribute named after this variable name.
+   * Gets the value captured for this variable, when the request was matched by a route; or the value of the request's attribute named after this
+   * variable name other way.
    *
-   * @param request {@link HttpServletRequest} where to get the attribute value.
-   * @return request's attribute named after this variable name, as an {@link String}.
+   * @param request {@link HttpServletRequest} where to get the variable value.
+   * @return value of this variable at the {@code request}, as an {@link String}.
    */
   @Override protected String read(final HttpServletRequest request)
   {
+    final var match = RouteMatch.of(request);
+    if (match != null) {
+      final var position = positionAt(match);
+      if (position >= 0) {
+        return match.value(position);
+      }
+    }
     return request.getAttribute(name).toString();
   }
 }
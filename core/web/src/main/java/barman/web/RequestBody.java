@@ -0,0 +1,212 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads request bodies, enforcing a maximum size.
+ * <p>
+ * Bodies are read straight from the request input stream into a per-thread buffer, sized from the {@code Content-Length} when it is known. Text
+ * bodies are decoded from that buffer just once, with the request charset; raw bodies are copied from it to an array of their exact size.
+ */
+public final class RequestBody
+{
+  /** size of the buffers kept per thread, bigger buffers are used just for the body that needs them. */
+  static final int POOLED_BUFFER_SIZE = 64 * 1024;
+  /** size of the first buffer used when the length of the body is unknown. */
+  private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+  /** buffers used to read request bodies, one per thread; it is empty while some body of the thread is being read. */
+  private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+  private RequestBody()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Reads the text at the request body, decoding it with the request charset ({@code UTF-8} when the request doesn't define one).
+   *
+   * @param request {@link HttpServletRequest} which body must be read.
+   * @param maxSize maximum size of the body, in bytes.
+   * @return the text at the request body.
+   * @throws TooLarge    if the body has more than {@code maxSize} bytes.
+   * @throws IOException if some problem occurs while reading the body.
+   */
+  static String text(
+      final HttpServletRequest request,
+      final int maxSize)
+      throws IOException
+  {
+    final var body = new Reading(request, maxSize);
+    try {
+      return new String(body.buffer, 0, body.size, charsetOf(request));
+    } finally {
+      body.release();
+    }
+  }
+
+  /**
+   * Reads the raw bytes at the request body.
+   *
+   * @param request {@link HttpServletRequest} which body must be read.
+   * @param maxSize maximum size of the body, in bytes.
+   * @return the bytes at the request body.
+   * @throws TooLarge    if the body has more than {@code maxSize} bytes.
+   * @throws IOException if some problem occurs while reading the body.
+   */
+  static byte[] bytes(
+      final HttpServletRequest request,
+      final int maxSize)
+      throws IOException
+  {
+    final var body = new Reading(request, maxSize);
+    try {
+      return Arrays.copyOf(body.buffer, body.size);
+    } finally {
+      body.release();
+    }
+  }
+
+  /**
+   * @param request some {@link HttpServletRequest}.
+   * @return the charset defined by {@code request}; {@code UTF-8} when it defines none, or it is not supported.
+   */
+  static Charset charsetOf(final HttpServletRequest request)
+  {
+    final var encoding = request.getCharacterEncoding();
+    if (encoding == null) {
+      return StandardCharsets.UTF_8;
+    }
+    try {
+      return Charset.forName(encoding);
+    } catch (final IllegalArgumentException e) {
+      return StandardCharsets.UTF_8;
+    }
+  }
+
+  private static byte[] borrowBuffer(final int size)
+  {
+    if (size <= POOLED_BUFFER_SIZE) {
+      final var buffer = BUFFERS.get();
+      if (buffer != null) {
+        BUFFERS.set(null);
+        return buffer;
+      }
+      return new byte[POOLED_BUFFER_SIZE];
+    }
+    return new byte[size];
+  }
+
+  /** A request body read into a borrowed buffer. */
+  private static final class Reading
+  {
+    private byte[] buffer;
+    private int size;
+
+    Reading(
+        final HttpServletRequest request,
+        final int maxSize)
+        throws IOException
+    {
+      final var contentLength = request.getContentLengthLong();
+      if (contentLength > maxSize) {
+        throw new TooLarge(contentLength, maxSize);
+      }
+      if (contentLength >= 0) {
+        buffer = borrowBuffer((int) contentLength);
+      } else {
+        buffer = borrowBuffer(Math.min(INITIAL_BUFFER_SIZE, maxSize));
+      }
+      try {
+        read(request.getInputStream(), maxSize);
+      } catch (final IOException | RuntimeException e) {
+        release();
+        throw e;
+      }
+    }
+
+    private void read(
+        final InputStream in,
+        final int maxSize)
+        throws IOException
+    {
+      while (true) {
+        final var limit = Math.min(buffer.length, maxSize);
+        if (size == limit) {
+          // a full buffer usually holds the whole body (as it is sized by its Content-Length), so the end is probed before growing it
+          final var next = in.read();
+          if (next < 0) {
+            return;
+          }
+          if (size == maxSize) {
+            throw new TooLarge(size + 1L, maxSize);
+          }
+          // the body is bigger than expected, so a buffer just for it is used
+          final var grown = Arrays.copyOf(buffer, (int) Math.min((long) size * 2, maxSize));
+          release();
+          buffer = grown;
+          buffer[size++] = (byte) next;
+          continue;
+        }
+        final var count = in.read(buffer, size, limit - size);
+        if (count < 0) {
+          return;
+        }
+        size += count;
+      }
+    }
+
+    void release()
+    {
+      if (buffer.length == POOLED_BUFFER_SIZE) {
+        BUFFERS.set(buffer);
+      }
+    }
+  }
+
+  /** Indicates that a request body is bigger than the maximum size allowed. */
+  public static final class TooLarge
+      extends IOException
+  {
+    /** size of the body, in bytes; or the bytes read before noticing that it was too large. */
+    public final long size;
+    /** maximum size allowed for the body, in bytes. */
+    public final int maxSize;
+
+    TooLarge(
+        final long size,
+        final int maxSize)
+    {
+      super("request body too large: " + size + " > " + maxSize + " bytes");
+      this.size = size;
+      this.maxSize = maxSize;
+    }
+  }
+}
@@ -0,0 +1,650 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import barman.web.EndPointServlet.Header;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Server side cache of responses of {@code GET} actions, used by the routers of actions marked as {@code @Cached}.
+ * <p>
+ * Responses are kept fully encoded (status, headers and body bytes), so serving a cached response doesn't run the action nor encode its content
+ * again. Concurrent requests for a response not cached yet wait for the first one (up to 5 seconds), so the action runs once per key.
+ * <p>
+ * Actions run without the conditional headers of the request, so they always produce the whole response; the cache answers {@code If-None-Match}
+ * itself, with the {@code ETag} of the response kept. Bodies are compressed by the cache too, once per content coding, so hot responses aren't
+ * compressed again on every request.
+ * <p>
+ * Responses are shared by all the clients, so requests with credentials (an {@code Authorization} header, a session id or any cookie) bypass the
+ * cache: their action always runs, and its response is neither kept nor served to others. This class is thread safe.
+ */
+public final class ResponseCache
+{
+  /** for how long a request waits for the response a concurrent request is producing, before running the action itself. */
+  private static final long PRODUCING_TIMEOUT_MILLIS = 5_000;
+
+  private final Cache<String, CompletableFuture<CachedResponse>> responses;
+  private final String[] varyBy;
+
+  /**
+   * Constructs an empty {@link ResponseCache}.
+   *
+   * @param maximumSize how many responses can be kept at once.
+   * @param timeToLive  for how long a response is kept, since it was produced.
+   * @param varyBy      names of the query parameters which produce different responses.
+   * @throws NullPointerException     if {@code timeToLive} is {@literal null}.
+   * @throws IllegalArgumentException if {@code maximumSize} is negative.
+   */
+  public ResponseCache(
+      final long maximumSize,
+      final Duration timeToLive,
+      final String... varyBy)
+  {
+    this.responses = Caffeine.newBuilder()
+                             .maximumSize(maximumSize)
+                             .expireAfterWrite(timeToLive)
+                             .recordStats()
+                             .build();
+    this.varyBy = varyBy.clone();
+  }
+
+  /** @return statistics of the cache usage. */
+  public CacheStats stats()
+  {
+    return responses.stats();
+  }
+
+  /** @return approximate number of responses kept. */
+  public long size()
+  {
+    return responses.estimatedSize();
+  }
+
+  /** Discards all the responses kept. */
+  public void invalidateAll()
+  {
+    responses.invalidateAll();
+  }
+
+  /**
+   * Sends the cached response for the request, running the action only when there is none.
+   *
+   * @param request  request to respond.
+   * @param response where to send the response.
+   * @param action   action producing the response.
+   * @throws ServletException if the action fails.
+   * @throws IOException      if the response can't be sent.
+   */
+  public void serve(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final Action action) throws ServletException, IOException
+  {
+    if (hasCredentials(request)) {
+      action.handle(request, response);
+      return;
+    }
+    final var key = keyOf(request);
+    final var pending = new CompletableFuture<CachedResponse>();
+    final var produced = responses.asMap().putIfAbsent(key, pending);
+    if (produced != null) {
+      final var cached = awaitProduced(produced);
+      if (cached != null) {
+        cached.writeTo(request, response);
+      } else {
+        // the concurrent response wasn't cacheable (so neither is this one) or it is taking too long
+        action.handle(request, response);
+      }
+      return;
+    }
+    CachedResponse cached = null;
+    try {
+      final var capture = new Capture(response);
+      action.handle(new Unconditional(request), capture);
+      final var captured = capture.captured();
+      if (captured != null) {
+        if (capture.isCacheable()) {
+          cached = captured;
+        }
+        captured.writeTo(request, response);
+      }
+    } finally {
+      if (cached == null) {
+        responses.asMap().remove(key, pending);
+      }
+      pending.complete(cached);
+    }
+  }
+
+  /** @return the response produced by a concurrent request, or {@literal null} if it isn't cacheable or it isn't produced in time. */
+  private static CachedResponse awaitProduced(final CompletableFuture<CachedResponse> produced)
+  {
+    try {
+      return produced.get(PRODUCING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (final ExecutionException | TimeoutException e) {
+      return null;
+    }
+  }
+
+  /** @return whether the request identifies its user, so its response may be specific to that user. */
+  static boolean hasCredentials(final HttpServletRequest request)
+  {
+    return request.getHeader("Authorization") != null || request.getRequestedSessionId() != null || request.getCookies() != null;
+  }
+
+  String keyOf(final HttpServletRequest request)
+  {
+    final var pathInfo = request.getPathInfo();
+    if (varyBy.length == 0) {
+      return pathInfo == null ? "" : pathInfo;
+    }
+    final var key = new StringBuilder(pathInfo == null ? "" : pathInfo);
+    for (final var name : varyBy) {
+      key.append('\0').append(name);
+      final var values = request.getParameterValues(name);
+      if (values != null) {
+        for (final var value : values) {
+          key.append('\0').append(value);
+        }
+      }
+    }
+    return key.toString();
+  }
+
+  /** A response ready to be sent. */
+  static final class CachedResponse
+  {
+    private final int status;
+    private final String contentType;
+    private final String characterEncoding;
+    private final Locale locale;
+    private final String[] headerNames;
+    private final String[] headerValues;
+    private final byte[] body;
+    private final String etag;
+    /** has the action set its own {@code Content-Encoding}? */
+    private final boolean encoded;
+    /** body compressed by each content coding used, computed when first requested. */
+    private final ConcurrentHashMap<String, byte[]> encodings = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("checkstyle:parameterNumber") CachedResponse(
+        final int status,
+        final String contentType,
+        final String characterEncoding,
+        final Locale locale,
+        final String[] headerNames,
+        final String[] headerValues,
+        final byte[] body)
+    {
+      this.status = status;
+      this.contentType = contentType;
+      this.characterEncoding = characterEncoding;
+      this.locale = locale;
+      this.headerNames = headerNames;
+      this.headerValues = headerValues;
+      this.body = body;
+      this.etag = headerOf(Header.ETAG.name(), headerNames, headerValues);
+      this.encoded = headerOf(Header.CONTENT_ENCODING.name(), headerNames, headerValues) != null;
+    }
+
+    private static String headerOf(
+        final String name,
+        final String[] headerNames,
+        final String[] headerValues)
+    {
+      for (int i = 0; i < headerNames.length; i++) {
+        if (name.equalsIgnoreCase(headerNames[i])) {
+          return headerValues[i];
+        }
+      }
+      return null;
+    }
+
+    /** @return the body compressed by {@code encoder}, compressing it only the first time. */
+    private byte[] bodyEncodedBy(final ContentEncoder encoder)
+        throws IOException
+    {
+      try {
+        return encodings.computeIfAbsent(encoder.name(), name -> {
+          try {
+            return encoder.encode(body, body.length);
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (final UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+
+    void writeTo(
+        final HttpServletRequest request,
+        final HttpServletResponse response) throws IOException
+    {
+      final var encoder = encoded ? null : Compression.negotiate(request, body.length);
+      final var representationEtag = etag == null ? null : Compression.etagOf(etag, encoder);
+      final var notModified = representationEtag != null
+                              && status == HttpServletResponse.SC_OK
+                              && ETag.matches(request.getHeader(Header.IF_NONE_MATCH.name()), representationEtag);
+      response.setStatus(notModified ? HttpServletResponse.SC_NOT_MODIFIED : status);
+      if (locale != null) {
+        response.setLocale(locale);
+      }
+      if (contentType != null) {
+        response.setContentType(contentType);
+      }
+      if (characterEncoding != null) {
+        response.setCharacterEncoding(characterEncoding);
+      }
+      for (int i = 0; i < headerNames.length; i++) {
+        if (Header.ETAG.name().equalsIgnoreCase(headerNames[i])) {
+          response.addHeader(headerNames[i], representationEtag);
+        } else {
+          response.addHeader(headerNames[i], headerValues[i]);
+        }
+      }
+      if (!encoded) {
+        Compression.mark(response, encoder, body.length);
+      }
+      if (notModified) {
+        return;
+      }
+      final var sent = encoder == null ? body : bodyEncodedBy(encoder);
+      response.setContentLength(sent.length);
+      if (sent.length != 0) {
+        response.getOutputStream().write(sent);
+      }
+    }
+  }
+
+  /** A request without conditional headers nor accepted encodings, so actions produce the whole response, uncompressed. */
+  private static final class Unconditional
+      extends HttpServletRequestWrapper
+  {
+    Unconditional(final HttpServletRequest request)
+    {
+      super(request);
+    }
+
+    private static boolean isConditional(final String name)
+    {
+      return Header.IF_NONE_MATCH.name().equalsIgnoreCase(name)
+             || Header.IF_MODIFIED_SINCE.name().equalsIgnoreCase(name)
+             || Header.ACCEPT_ENCODING.name().equalsIgnoreCase(name);
+    }
+
+    @Override public String getHeader(final String name)
+    {
+      return isConditional(name) ? null : super.getHeader(name);
+    }
+
+    @Override public Enumeration<String> getHeaders(final String name)
+    {
+      return isConditional(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+    }
+
+    @Override public long getDateHeader(final String name)
+    {
+      return isConditional(name) ? -1 : super.getDateHeader(name);
+    }
+  }
+
+  /**
+   * Keeps a response instead of sending it, so it can be cached. Errors and redirects are sent right away, as they are never cached.
+   */
+  private static final class Capture
+      extends HttpServletResponseWrapper
+  {
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private int status = SC_OK;
+    private String contentType;
+    private String characterEncoding;
+    private Locale locale;
+    private boolean cookies;
+    private boolean sent;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    Capture(final HttpServletResponse response)
+    {
+      super(response);
+    }
+
+    /** @return the response kept, or {@literal null} if it was already sent. */
+    CachedResponse captured()
+    {
+      if (sent) {
+        return null;
+      }
+      if (writer != null) {
+        writer.flush();
+      }
+      var count = 0;
+      for (final var values : headers.values()) {
+        count += values.size();
+      }
+      final var names = new String[count];
+      final var values = new String[count];
+      var i = 0;
+      for (final var header : headers.entrySet()) {
+        for (final var value : header.getValue()) {
+          names[i] = header.getKey();
+          values[i++] = value;
+        }
+      }
+      return new CachedResponse(status, contentType, characterEncoding, locale, names, values, body.toByteArray());
+    }
+
+    boolean isCacheable()
+    {
+      if (sent || cookies || status != SC_OK) {
+        return false;
+      }
+      final var cacheControl = headers.get("Cache-Control");
+      if (cacheControl != null) {
+        for (final var value : cacheControl) {
+          final var directives = value.toLowerCase(Locale.ROOT);
+          if (directives.contains("no-store") || directives.contains("private")) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private void send() throws IOException
+    {
+      sent = true;
+      final var response = (HttpServletResponse) getResponse();
+      if (contentType != null) {
+        response.setContentType(contentType);
+      }
+      for (final var header : headers.entrySet()) {
+        for (final var value : header.getValue()) {
+          response.addHeader(header.getKey(), value);
+        }
+      }
+    }
+
+    @Override public void sendError(final int sc) throws IOException
+    {
+      send();
+      super.sendError(sc);
+    }
+
+    @Override public void sendError(
+        final int sc,
+        final String msg) throws IOException
+    {
+      send();
+      super.sendError(sc, msg);
+    }
+
+    @Override public void sendRedirect(final String location) throws IOException
+    {
+      send();
+      super.sendRedirect(location);
+    }
+
+    @Override public void addCookie(final Cookie cookie)
+    {
+      cookies = true;
+      super.addCookie(cookie);
+    }
+
+    @Override public void setStatus(final int sc)
+    {
+      status = sc;
+    }
+
+    @Override public int getStatus()
+    {
+      return status;
+    }
+
+    @Override public void setHeader(
+        final String name,
+        final String value)
+    {
+      final var values = new ArrayList<String>(1);
+      values.add(value);
+      headers.put(name, values);
+    }
+
+    @Override public void addHeader(
+        final String name,
+        final String value)
+    {
+      headers.computeIfAbsent(name, n -> new ArrayList<>(1)).add(value);
+    }
+
+    @Override public void setIntHeader(
+        final String name,
+        final int value)
+    {
+      setHeader(name, Integer.toString(value));
+    }
+
+    @Override public void addIntHeader(
+        final String name,
+        final int value)
+    {
+      addHeader(name, Integer.toString(value));
+    }
+
+    @Override public void setDateHeader(
+        final String name,
+        final long date)
+    {
+      setHeader(name, httpDate(date));
+    }
+
+    @Override public void addDateHeader(
+        final String name,
+        final long date)
+    {
+      addHeader(name, httpDate(date));
+    }
+
+    private static String httpDate(final long date)
+    {
+      return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+    }
+
+    @Override public boolean containsHeader(final String name)
+    {
+      return headers.containsKey(name);
+    }
+
+    @Override public String getHeader(final String name)
+    {
+      final var values = headers.get(name);
+      return values == null ? null : values.get(0);
+    }
+
+    @Override public Collection<String> getHeaders(final String name)
+    {
+      final var values = headers.get(name);
+      return values == null ? List.of() : List.copyOf(values);
+    }
+
+    @Override public Collection<String> getHeaderNames()
+    {
+      return List.copyOf(headers.keySet());
+    }
+
+    @Override public void setContentType(final String type)
+    {
+      contentType = type;
+    }
+
+    @Override public String getContentType()
+    {
+      return contentType;
+    }
+
+    @Override public void setCharacterEncoding(final String charset)
+    {
+      characterEncoding = charset;
+    }
+
+    @Override public String getCharacterEncoding()
+    {
+      if (characterEncoding != null) {
+        return characterEncoding;
+      }
+      if (contentType != null) {
+        final var charset = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (charset >= 0) {
+          return contentType.substring(charset + "charset=".length()).trim();
+        }
+      }
+      return StandardCharsets.ISO_8859_1.name();
+    }
+
+    @Override public void setLocale(final Locale value)
+    {
+      locale = value;
+    }
+
+    @Override public void setContentLength(final int len)
+    {
+      // computed when the response is sent
+    }
+
+    @Override public void setContentLengthLong(final long len)
+    {
+      // computed when the response is sent
+    }
+
+    @Override public ServletOutputStream getOutputStream()
+    {
+      if (outputStream == null) {
+        outputStream = new ServletOutputStream()
+        {
+          @Override public boolean isReady()
+          {
+            return true;
+          }
+
+          @Override public void setWriteListener(final WriteListener listener)
+          {
+            throw new IllegalStateException("cached responses are written synchronously");
+          }
+
+          @Override public void write(final int b)
+          {
+            body.write(b);
+          }
+
+          @Override public void write(
+              final byte[] b,
+              final int off,
+              final int len)
+          {
+            body.write(b, off, len);
+          }
+        };
+      }
+      return outputStream;
+    }
+
+    @Override public PrintWriter getWriter()
+    {
+      if (writer == null) {
+        writer = new PrintWriter(new OutputStreamWriter(body, Charset.forName(getCharacterEncoding())));
+      }
+      return writer;
+    }
+
+    @Override public boolean isCommitted()
+    {
+      return sent;
+    }
+
+    @Override public void flushBuffer()
+    {
+      if (writer != null) {
+        writer.flush();
+      }
+    }
+
+    @Override public void resetBuffer()
+    {
+      if (writer != null) {
+        writer.flush();
+      }
+      body.reset();
+    }
+
+    @Override public void reset()
+    {
+      resetBuffer();
+      headers.clear();
+      status = SC_OK;
+      contentType = null;
+      characterEncoding = null;
+      locale = null;
+    }
+  }
+}
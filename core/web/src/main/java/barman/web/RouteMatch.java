@@ -0,0 +1,163 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Path variables captured when a dynamic path matches a request.
+ * <p>
+ * The routers generated by {@code barman} bind a single {@link RouteMatch} to the request (under the {@link #ATTRIBUTE} attribute), holding the
+ * captured values indexed by the position of its path variable in the route. So reading a {@link PathVariable} doesn't need to go through the
+ * request attributes.
+ * <p>
+ * When the system property {@code barman.web.pathVariablesAsAttributes} is {@code true}, each path variable is also published as a request
+ * attribute named after it, for code still reading them through {@link HttpServletRequest#getAttribute(String)}.
+ */
+public final class RouteMatch
+    implements java.io.Serializable
+{
+  /** name of the request attribute holding the {@link RouteMatch}. */
+  public static final String ATTRIBUTE = RouteMatch.class.getName();
+  /** should path variables be published as request attributes too? */
+  static final boolean PATH_VARIABLES_AS_ATTRIBUTES = Boolean.getBoolean("barman.web.pathVariablesAsAttributes");
+
+  /** names of the path variables, in the order they are defined at the route. */
+  private final String[] names;
+  /** values captured for each path variable, indexed as {@link #names}. */
+  private final String[] values;
+
+  RouteMatch(
+      final String[] names,
+      final String[] values)
+  {
+    this.names = names;
+    this.values = values;
+  }
+
+  /**
+   * Gets the {@link RouteMatch} bound to a request.
+   *
+   * @param request {@link HttpServletRequest} where to look for the {@link RouteMatch}.
+   * @return the {@link RouteMatch} bound to {@code request}; {@literal null} if no dynamic path matched it.
+   */
+  public static RouteMatch of(final HttpServletRequest request)
+  {
+    return (RouteMatch) request.getAttribute(ATTRIBUTE);
+  }
+
+  /**
+   * Binds this match to a request, replacing any other previously bound to it.
+   *
+   * @param request {@link HttpServletRequest} matched by the route.
+   */
+  void bindTo(final HttpServletRequest request)
+  {
+    request.setAttribute(ATTRIBUTE, this);
+    if (PATH_VARIABLES_AS_ATTRIBUTES) {
+      for (int i = 0; i < names.length; i++) {
+        request.setAttribute(names[i], values[i]);
+      }
+    }
+  }
+
+  /** @return the number of path variables captured. */
+  public int size()
+  {
+    return names.length;
+  }
+
+  /**
+   * @param position position of the path variable at the route.
+   * @return the name of the path variable at {@code position}.
+   */
+  public String name(final int position)
+  {
+    return names[position];
+  }
+
+  /**
+   * @param position position of the path variable at the route.
+   * @return the value captured for the path variable at {@code position}.
+   */
+  public String value(final int position)
+  {
+    return values[position];
+  }
+
+  /**
+   * @param name name of the path variable.
+   * @return the position of the path variable named {@code name}; {@code -1} if the route doesn't define it.
+   */
+  public int indexOf(final String name)
+  {
+    // routes define just a few path variables, so a linear scan is faster than any hashed lookup
+    for (int i = 0; i < names.length; i++) {
+      if (name.equals(names[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Looks for a path variable at the position where it is expected first, so callers reading the same variable of the same route on every request
+   * find it at once, without scanning.
+   *
+   * @param name     name of the path variable.
+   * @param expected position where the path variable is expected, usually the position where it was found last time.
+   * @return the position of the path variable named {@code name}; {@code -1} if the route doesn't define it.
+   */
+  public int indexOf(
+      final String name,
+      final int expected)
+  {
+    if (expected >= 0 && expected < names.length && name.equals(names[expected])) {
+      return expected;
+    }
+    return indexOf(name);
+  }
+
+  /**
+   * @param name name of the path variable.
+   * @return the value captured for the path variable named {@code name}; {@literal null} if the route doesn't define it.
+   */
+  public String value(final String name)
+  {
+    final var position = indexOf(name);
+    return position < 0 ? null : values[position];
+  }
+
+  @Override public String toString()
+  {
+    final var text = new StringBuilder("RouteMatch{");
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        text.append(", ");
+      }
+      text.append(names[i]).append('=').append(values[i]);
+    }
+    return text.append('}').toString();
+  }
+}
@@ -37,6 +37,8 @@ public abstract class RouterServlet
 {
   /** represents index path {@code "/"}. */
   @SuppressWarnings("checkstyle:constantName") protected static final Path indexPath = IndexPath.INSTANCE;
+  /** segments of the index path {@code "/"}. */
+  private static final String[] NO_SEGMENTS = {};
 
   /** Defined to avoid possible {@link EndPointServlet} anonymous construction. */
   protected RouterServlet()
@@ -67,6 +69,91 @@ public abstract class RouterServlet
     return new ParameterizedPath(uri, pattern, regex, parameters);
   }
 
+  /**
+   * Creates a dynamic path representation, which is matched segment by segment without using regexes.
+   * <p>
+   * Every path variable of the {@code pattern} must use the default regex ({@code [^/]+}), and each segment can hold at most one path variable
+   * (like {@code "/assets/{file}.css"}).
+   *
+   * @param uri     Complete URI of the represented path.
+   * @param pattern sub-path of the URI diferentiating this path from the others in the same endpoint.
+   * @return an {@link SegmentsPath} representing the {@code uri} and {@code pattern}.
+   */
+  protected static Path variablePath(
+      final String uri,
+      final String pattern)
+  {
+    return new SegmentsPath(uri, pattern);
+  }
+
+  /**
+   * Splits the path info of a request into its segments, as expected by the routers generated by {@code barman}.
+   * <p>
+   * The index path ({@literal null}, {@code ""} or {@code "/"}) has no segments; {@code "/tasks/12"} has segments {@code "tasks"} and
+   * {@code "12"}. Empty segments are kept, so {@code "/tasks/"} has segments {@code "tasks"} and {@code ""}.
+   *
+   * @param request {@link HttpServletRequest} which path info must be split.
+   * @return the segments of the request path info, NEVER {@literal null}.
+   */
+  protected static String[] segmentsOf(final HttpServletRequest request)
+  {
+    final var pathInfo = request.getPathInfo();
+    if (IndexPath.isIndex(pathInfo)) {
+      return NO_SEGMENTS;
+    }
+    final var length = pathInfo.length();
+    final int start = pathInfo.charAt(0) == '/' ? 1 : 0;
+
+    int count = 1;
+    for (int i = start; i < length; i++) {
+      if (pathInfo.charAt(i) == '/') {
+        count++;
+      }
+    }
+
+    final var segments = new String[count];
+    int segment = 0;
+    int from = start;
+    for (int i = start; i < length; i++) {
+      if (pathInfo.charAt(i) == '/') {
+        segments[segment++] = pathInfo.substring(from, i);
+        from = i + 1;
+      }
+    }
+    segments[segment] = pathInfo.substring(from);
+    return segments;
+  }
+
+  /**
+   * Binds the value of the only path variable of a route matched by the router.
+   *
+   * @param request {@link HttpServletRequest} matched by the route.
+   * @param name    name of the path variable.
+   * @param value   value captured for the path variable.
+   */
+  protected static void bind(
+      final HttpServletRequest request,
+      final String name,
+      final String value)
+  {
+    new RouteMatch(new String[]{name}, new String[]{value}).bindTo(request);
+  }
+
+  /**
+   * Binds the values of the path variables of a route matched by the router.
+   *
+   * @param request {@link HttpServletRequest} matched by the route.
+   * @param names   names of the path variables, in the order they are defined at the route.
+   * @param values  values captured for each path variable, in the same order as {@code names}.
+   */
+  protected static void bind(
+      final HttpServletRequest request,
+      final String[] names,
+      final String... values)
+  {
+    new RouteMatch(names, values).bindTo(request);
+  }
+
   protected static void notAuthorized(final HttpServletResponse response)
   {
     response.setStatus(HttpServletResponse.SC_FORBIDDEN);
@@ -138,12 +225,16 @@ public abstract class RouterServlet
   {
     INSTANCE;
 
-    @Override public boolean matches(final HttpServletRequest request)
+    static boolean isIndex(final String pathInfo)
     {
-      final var pathInfo = request.getPathInfo();
       return null == pathInfo || pathInfo.isEmpty() || "/".equals(pathInfo);
     }
 
+    @Override public boolean matches(final HttpServletRequest request)
+    {
+      return isIndex(request.getPathInfo());
+    }
+
     @Override public String toString()
     {
       return "Path('/')";
@@ -197,6 +288,132 @@ public abstract class RouterServlet
     }
   }
 
+  private static final class SegmentsPath
+      implements Path
+  {
+    private final String uri;
+    private final String pattern;
+    /** static text of each segment, or the text preceding the path variable in it. */
+    private final String[] prefixes;
+    /** text following the path variable of each segment, {@literal null} for static segments. */
+    private final String[] suffixes;
+    /** name of the path variable of each segment, {@literal null} for static segments. */
+    private final String[] parameters;
+    /** names of all the path variables, in the order they are defined at the pattern. */
+    private final String[] variables;
+
+    private SegmentsPath(
+        final String uri,
+        final String pattern)
+    {
+      this.uri = uri;
+      this.pattern = pattern;
+
+      final var segments = pattern.split("/", -1);
+      prefixes = new String[segments.length];
+      suffixes = new String[segments.length];
+      parameters = new String[segments.length];
+      int variableCount = 0;
+      for (int i = 0; i < segments.length; i++) {
+        final var segment = segments[i];
+        final var start = segment.indexOf('{');
+        if (start < 0) {
+          prefixes[i] = segment;
+        } else {
+          final var end = segment.indexOf('}', start);
+          prefixes[i] = segment.substring(0, start);
+          parameters[i] = segment.substring(start + 1, end);
+          suffixes[i] = segment.substring(end + 1);
+          variableCount++;
+        }
+      }
+      variables = new String[variableCount];
+      int variable = 0;
+      for (final var parameter : parameters) {
+        if (parameter != null) {
+          variables[variable++] = parameter;
+        }
+      }
+    }
+
+    private static int endOfSegment(
+        final String pathInfo,
+        final int from)
+    {
+      final var slash = pathInfo.indexOf('/', from);
+      return slash < 0 ? pathInfo.length() : slash;
+    }
+
+    @Override public String toString()
+    {
+      return "Path('" + pattern + "')";
+    }
+
+    @Override public int hashCode()
+    {
+      return pattern.hashCode();
+    }
+
+    @Override public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o instanceof SegmentsPath) {
+        return uri.equals(((SegmentsPath) o).uri);
+      }
+      return false;
+    }
+
+    @Override public boolean matches(final HttpServletRequest request)
+    {
+      final var pathInfo = request.getPathInfo();
+      if (pathInfo == null || !matches(pathInfo)) {
+        return false;
+      }
+      // path variables are only extracted once the path is known to match, so no garbage is generated on misses
+      final var values = new String[variables.length];
+      int variable = 0;
+      int from = 0;
+      for (int i = 0; i < parameters.length; i++) {
+        final var to = endOfSegment(pathInfo, from);
+        if (parameters[i] != null) {
+          values[variable++] = pathInfo.substring(from + prefixes[i].length(), to - suffixes[i].length());
+        }
+        from = to + 1;
+      }
+      new RouteMatch(variables, values).bindTo(request);
+      return true;
+    }
+
+    private boolean matches(final String pathInfo)
+    {
+      final var length = pathInfo.length();
+      int from = 0;
+      for (int i = 0; i < parameters.length; i++) {
+        if (from > length) {
+          return false;
+        }
+        final var to = endOfSegment(pathInfo, from);
+        final var prefix = prefixes[i];
+        if (parameters[i] == null) {
+          if (to - from != prefix.length() || !pathInfo.startsWith(prefix, from)) {
+            return false;
+          }
+        } else {
+          final var suffix = suffixes[i];
+          if (to - from <= prefix.length() + suffix.length()
+              || !pathInfo.startsWith(prefix, from)
+              || !pathInfo.startsWith(suffix, to - suffix.length())) {
+            return false;
+          }
+        }
+        from = to + 1;
+      }
+      return from == length + 1;
+    }
+  }
+
   private static final class ParameterizedPath
       implements Path
   {
@@ -243,9 +460,11 @@ public abstract class RouterServlet
       if (!IndexPath.INSTANCE.matches(request)) {
         final var matcher = regex.matcher(request.getPathInfo());
         if (matcher.matches()) {
-          for (final var parameter : parameters) {
-            request.setAttribute(parameter, matcher.group(parameter));
+          final var values = new String[parameters.length];
+          for (int i = 0; i < parameters.length; i++) {
+            values[i] = matcher.group(parameters[i]);
           }
+          new RouteMatch(parameters, values).bindTo(request);
           return true;
         }
       }
@@ -0,0 +1,347 @@
+/*
+The MIT License
+
+Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package barman.web;
+
+import barman.web.EndPointServlet.Header;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes text to a response body as UTF-8, without materializing it as a {@link String} nor encoding it twice.
+ * <p>
+ * Characters are encoded into a per-thread buffer, reused by every response written at the same thread. When all the body fits in the buffer it is
+ * sent at {@link #close()}, after setting its {@code Content-Length}; other way the buffer is flushed to the response output stream each time it
+ * gets full, and the container sends the body using chunked transfer encoding.
+ * <p>
+ * Conditional writers keep the whole body instead, to tag it with an {@code ETag}; when the request already has that tag at its
+ * {@code If-None-Match} header, the body is discarded and {@code 304 Not Modified} is sent. Their bodies are also compressed, when enabled by
+ * {@link EndPointServlet#compressResponsesOver(int, ContentEncoder...)} and accepted by the client.
+ * <p>
+ * Instances are not thread safe, and must be closed to complete the response body; or discarded, when the body couldn't be completely written.
+ */
+final class Utf8ResponseWriter
+    extends Writer
+{
+  /** size of the buffer used to encode the response body, bodies up to this size have a {@code Content-Length}. */
+  static final int BUFFER_SIZE = 8 * 1024;
+  /** buffers used to encode response bodies, one per thread; it is empty while some writer of the thread is using it. */
+  private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+  /** longest encoding of a character, in bytes. */
+  private static final int MAX_BYTES_PER_CHAR = 4;
+  /** byte written in place of unpaired surrogates, as done by the JDK encoders. */
+  private static final byte REPLACEMENT = '?';
+
+  private final HttpServletResponse response;
+  /** request to check for {@code If-None-Match}, {@literal null} when the writer isn't conditional. */
+  private final HttpServletRequest request;
+  /** buffer borrowed from the thread, given back at close. */
+  private final byte[] borrowed;
+  private byte[] buffer;
+  private int count;
+  /** has some part of the body been written to the response output stream? */
+  private boolean streaming;
+  /** high surrogate waiting for its low surrogate, {@code 0} when there is none. */
+  private char highSurrogate;
+  private boolean closed;
+
+  Utf8ResponseWriter(final HttpServletResponse response)
+  {
+    this(null, response);
+  }
+
+  /**
+   * Constructs a writer for a response body.
+   *
+   * @param request  request to check for {@code If-None-Match}, so the response is conditional; {@literal null} to always send the body.
+   * @param response {@link HttpServletResponse} where the body is written.
+   */
+  Utf8ResponseWriter(
+      final HttpServletRequest request,
+      final HttpServletResponse response)
+  {
+    this.request = request;
+    this.response = response;
+    this.borrowed = borrowBuffer();
+    this.buffer = borrowed;
+    response.setCharacterEncoding("UTF-8");
+  }
+
+  private static byte[] borrowBuffer()
+  {
+    final var buffer = BUFFERS.get();
+    if (buffer == null) {
+      return new byte[BUFFER_SIZE];
+    }
+    BUFFERS.set(null);
+    return buffer;
+  }
+
+  /**
+   * Writes the whole body of a response, sending it only once it was completely written.
+   * <p>
+   * When {@code content} fails the body kept is discarded, so the error is responded instead of a truncated body; only the parts of bodies too big
+   * to be kept (at non conditional writers) could have been sent already, and then the container can only abort the response.
+   *
+   * @param request  request to check for {@code If-None-Match}, so the response is conditional; {@literal null} to always send the body.
+   * @param response {@link HttpServletResponse} where the body is written.
+   * @param content  how to write the body.
+   * @throws IOException if {@code content} fails or some problem occurs while writing to the response.
+   */
+  static void render(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final Content content)
+      throws IOException
+  {
+    final var writer = new Utf8ResponseWriter(request, response);
+    try {
+      content.writeTo(writer);
+    } catch (final IOException | RuntimeException | Error e) {
+      writer.discard();
+      throw e;
+    }
+    writer.close();
+  }
+
+  /**
+   * Writes some text as the whole body of a response.
+   *
+   * @param response {@link HttpServletResponse} where the text must be written.
+   * @param content  text to write.
+   * @throws IOException if some problem occurs while writing to the response.
+   */
+  static void write(
+      final HttpServletResponse response,
+      final CharSequence content)
+      throws IOException
+  {
+    render(null, response, writer -> writer.append(content));
+  }
+
+  /**
+   * Writes some text as the whole body of a conditional response.
+   *
+   * @param request  request to check for {@code If-None-Match}.
+   * @param response {@link HttpServletResponse} where the text must be written.
+   * @param content  text to write.
+   * @throws IOException if some problem occurs while writing to the response.
+   */
+  static void write(
+      final HttpServletRequest request,
+      final HttpServletResponse response,
+      final CharSequence content)
+      throws IOException
+  {
+    render(request, response, writer -> writer.append(content));
+  }
+
+  @Override public void write(final int c)
+      throws IOException
+  {
+    ensureOpen();
+    encode((char) c);
+  }
+
+  @Override public void write(
+      final char[] chars,
+      final int offset,
+      final int length)
+      throws IOException
+  {
+    ensureOpen();
+    for (int i = offset, end = offset + length; i < end; i++) {
+      encode(chars[i]);
+    }
+  }
+
+  @Override public void write(
+      final String text,
+      final int offset,
+      final int length)
+      throws IOException
+  {
+    ensureOpen();
+    for (int i = offset, end = offset + length; i < end; i++) {
+      encode(text.charAt(i));
+    }
+  }
+
+  @Override public Writer append(final CharSequence text)
+      throws IOException
+  {
+    ensureOpen();
+    final var content = text == null ? "null" : text;
+    for (int i = 0, end = content.length(); i < end; i++) {
+      encode(content.charAt(i));
+    }
+    return this;
+  }
+
+  @SuppressWarnings("checkstyle:magicNumber")
+  private void encode(final char c)
+      throws IOException
+  {
+    if (count > buffer.length - MAX_BYTES_PER_CHAR) {
+      if (request == null) {
+        drain();
+      } else {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+    }
+    if (highSurrogate != 0) {
+      final var high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        final var codePoint = Character.toCodePoint(high, c);
+        buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+        return;
+      }
+      buffer[count++] = REPLACEMENT;
+      encode(c);
+      return;
+    }
+    if (c < 0x80) {
+      buffer[count++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[count++] = (byte) (0xC0 | (c >> 6));
+      buffer[count++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buffer[count++] = REPLACEMENT;
+    } else {
+      buffer[count++] = (byte) (0xE0 | (c >> 12));
+      buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buffer[count++] = (byte) (0x80 | (c & 0x3F));
+    }
+  }
+
+  /** Sends the buffered bytes to the response, giving up on setting its {@code Content-Length}. */
+  private void drain()
+      throws IOException
+  {
+    streaming = true;
+    response.getOutputStream().write(buffer, 0, count);
+    count = 0;
+  }
+
+  /** Does nothing, the body is sent when the buffer gets full or when the writer is closed, so small bodies can define its length. */
+  @Override public void flush()
+  {
+    // nothing to do
+  }
+
+  @Override public void close()
+      throws IOException
+  {
+    if (closed) {
+      return;
+    }
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      buffer[count++] = REPLACEMENT;
+    }
+    closed = true;
+    try {
+      if (request != null) {
+        sendConditionally();
+        return;
+      }
+      if (!streaming) {
+        response.setContentLength(count);
+      }
+      if (count > 0) {
+        response.getOutputStream().write(buffer, 0, count);
+      }
+    } finally {
+      count = 0;
+      buffer = borrowed;
+      BUFFERS.set(borrowed);
+    }
+  }
+
+  /** Sends the whole body kept, unless the client already has it; compressing it when the client accepts some content coding. */
+  private void sendConditionally()
+      throws IOException
+  {
+    final var encoder = Compression.negotiate(request, count);
+    final var etag = Compression.etagOf(ETag.of(buffer, count), encoder);
+    response.setHeader(Header.ETAG.name(), etag);
+    if (ETag.matches(request.getHeader(Header.IF_NONE_MATCH.name()), etag)) {
+      Compression.mark(response, encoder, count);
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+    var body = buffer;
+    var length = count;
+    if (encoder != null) {
+      body = encoder.encode(buffer, count);
+      length = body.length;
+    }
+    Compression.mark(response, encoder, count);
+    response.setContentLength(length);
+    if (length > 0) {
+      response.getOutputStream().write(body, 0, length);
+    }
+  }
+
+  /** Closes the writer without sending the body kept, as it is incomplete. */
+  void discard()
+  {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    highSurrogate = 0;
+    count = 0;
+    buffer = borrowed;
+    BUFFERS.set(borrowed);
+  }
+
+  private void ensureOpen()
+      throws IOException
+  {
+    if (closed) {
+      throw new IOException("writer already closed");
+    }
+  }
+
+  /** Some content written as a response body. */
+  @FunctionalInterface interface Content
+  {
+    /**
+     * @param writer where to write the content.
+     * @throws IOException if some problem occurs while writing.
+     */
+    void writeTo(Writer writer)
+        throws IOException;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ The MIT License
+
+ Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+package barman.web;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonReaderTest
+{
+  @Test void should_read_escapes() throws IOException
+  {
+    assertThat(stringOf("\"a\\\"b\\\\c\\/d\\be\\ff\\ng\\rh\\ti\\u00e9\"")).isEqualTo("a\"b\\c/d\be\ff\ng\rh\ti\u00e9");
+  }
+
+  @Test void should_read_surrogate_pairs() throws IOException
+  {
+    assertThat(stringOf("\"\\ud83d\\ude00 and \ud83d\ude00\"")).isEqualTo("\ud83d\ude00 and \ud83d\ude00");
+  }
+
+  @Test void should_read_strings_with_escapes_ending_past_the_buffer() throws IOException
+  {
+    // the escape ends right at the end of the first buffer fill
+    final var value = "x".repeat(1021) + "\\n" + "y".repeat(30);
+    assertThat(stringOf('"' + value + '"')).isEqualTo("x".repeat(1021) + '\n' + "y".repeat(30));
+  }
+
+  @Test void should_read_strings_split_at_any_position()
+  {
+    final var json = "{\"name\": \"a\\u0041\\n\ud83d\ude00" + "z".repeat(2500) + "\\\"\", \"id\": 12345}";
+    for (int chunk = 1; chunk <= 7; chunk++) {
+      final var reader = new JsonReader(new Chunked(json, chunk));
+      try {
+        reader.beginObject();
+        assertThat(reader.nextName()).isEqualTo("name");
+        assertThat(reader.nextString()).isEqualTo("aA\n\ud83d\ude00" + "z".repeat(2500) + '"');
+        assertThat(reader.nextName()).isEqualTo("id");
+        assertThat(reader.nextLong()).isEqualTo(12345);
+        reader.endObject();
+      } catch (final IOException e) {
+        throw new AssertionError("chunks of " + chunk, e);
+      }
+    }
+  }
+
+  @Test void should_reject_invalid_escapes()
+  {
+    assertThatThrownBy(() -> stringOf("\"\\x\"")).isInstanceOf(JsonReader.SyntaxError.class).hasMessageContaining("invalid escape");
+    assertThatThrownBy(() -> stringOf("\"\\u00g0\"")).isInstanceOf(JsonReader.SyntaxError.class).hasMessageContaining("invalid unicode escape");
+    assertThatThrownBy(() -> stringOf("\"abc")).isInstanceOf(JsonReader.SyntaxError.class).hasMessageContaining("unterminated string");
+  }
+
+  private static String stringOf(final String json) throws IOException
+  {
+    return new JsonReader(new StringReader(json)).nextString();
+  }
+
+  /** Gives at most {@code chunk} characters per read, so values are split across buffer fills. */
+  private static final class Chunked
+      extends Reader
+  {
+    private final String text;
+    private final int chunk;
+    private int position;
+
+    Chunked(
+        final String text,
+        final int chunk)
+    {
+      this.text = text;
+      this.chunk = chunk;
+    }
+
+    @Override public int read(
+        final char[] cbuf,
+        final int off,
+        final int len)
+    {
+      if (position == text.length()) {
+        return -1;
+      }
+      final var count = Math.min(Math.min(len, chunk), text.length() - position);
+      text.getChars(position, position + count, cbuf, off);
+      position += count;
+      return count;
+    }
+
+    @Override public void close()
+    {
+      // nothing to close
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ The MIT License
+
+ Copyright (c) 2021 Juan J. GIL (matero _at_ gmail _dot_ com)
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+package barman.web;
+
+import barman.web.EndPointServlet.StatusCode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatusCodesTest
+{
+  @Test void should_return_the_named_constants_for_their_codes()
+  {
+    assertThat(EndPointServlet.statusCode(200)).isSameAs(StatusCode.OK);
+    assertThat(EndPointServlet.statusCode(304)).isSameAs(StatusCode.NOT_MODIFIED);
+    assertThat(EndPointServlet.statusCode(422)).isSameAs(StatusCode.UNPROCESSABLE_ENTITY);
+    assertThat(EndPointServlet.statusCode(503)).isSameAs(StatusCode.SERVICE_UNAVAILABLE);
+  }
+
+  @Test void should_build_codes_out_of_the_table()
+  {
+    assertThat(EndPointServlet.statusCode(600)).isEqualTo(new StatusCode(600)).isNotSameAs(EndPointServlet.statusCode(600));
+    assertThatThrownBy(() -> EndPointServlet.statusCode(-1)).isInstanceOf(IllegalArgumentException.class);
+  }
+}